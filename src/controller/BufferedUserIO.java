@@ -0,0 +1,33 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BufferedUserIO class collects the messages printed while a task runs
+ * away from the user, such as loading one of many files in parallel, so that
+ * they can be shown in order afterwards. It cannot read input.
+ */
+class BufferedUserIO implements UserIO {
+  private final List<String> outputLines = new ArrayList<>();
+
+  @Override
+  public String readLine() {
+    return null;
+  }
+
+  @Override
+  public List<String> getLines() {
+    return null;
+  }
+
+  @Override
+  public List<String> getOutputLines() {
+    return outputLines;
+  }
+
+  @Override
+  public void print(String message) {
+    outputLines.add(message);
+  }
+}
@@ -0,0 +1,118 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import model.ColorLut;
+
+/**
+ * This class loads 3D colour lookup tables from .cube files. A file is parsed
+ * once and the table is kept until the file changes, so grading many images
+ * with the same look pays for the parsing only once.
+ */
+class CubeLutFile {
+  private final String path;
+  private ColorLut lut;
+  private long lastModified;
+
+  /**
+   * Creates a .cube file for the given path.
+   *
+   * @param path The path of the .cube file.
+   */
+  CubeLutFile(String path) {
+    this.path = path;
+  }
+
+  /**
+   * Loads the table from the file, reusing the previously parsed table if the
+   * file has not changed since.
+   *
+   * @param io The user input/output interface for error messages.
+   * @return The lookup table, or null if it cannot be loaded.
+   */
+  ColorLut load(UserIO io) {
+    File file = new File(path);
+    if (!file.isFile()) {
+      io.print("File not found at the given path");
+      return null;
+    }
+    if (lut != null && file.lastModified() == lastModified) {
+      return lut;
+    }
+    int size = 0;
+    double[] entries = null;
+    double[] domainMin = {0, 0, 0};
+    double[] domainMax = {1, 1, 1};
+    int count = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith("TITLE")) {
+          continue;
+        }
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+          case "LUT_3D_SIZE":
+            size = Integer.parseInt(tokens[1]);
+            if (size < 2 || size > 256) {
+              io.print("Invalid LUT file: size should be between 2 and 256.");
+              return null;
+            }
+            entries = new double[3 * size * size * size];
+            break;
+          case "LUT_1D_SIZE":
+            io.print("Invalid LUT file: only 3D LUTs are supported.");
+            return null;
+          case "DOMAIN_MIN":
+            domainMin = triple(tokens);
+            break;
+          case "DOMAIN_MAX":
+            domainMax = triple(tokens);
+            break;
+          case "LUT_3D_INPUT_RANGE":
+            double low = Double.parseDouble(tokens[1]);
+            double high = Double.parseDouble(tokens[2]);
+            domainMin = new double[]{low, low, low};
+            domainMax = new double[]{high, high, high};
+            break;
+          default:
+            if (entries == null || count + 3 > entries.length || tokens.length != 3) {
+              io.print("Invalid LUT file: unexpected line '" + line + "'.");
+              return null;
+            }
+            for (String token : tokens) {
+              entries[count++] = Double.parseDouble(token);
+            }
+        }
+      }
+    } catch (IOException e) {
+      io.print("Error reading the LUT file: " + e.getMessage());
+      return null;
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      io.print("Invalid LUT file: values should be numbers.");
+      return null;
+    }
+    if (entries == null || count != entries.length) {
+      io.print("Invalid LUT file: expected " + (entries == null ? "a LUT_3D_SIZE line"
+              : entries.length / 3 + " entries") + ".");
+      return null;
+    }
+    try {
+      lut = new ColorLut(size, entries, domainMin, domainMax);
+    } catch (IllegalArgumentException e) {
+      io.print("Invalid LUT file: " + e.getMessage());
+      return null;
+    }
+    lastModified = file.lastModified();
+    return lut;
+  }
+
+  private static double[] triple(String[] tokens) {
+    return new double[]{Double.parseDouble(tokens[1]), Double.parseDouble(tokens[2]),
+        Double.parseDouble(tokens[3])};
+  }
+}
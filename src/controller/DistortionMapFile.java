@@ -0,0 +1,119 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import model.DistortionMap;
+
+/**
+ * This class loads and saves distortion maps. A map file starts with a header
+ * of four ints (a magic number, the format version, the width and the height),
+ * followed by the fixed-point source column and row of every pixel. Loading
+ * memory-maps the coordinates instead of reading them, and the mapping is kept
+ * until the file changes, so applying the same map to many images reads it
+ * from disk at most once.
+ */
+class DistortionMapFile {
+  private static final int MAGIC = 0x524D4150;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 16;
+
+  private final String path;
+  private DistortionMap map;
+  private long lastModified;
+
+  /**
+   * Creates a distortion map file for the given path.
+   *
+   * @param path The path of the map file.
+   */
+  DistortionMapFile(String path) {
+    this.path = path;
+  }
+
+  /**
+   * Loads the map from the file, reusing the previous mapping if the file has
+   * not changed since.
+   *
+   * @param io The user input/output interface for error messages.
+   * @return The distortion map, or null if it cannot be loaded.
+   */
+  DistortionMap load(UserIO io) {
+    File file = new File(path);
+    if (!file.isFile()) {
+      io.print("File not found at the given path");
+      return null;
+    }
+    if (map != null && file.lastModified() == lastModified) {
+      return map;
+    }
+    try (RandomAccessFile input = new RandomAccessFile(file, "r");
+         FileChannel channel = input.getChannel()) {
+      if (input.length() < HEADER_BYTES || input.readInt() != MAGIC
+              || input.readInt() != VERSION) {
+        io.print("Invalid distortion map file.");
+        return null;
+      }
+      int width = input.readInt();
+      int height = input.readInt();
+      long size = 8L * width * height;
+      if (width < 1 || height < 1 || channel.size() != HEADER_BYTES + size) {
+        io.print("Invalid distortion map file.");
+        return null;
+      }
+      MappedByteBuffer coordinates = channel.map(FileChannel.MapMode.READ_ONLY,
+              HEADER_BYTES, size);
+      map = new DistortionMap(width, height, coordinates.asIntBuffer());
+      lastModified = file.lastModified();
+      return map;
+    } catch (IOException | IllegalArgumentException e) {
+      io.print("Error reading the distortion map: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Saves a map to the file. The saved map is kept as the loaded one.
+   *
+   * @param distortionMap The map to save.
+   * @param io            The user input/output interface for error messages.
+   */
+  void save(DistortionMap distortionMap, UserIO io) {
+    if (distortionMap == null) {
+      return;
+    }
+    try (RandomAccessFile output = new RandomAccessFile(path, "rw");
+         FileChannel channel = output.getChannel()) {
+      channel.truncate(0);
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      buffer.putInt(MAGIC).putInt(VERSION)
+              .putInt(distortionMap.getWidth()).putInt(distortionMap.getHeight());
+      IntBuffer coordinates = distortionMap.getCoordinates();
+      while (coordinates.hasRemaining()) {
+        if (buffer.remaining() < 4) {
+          write(channel, buffer);
+        }
+        buffer.putInt(coordinates.get());
+      }
+      write(channel, buffer);
+    } catch (IOException e) {
+      io.print("Error saving the distortion map: " + e.getMessage());
+      return;
+    }
+    map = distortionMap;
+    lastModified = new File(path).lastModified();
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -1,9 +1,44 @@
 package controller;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import model.BlendMode;
+import model.ColorLut;
+import model.ColorSignature;
+import model.ColorSpace;
+import model.ComponentLabeling;
+import model.DistanceField;
+import model.DistortionMap;
 import model.EnhancedImageProcessingModel;
+import model.HashIndex;
 import model.ImageInfo;
+import model.ImageMetrics;
+import model.Interpolation;
+import model.LutInterpolation;
+import model.ResizeFilter;
+import model.SimilarityIndex;
+import model.StackMode;
+import model.TemplateMatch;
 
 /**
  * The EnhancedController class adds additional functionality to the Controller class.
@@ -12,9 +47,48 @@ import model.ImageInfo;
  * - histogram
  * - color-correct
  * - levels-adjust
+ * - auto-levels
+ * - match-histogram
+ * - tone-map
+ * - clahe
+ * - nlmeans
+ * - guided-filter
+ * - detail-enhance
+ * - dither
+ * - resize
+ * - scale
+ * - rotate
+ * - affine
+ * - perspective
+ * - remap-build
+ * - remap
+ * - apply-lut
+ * - to-hsv, to-hsl, to-ycbcr, to-lab and the matching from- commands
+ * - hue-shift
+ * - saturation
+ * - label-components
+ * - distance-transform
+ * - quantize
+ * - stack
+ * - blend
+ * - seam-carve
+ * - compare
+ * - phash
+ * - find-template
+ * - dedupe
+ * - index build and index query
  * - running a script file through command line arguments.
  */
 public class EnhancedController extends Controller {
+  private static final String IMAGE_GLOB = "*.{jpg,jpeg,png,ppm,gif,JPG,JPEG,PNG,PPM,GIF}";
+  private static final int DEDUPE_DISTANCE = 10;
+  private static final int PREVIEW_SIZE = 128;
+  private static final String INDEX_FILE_NAME = "images.idx";
+
+  private final Map<String, DistortionMapFile> distortionMaps = new HashMap<>();
+  private final Map<String, CubeLutFile> lookupTables = new HashMap<>();
+  private final Map<String, ImageIndexFile> imageIndexes = new HashMap<>();
+  private String lastImageIndex;
 
   /**
    * Constructor for the enhanced controller with input/output, model and args.
@@ -67,6 +141,103 @@ public class EnhancedController extends Controller {
         case "levels-adjust":
           createLevelAdjustedImage(words);
           break;
+        case "auto-levels":
+          createAutoLevelsImage(words);
+          break;
+        case "match-histogram":
+          createHistogramMatchedImage(words);
+          break;
+        case "tone-map":
+          createToneMappedImage(words);
+          break;
+        case "clahe":
+          createClaheImage(words);
+          break;
+        case "nlmeans":
+          createDenoisedImage(words);
+          break;
+        case "guided-filter":
+          createGuidedFilteredImage(words);
+          break;
+        case "detail-enhance":
+          createDetailEnhancedImage(words);
+          break;
+        case "dither":
+          createDitheredImage(words);
+          break;
+        case "resize":
+          createResizedImage(words);
+          break;
+        case "scale":
+          createScaledImage(words);
+          break;
+        case "rotate":
+          createRotatedImage(words);
+          break;
+        case "affine":
+          createAffineImage(words);
+          break;
+        case "perspective":
+          createPerspectiveImage(words);
+          break;
+        case "remap-build":
+          buildDistortionMap(words);
+          break;
+        case "remap":
+          createRemappedImage(words);
+          break;
+        case "apply-lut":
+          createGradedImage(words);
+          break;
+        case "to-hsv":
+        case "to-hsl":
+        case "to-ycbcr":
+        case "to-lab":
+        case "from-hsv":
+        case "from-hsl":
+        case "from-ycbcr":
+        case "from-lab":
+          convertColorSpace(words);
+          break;
+        case "hue-shift":
+          createHueShiftedImage(words);
+          break;
+        case "saturation":
+          createSaturatedImage(words);
+          break;
+        case "label-components":
+          labelComponents(words);
+          break;
+        case "distance-transform":
+          createDistanceImage(words);
+          break;
+        case "quantize":
+          createQuantizedImage(words);
+          break;
+        case "stack":
+          createStackedImage(words);
+          break;
+        case "blend":
+          createBlendedImage(words);
+          break;
+        case "seam-carve":
+          createCarvedImage(words);
+          break;
+        case "compare":
+          compareImages(words);
+          break;
+        case "find-template":
+          findTemplate(words);
+          break;
+        case "phash":
+          printPerceptualHash(words);
+          break;
+        case "dedupe":
+          findDuplicates(words);
+          break;
+        case "index":
+          handleImageIndex(words);
+          break;
         default:
           super.executeLine(line);
       }
@@ -200,4 +371,1188 @@ public class EnhancedController extends Controller {
       io.print("Invalid 'levels-adjust' command. Should have 6 arguments.");
     }
   }
+
+  /**
+   * Checks that a word is a finite number, so that "NaN" and "Infinity",
+   * which Double.parseDouble accepts, are rejected with the other non-numbers.
+   */
+  boolean isNumber(String s) {
+    try {
+      return Double.isFinite(Double.parseDouble(s));
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private void createClaheImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || Integer.parseInt(words[1]) < 1) {
+        io.print("Number of tiles should be a positive integer.");
+        return;
+      }
+      if (!isNumber(words[2]) || !(Double.parseDouble(words[2]) >= 1)) {
+        io.print("Clip limit should be a number not less than 1.");
+        return;
+      }
+      ImageInfo equalizedImage;
+      try {
+        equalizedImage = model.claheImage(image, Integer.parseInt(words[1]),
+                Double.parseDouble(words[2]));
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to perform adaptive equalization on the image.");
+        return;
+      }
+      imageList.put(words[4], equalizedImage);
+    } else {
+      io.print("Invalid 'clahe' command. Should have 5 arguments.");
+    }
+  }
+
+  private void createDenoisedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1]) || !(Double.parseDouble(words[1]) > 0)) {
+        io.print("Denoising strength should be a positive number.");
+        return;
+      }
+      double strength = Double.parseDouble(words[1]);
+      ImageInfo denoisedImage;
+      int percentage;
+      try {
+        if (words.length > 4 && "split".equals(words[4])) {
+          percentage = validatePercentage(words[5]);
+          if (percentage == -1) {
+            return;
+          }
+          denoisedImage = model.splitDenoise(image, strength, percentage);
+        } else {
+          denoisedImage = model.denoiseImage(image, strength);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to perform denoising on the image.");
+        return;
+      }
+      imageList.put(words[3], denoisedImage);
+    } else {
+      io.print("Invalid 'nlmeans' command. Should have 4 arguments.");
+    }
+  }
+
+  private void createDitheredImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[2]) || Integer.parseInt(words[2]) < 2
+              || Integer.parseInt(words[2]) > 256) {
+        io.print("Number of levels should be an integer between 2 and 256.");
+        return;
+      }
+      int levels = Integer.parseInt(words[2]);
+      ImageInfo ditheredImage;
+      try {
+        switch (words[1].toLowerCase()) {
+          case "floyd-steinberg":
+            ditheredImage = model.floydSteinbergDither(image, levels);
+            break;
+          case "atkinson":
+            ditheredImage = model.atkinsonDither(image, levels);
+            break;
+          default:
+            io.print("Dithering method should be floyd-steinberg or atkinson.");
+            return;
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to perform dithering on the image.");
+        return;
+      }
+      imageList.put(words[4], ditheredImage);
+    } else {
+      io.print("Invalid 'dither' command. Should have 5 arguments.");
+    }
+  }
+
+  private void createResizedImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || !isInteger(words[2])
+              || Integer.parseInt(words[1]) < 1 || Integer.parseInt(words[2]) < 1) {
+        io.print("Width and height should be positive integers.");
+        return;
+      }
+      resize(image, Integer.parseInt(words[1]), Integer.parseInt(words[2]),
+              words.length > 5 ? words[5] : "auto", words[4]);
+    } else {
+      io.print("Invalid 'resize' command. Should have 5 arguments.");
+    }
+  }
+
+  private void createScaledImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || Integer.parseInt(words[1]) < 1) {
+        io.print("Scale percentage should be a positive integer.");
+        return;
+      }
+      int percentage = Integer.parseInt(words[1]);
+      int width = Math.max(1, (int) Math.round(image.getWidth() * percentage / 100.0));
+      int height = Math.max(1, (int) Math.round(image.getHeight() * percentage / 100.0));
+      resize(image, width, height, words.length > 4 ? words[4] : "auto", words[3]);
+    } else {
+      io.print("Invalid 'scale' command. Should have 4 arguments.");
+    }
+  }
+
+  private void resize(ImageInfo image, int width, int height, String filterName,
+                      String destImageName) {
+    ResizeFilter filter = ResizeFilter.fromName(filterName);
+    if (filter == null) {
+      io.print("Unsupported resize filter: " + filterName);
+      return;
+    }
+    ImageInfo resizedImage;
+    try {
+      resizedImage = model.resizeImage(image, width, height, filter);
+    } catch (IllegalArgumentException e) {
+      io.print("Unable to resize the image.");
+      return;
+    }
+    imageList.put(destImageName, resizedImage);
+  }
+
+  private void createRotatedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1])) {
+        io.print("Rotation angle should be a number.");
+        return;
+      }
+      Interpolation interpolation = interpolation(words, 4);
+      if (interpolation == null) {
+        return;
+      }
+      ImageInfo rotatedImage;
+      try {
+        rotatedImage = model.rotateImage(image, Double.parseDouble(words[1]), interpolation);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to rotate the image.");
+        return;
+      }
+      imageList.put(words[3], rotatedImage);
+    } else {
+      io.print("Invalid 'rotate' command. Should have 4 arguments.");
+    }
+  }
+
+  private void createAffineImage(String[] words) {
+    if (words.length >= 9) {
+      ImageInfo image = imageList.get(words[7]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      double[] matrix = numbers(words, 1, 6);
+      if (matrix == null) {
+        io.print("Affine transformation values should be numbers.");
+        return;
+      }
+      Interpolation interpolation = interpolation(words, 9);
+      if (interpolation == null) {
+        return;
+      }
+      ImageInfo transformedImage;
+      try {
+        transformedImage = model.affineTransform(image, matrix, interpolation);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to transform the image.");
+        return;
+      }
+      imageList.put(words[8], transformedImage);
+    } else {
+      io.print("Invalid 'affine' command. Should have 9 arguments.");
+    }
+  }
+
+  private void createPerspectiveImage(String[] words) {
+    if (words.length >= 11) {
+      ImageInfo image = imageList.get(words[9]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      double[] corners = numbers(words, 1, 8);
+      if (corners == null) {
+        io.print("Corner coordinates should be numbers.");
+        return;
+      }
+      Interpolation interpolation = interpolation(words, 11);
+      if (interpolation == null) {
+        return;
+      }
+      ImageInfo transformedImage;
+      try {
+        transformedImage = model.perspectiveTransform(image, corners, interpolation);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to transform the image.");
+        return;
+      }
+      imageList.put(words[10], transformedImage);
+    } else {
+      io.print("Invalid 'perspective' command. Should have 11 arguments.");
+    }
+  }
+
+  private double[] numbers(String[] words, int from, int count) {
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      if (!isNumber(words[from + i])) {
+        return null;
+      }
+      values[i] = Double.parseDouble(words[from + i]);
+    }
+    return values;
+  }
+
+  private Interpolation interpolation(String[] words, int index) {
+    String name = words.length > index ? words[index] : "bilinear";
+    Interpolation interpolation = Interpolation.fromName(name);
+    if (interpolation == null) {
+      io.print("Unsupported interpolation: " + name);
+    }
+    return interpolation;
+  }
+
+  private void buildDistortionMap(String[] words) {
+    if (words.length >= 6) {
+      if (!isNumber(words[1]) || !isNumber(words[2])) {
+        io.print("Distortion coefficients should be numbers.");
+        return;
+      }
+      if (!isInteger(words[3]) || !isInteger(words[4])
+              || Integer.parseInt(words[3]) < 1 || Integer.parseInt(words[4]) < 1) {
+        io.print("Width and height should be positive integers.");
+        return;
+      }
+      DistortionMap map;
+      try {
+        map = model.buildDistortionMap(Integer.parseInt(words[3]),
+                Integer.parseInt(words[4]), Double.parseDouble(words[1]),
+                Double.parseDouble(words[2]));
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to build the distortion map.");
+        return;
+      }
+      distortionMapFile(words[5]).save(map, io);
+    } else {
+      io.print("Invalid 'remap-build' command. Should have 6 arguments.");
+    }
+  }
+
+  private void createRemappedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      DistortionMap map = distortionMapFile(words[1]).load(io);
+      if (map == null) {
+        return;
+      }
+      ImageInfo remappedImage;
+      try {
+        remappedImage = model.remapImage(image, map);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to remap the image.");
+        return;
+      }
+      imageList.put(words[3], remappedImage);
+    } else {
+      io.print("Invalid 'remap' command. Should have 4 arguments.");
+    }
+  }
+
+  private DistortionMapFile distortionMapFile(String path) {
+    return distortionMaps.computeIfAbsent(path, DistortionMapFile::new);
+  }
+
+  private void createGradedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      String name = words.length > 4 ? words[4] : "tetrahedral";
+      LutInterpolation interpolation = LutInterpolation.fromName(name);
+      if (interpolation == null) {
+        io.print("Unsupported interpolation: " + name);
+        return;
+      }
+      ColorLut lut = lookupTables.computeIfAbsent(words[1], CubeLutFile::new).load(io);
+      if (lut == null) {
+        return;
+      }
+      ImageInfo gradedImage;
+      try {
+        gradedImage = model.applyColorLut(image, lut, interpolation);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to apply the LUT to the image.");
+        return;
+      }
+      imageList.put(words[3], gradedImage);
+    } else {
+      io.print("Invalid 'apply-lut' command. Should have 4 arguments.");
+    }
+  }
+
+  private void convertColorSpace(String[] words) {
+    String command = words[0].toLowerCase();
+    if (words.length >= 3) {
+      ImageInfo image = imageList.get(words[1]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      boolean toSpace = command.startsWith("to-");
+      ColorSpace space = ColorSpace.fromName(command.substring(command.indexOf('-') + 1));
+      ImageInfo convertedImage;
+      try {
+        convertedImage = toSpace ? model.convertToColorSpace(image, space)
+                : model.convertFromColorSpace(image, space);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to convert the colour space of the image.");
+        return;
+      }
+      imageList.put(words[2], convertedImage);
+    } else {
+      io.print("Invalid '" + command + "' command. Should have 3 arguments.");
+    }
+  }
+
+  private void createHueShiftedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1])) {
+        io.print("Hue rotation should be a number of degrees.");
+        return;
+      }
+      double degrees = Double.parseDouble(words[1]);
+      ImageInfo shiftedImage;
+      int percentage;
+      try {
+        if (words.length > 4 && "split".equals(words[4])) {
+          percentage = validatePercentage(words[5]);
+          if (percentage == -1) {
+            return;
+          }
+          shiftedImage = model.splitHueShift(image, degrees, percentage);
+        } else {
+          shiftedImage = model.hueShift(image, degrees);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to shift the hue of the image.");
+        return;
+      }
+      imageList.put(words[3], shiftedImage);
+    } else {
+      io.print("Invalid 'hue-shift' command. Should have 4 arguments.");
+    }
+  }
+
+  private void createSaturatedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1]) || Double.parseDouble(words[1]) < 0
+              || Double.parseDouble(words[1]) > 256) {
+        io.print("Saturation factor should be a number between 0 and 256.");
+        return;
+      }
+      double factor = Double.parseDouble(words[1]);
+      ImageInfo saturatedImage;
+      int percentage;
+      try {
+        if (words.length > 4 && "split".equals(words[4])) {
+          percentage = validatePercentage(words[5]);
+          if (percentage == -1) {
+            return;
+          }
+          saturatedImage = model.splitSaturation(image, factor, percentage);
+        } else {
+          saturatedImage = model.adjustSaturation(image, factor);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to adjust the saturation of the image.");
+        return;
+      }
+      imageList.put(words[3], saturatedImage);
+    } else {
+      io.print("Invalid 'saturation' command. Should have 4 arguments.");
+    }
+  }
+
+  private void labelComponents(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || Integer.parseInt(words[1]) < 0
+              || Integer.parseInt(words[1]) > 255) {
+        io.print("Threshold should be an integer between 0 and 255.");
+        return;
+      }
+      ComponentLabeling labeling;
+      try {
+        labeling = model.labelComponents(image, Integer.parseInt(words[1]));
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to label the components of the image.");
+        return;
+      }
+      imageList.put(words[3], labeling.getLabelImage());
+      saveComponentStatistics(labeling, words[4]);
+    } else {
+      io.print("Invalid 'label-components' command. Should have 5 arguments.");
+    }
+  }
+
+  private void saveComponentStatistics(ComponentLabeling labeling, String path) {
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+      writer.write("label,area,left,top,right,bottom,centroid_x,centroid_y\n");
+      for (int label = 1; label <= labeling.getCount(); label++) {
+        int[] box = labeling.getBoundingBox(label);
+        double[] centroid = labeling.getCentroid(label);
+        writer.write(label + "," + labeling.getArea(label) + "," + box[0] + "," + box[1]
+                + "," + box[2] + "," + box[3] + ","
+                + String.format(Locale.ROOT, "%.2f,%.2f", centroid[0], centroid[1]) + "\n");
+      }
+    } catch (IOException e) {
+      io.print("Error saving the component statistics: " + e.getMessage());
+    }
+  }
+
+  private void createDistanceImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || Integer.parseInt(words[1]) < 0
+              || Integer.parseInt(words[1]) > 255) {
+        io.print("Threshold should be an integer between 0 and 255.");
+        return;
+      }
+      DistanceField field;
+      try {
+        field = model.distanceTransform(image, Integer.parseInt(words[1]));
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to compute the distance transform of the image.");
+        return;
+      }
+      imageList.put(words[3], field.getDistanceImage());
+      if (words.length >= 5) {
+        saveDistances(field, words[4]);
+      }
+    } else {
+      io.print("Invalid 'distance-transform' command. Should have 4 arguments.");
+    }
+  }
+
+  /**
+   * Saves the distances of a distance field as raw 32-bit little-endian
+   * floats, row by row, with no header.
+   */
+  private void saveDistances(DistanceField field, String path) {
+    try (RandomAccessFile output = new RandomAccessFile(path, "rw");
+         FileChannel channel = output.getChannel()) {
+      channel.truncate(0);
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+      FloatBuffer distances = field.getDistances();
+      while (distances.hasRemaining()) {
+        if (buffer.remaining() < 4) {
+          writeBuffer(channel, buffer);
+        }
+        buffer.putFloat(distances.get());
+      }
+      writeBuffer(channel, buffer);
+    } catch (IOException e) {
+      io.print("Error saving the distances: " + e.getMessage());
+    }
+  }
+
+  private static void writeBuffer(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void createQuantizedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || Integer.parseInt(words[1]) < 2
+              || Integer.parseInt(words[1]) > 256) {
+        io.print("Number of colours should be an integer between 2 and 256.");
+        return;
+      }
+      ImageInfo quantizedImage;
+      try {
+        quantizedImage = model.quantize(image, Integer.parseInt(words[1]));
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to quantize the image.");
+        return;
+      }
+      imageList.put(words[3], quantizedImage);
+    } else {
+      io.print("Invalid 'quantize' command. Should have 4 arguments.");
+    }
+  }
+
+  private void createStackedImage(String[] words) {
+    if (words.length >= 4) {
+      StackMode mode = StackMode.fromName(words[1]);
+      if (mode == null) {
+        io.print("Stacking mode should be mean, median or max.");
+        return;
+      }
+      List<Path> paths = matchingFiles(words[2]);
+      if (paths == null) {
+        return;
+      }
+      paths.removeIf(path -> FileType.fromExtension(extensionOf(path)) == null);
+      if (paths.isEmpty()) {
+        io.print("No images match the given pattern.");
+        return;
+      }
+      Iterable<ImageInfo> frames = () -> paths.stream().map(this::loadFrame).iterator();
+      ImageInfo stackedImage;
+      try {
+        stackedImage = model.stackImages(frames, mode);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to stack the images: " + e.getMessage());
+        return;
+      }
+      imageList.put(words[3], stackedImage);
+    } else {
+      io.print("Invalid 'stack' command. Should have 4 arguments.");
+    }
+  }
+
+  /**
+   * Lists the files matching a glob pattern, sorted by name. Only the file name
+   * part of the pattern may contain wildcards.
+   */
+  private List<Path> matchingFiles(String pattern) {
+    int separator = Math.max(pattern.lastIndexOf('/'), pattern.lastIndexOf(File.separatorChar));
+    Path directory = Paths.get(separator < 0 ? "." : pattern.substring(0, separator + 1));
+    List<Path> paths = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+            pattern.substring(separator + 1))) {
+      for (Path path : stream) {
+        if (Files.isRegularFile(path)) {
+          paths.add(path);
+        }
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      io.print("Unable to list the images: " + e.getMessage());
+      return null;
+    }
+    Collections.sort(paths);
+    return paths;
+  }
+
+  /**
+   * Loads a frame to stack. Frames are loaded while the model iterates over
+   * them, so a frame that cannot be loaded is reported to it as an
+   * IllegalArgumentException rather than as null or whatever the loader threw.
+   */
+  private ImageInfo loadFrame(Path path) {
+    ImageInfo frame;
+    try {
+      frame = ImageLoaderSaverFactory.createImageLoaderSaver(extensionOf(path))
+              .loadImage(path.toString(), io);
+    } catch (RuntimeException e) {
+      frame = null;
+    }
+    if (frame == null) {
+      throw new IllegalArgumentException("Unable to load " + path.getFileName() + ".");
+    }
+    return frame;
+  }
+
+  private static String extensionOf(Path path) {
+    String name = path.toString();
+    return name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+  }
+
+  private void createBlendedImage(String[] words) {
+    if (words.length >= 6) {
+      BlendMode mode = BlendMode.fromName(words[1]);
+      if (mode == null) {
+        io.print("Blend mode should be normal, multiply, screen, overlay, add or difference.");
+        return;
+      }
+      if (!isNumber(words[2]) || Double.parseDouble(words[2]) < 0
+              || Double.parseDouble(words[2]) > 1) {
+        io.print("Opacity should be a number between 0 and 1.");
+        return;
+      }
+      ImageInfo base = imageList.get(words[3]);
+      ImageInfo overlay = imageList.get(words[4]);
+      if (base == null || overlay == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      ImageInfo mask = null;
+      int offsetX = 0;
+      int offsetY = 0;
+      for (int i = 6; i < words.length; i++) {
+        if ("mask".equals(words[i]) && i + 1 < words.length) {
+          mask = imageList.get(words[++i]);
+          if (mask == null) {
+            io.print("Wrong image name provided.");
+            return;
+          }
+        } else if ("offset".equals(words[i]) && i + 2 < words.length
+                && isInteger(words[i + 1]) && isInteger(words[i + 2])) {
+          offsetX = Integer.parseInt(words[++i]);
+          offsetY = Integer.parseInt(words[++i]);
+        } else {
+          io.print("Invalid 'blend' options. Should be mask mask-name and/or offset x y.");
+          return;
+        }
+      }
+      ImageInfo blendedImage;
+      try {
+        blendedImage = model.blendImages(base, overlay, mode, Double.parseDouble(words[2]),
+                mask, offsetX, offsetY);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to blend the images.");
+        return;
+      }
+      imageList.put(words[5], blendedImage);
+    } else {
+      io.print("Invalid 'blend' command. Should have 6 arguments.");
+    }
+  }
+
+  private void createCarvedImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || !isInteger(words[2]) || Integer.parseInt(words[1]) < 1
+              || Integer.parseInt(words[2]) < 1) {
+        io.print("Width and height should be positive integers.");
+        return;
+      }
+      int width = Integer.parseInt(words[1]);
+      int height = Integer.parseInt(words[2]);
+      if (width > image.getWidth() || height > image.getHeight()) {
+        io.print("Width and height should not exceed those of the image.");
+        return;
+      }
+      ImageInfo carvedImage;
+      try {
+        carvedImage = model.seamCarve(image, width, height);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to carve the image.");
+        return;
+      }
+      imageList.put(words[4], carvedImage);
+    } else {
+      io.print("Invalid 'seam-carve' command. Should have 5 arguments.");
+    }
+  }
+
+  private void compareImages(String[] words) {
+    if (words.length >= 3) {
+      ImageInfo reference = imageList.get(words[1]);
+      ImageInfo image = imageList.get(words[2]);
+      if (reference == null || image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (reference.getWidth() != image.getWidth()
+              || reference.getHeight() != image.getHeight()) {
+        io.print("Images should have the same size.");
+        return;
+      }
+      ImageMetrics metrics;
+      try {
+        metrics = model.compareImages(reference, image);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to compare the images.");
+        return;
+      }
+      String[] channels = {"red", "green", "blue"};
+      for (int k = 0; k < 3; k++) {
+        io.print(String.format(Locale.ROOT, "%s: MSE %.4f, PSNR %.2f dB, SSIM %.4f",
+                channels[k], metrics.getMse(k), metrics.getPsnr(k), metrics.getSsim(k)));
+      }
+    } else {
+      io.print("Invalid 'compare' command. Should have 3 arguments.");
+    }
+  }
+
+  private void printPerceptualHash(String[] words) {
+    if (words.length >= 2) {
+      ImageInfo image = imageList.get(words[1]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      long hash;
+      try {
+        hash = model.perceptualHash(image);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to hash the image.");
+        return;
+      }
+      io.print(String.format("%016x", hash));
+    } else {
+      io.print("Invalid 'phash' command. Should have 2 arguments.");
+    }
+  }
+
+  /**
+   * Reports the images of a directory whose perceptual hash is within a
+   * distance of that of an earlier image, by name. Images are decoded at a
+   * reduced size and hashed in parallel; nothing is deleted.
+   */
+  private void findDuplicates(String[] words) {
+    if (words.length >= 2) {
+      int maxDistance = DEDUPE_DISTANCE;
+      if (words.length >= 3) {
+        if (!isInteger(words[2]) || Integer.parseInt(words[2]) < 0
+                || Integer.parseInt(words[2]) > 64) {
+          io.print("Distance should be an integer between 0 and 64.");
+          return;
+        }
+        maxDistance = Integer.parseInt(words[2]);
+      }
+      if (!Files.isDirectory(Paths.get(words[1]))) {
+        io.print("Directory not found at the given path.");
+        return;
+      }
+      List<Path> paths = matchingFiles(words[1] + "/" + IMAGE_GLOB);
+      if (paths == null) {
+        return;
+      }
+      List<SummarizedFile<Long>> files = paths.parallelStream()
+              .map(path -> summarizeFile(path, model::perceptualHash, "hash"))
+              .collect(Collectors.toList());
+      HashIndex<Path> index = new HashIndex<>();
+      int duplicates = 0;
+      for (SummarizedFile<Long> file : files) {
+        file.messages.getOutputLines().forEach(io::print);
+        if (file.summary == null) {
+          continue;
+        }
+        List<HashIndex.Match<Path>> matches = index.search(file.summary, maxDistance);
+        if (matches.isEmpty()) {
+          index.add(file.summary, file.path);
+        } else {
+          duplicates++;
+          io.print(String.format("%s is a near-duplicate of %s (distance %d)",
+                  file.path.getFileName(), matches.get(0).getValue().getFileName(),
+                  matches.get(0).getDistance()));
+        }
+      }
+      io.print(String.format("%d near-duplicates among %d images.", duplicates,
+              index.size() + duplicates));
+    } else {
+      io.print("Invalid 'dedupe' command. Should have 2 arguments.");
+    }
+  }
+
+  /**
+   * Loads an image at a reduced size and summarizes it, collecting the
+   * messages so that files can be summarized in parallel.
+   */
+  private <T> SummarizedFile<T> summarizeFile(Path path, Function<ImageInfo, T> summarize,
+                                              String action) {
+    BufferedUserIO messages = new BufferedUserIO();
+    T summary = null;
+    try {
+      ImageInfo image = ImageLoaderSaverFactory.createImageLoaderSaver(extensionOf(path))
+              .loadImage(path.toString(), PREVIEW_SIZE, messages);
+      if (image != null) {
+        summary = summarize.apply(image);
+      }
+    } catch (RuntimeException e) {
+      // A malformed file may make its loader fail in any way, which must not
+      // end the scan of the other files.
+      messages.print("Unable to " + action + " " + path.getFileName() + ".");
+    }
+    return new SummarizedFile<>(path, summary, messages);
+  }
+
+  private void createAutoLevelsImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1]) || !isNumber(words[2])) {
+        io.print("Low and high percentiles should be numbers.");
+        return;
+      }
+      double low = Double.parseDouble(words[1]);
+      double high = Double.parseDouble(words[2]);
+      if (!(low >= 0 && low < high && high <= 100)) {
+        io.print("Percentiles should satisfy 0 <= low < high <= 100.");
+        return;
+      }
+      ImageInfo levelAdjustedImage;
+      try {
+        levelAdjustedImage = model.autoLevels(image, low, high);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to perform level adjustment on the image.");
+        return;
+      }
+      imageList.put(words[4], levelAdjustedImage);
+    } else {
+      io.print("Invalid 'auto-levels' command. Should have 5 arguments.");
+    }
+  }
+
+  private void createHistogramMatchedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[1]);
+      ImageInfo reference = imageList.get(words[2]);
+      if (image == null || reference == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      ImageInfo matchedImage;
+      int percentage;
+      try {
+        if (words.length > 4 && "split".equals(words[4])) {
+          percentage = validatePercentage(words[5]);
+          if (percentage == -1) {
+            return;
+          }
+          matchedImage = model.splitMatchHistogram(image, reference, percentage);
+        } else {
+          matchedImage = model.matchHistogram(image, reference);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to match the histogram of the image.");
+        return;
+      }
+      imageList.put(words[3], matchedImage);
+    } else {
+      io.print("Invalid 'match-histogram' command. Should have 4 arguments.");
+    }
+  }
+
+  private void createGuidedFilteredImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[1]) || Integer.parseInt(words[1]) < 1) {
+        io.print("Radius should be a positive integer.");
+        return;
+      }
+      if (!isNumber(words[2]) || !(Double.parseDouble(words[2]) > 0)) {
+        io.print("Eps should be a positive number.");
+        return;
+      }
+      int radius = Integer.parseInt(words[1]);
+      double eps = Double.parseDouble(words[2]);
+      ImageInfo filteredImage;
+      int percentage;
+      try {
+        if (words.length > 5 && "split".equals(words[5])) {
+          percentage = validatePercentage(words[6]);
+          if (percentage == -1) {
+            return;
+          }
+          filteredImage = model.splitGuidedFilter(image, radius, eps, percentage);
+        } else {
+          filteredImage = model.guidedFilter(image, radius, eps);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to filter the image.");
+        return;
+      }
+      imageList.put(words[4], filteredImage);
+    } else {
+      io.print("Invalid 'guided-filter' command. Should have 5 arguments.");
+    }
+  }
+
+  private void createDetailEnhancedImage(String[] words) {
+    if (words.length >= 5) {
+      ImageInfo image = imageList.get(words[3]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1]) || !(Double.parseDouble(words[1]) >= 0)
+              || Double.parseDouble(words[1]) > 10) {
+        io.print("Amount should be a number between 0 and 10.");
+        return;
+      }
+      if (!isInteger(words[2]) || Integer.parseInt(words[2]) < 1) {
+        io.print("Radius should be a positive integer.");
+        return;
+      }
+      double amount = Double.parseDouble(words[1]);
+      int radius = Integer.parseInt(words[2]);
+      ImageInfo enhancedImage;
+      int percentage;
+      try {
+        if (words.length > 5 && "split".equals(words[5])) {
+          percentage = validatePercentage(words[6]);
+          if (percentage == -1) {
+            return;
+          }
+          enhancedImage = model.splitDetailEnhance(image, amount, radius, percentage);
+        } else {
+          enhancedImage = model.detailEnhance(image, amount, radius);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to enhance the image.");
+        return;
+      }
+      imageList.put(words[4], enhancedImage);
+    } else {
+      io.print("Invalid 'detail-enhance' command. Should have 5 arguments.");
+    }
+  }
+
+  private void createToneMappedImage(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isNumber(words[1]) || !(Double.parseDouble(words[1]) >= 0)
+              || Double.parseDouble(words[1]) > 1) {
+        io.print("Strength should be a number between 0 and 1.");
+        return;
+      }
+      double strength = Double.parseDouble(words[1]);
+      ImageInfo toneMappedImage;
+      int percentage;
+      try {
+        if (words.length > 4 && "split".equals(words[4])) {
+          percentage = validatePercentage(words[5]);
+          if (percentage == -1) {
+            return;
+          }
+          toneMappedImage = model.splitToneMap(image, strength, percentage);
+        } else {
+          toneMappedImage = model.toneMap(image, strength);
+        }
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to tone-map the image.");
+        return;
+      }
+      imageList.put(words[3], toneMappedImage);
+    } else {
+      io.print("Invalid 'tone-map' command. Should have 4 arguments.");
+    }
+  }
+
+  private void findTemplate(String[] words) {
+    if (words.length >= 3) {
+      ImageInfo image = imageList.get(words[1]);
+      ImageInfo template = imageList.get(words[2]);
+      if (image == null || template == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      int count = 1;
+      if (words.length >= 4) {
+        if (!isInteger(words[3]) || Integer.parseInt(words[3]) < 1) {
+          io.print("Count should be a positive integer.");
+          return;
+        }
+        count = Integer.parseInt(words[3]);
+      }
+      if (template.getWidth() > image.getWidth() || template.getHeight() > image.getHeight()) {
+        io.print("Template should not be larger than the image.");
+        return;
+      }
+      List<TemplateMatch> matches;
+      try {
+        matches = model.findTemplate(image, template, count);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to find the template: " + e.getMessage());
+        return;
+      }
+      if (matches.isEmpty()) {
+        io.print("No match found.");
+      }
+      for (int m = 0; m < matches.size(); m++) {
+        TemplateMatch match = matches.get(m);
+        io.print(String.format(Locale.ROOT, "Match %d: row %d, column %d, score %.4f", m + 1,
+                match.getRow(), match.getColumn(), match.getScore()));
+      }
+    } else {
+      io.print("Invalid 'find-template' command. Should have 3 arguments.");
+    }
+  }
+
+  private void handleImageIndex(String[] words) {
+    if (words.length >= 2 && "build".equals(words[1])) {
+      buildImageIndex(words);
+    } else if (words.length >= 2 && "query".equals(words[1])) {
+      queryImageIndex(words);
+    } else {
+      io.print("Invalid 'index' command. Should be 'index build' or 'index query'.");
+    }
+  }
+
+  /**
+   * Indexes the colour signatures of the images of a directory, decoded at a
+   * reduced size in parallel, into an index file in the directory or at the
+   * given path.
+   */
+  private void buildImageIndex(String[] words) {
+    if (words.length >= 3) {
+      if (!Files.isDirectory(Paths.get(words[2]))) {
+        io.print("Directory not found at the given path.");
+        return;
+      }
+      String indexPath = words.length >= 4 ? words[3]
+              : Paths.get(words[2], INDEX_FILE_NAME).toString();
+      List<Path> paths = matchingFiles(words[2] + "/" + IMAGE_GLOB);
+      if (paths == null) {
+        return;
+      }
+      List<SummarizedFile<ColorSignature>> files = paths.parallelStream()
+              .map(path -> summarizeFile(path, model::colorSignature, "index"))
+              .collect(Collectors.toList());
+      List<ColorSignature> signatures = new ArrayList<>();
+      List<String> imagePaths = new ArrayList<>();
+      for (SummarizedFile<ColorSignature> file : files) {
+        file.messages.getOutputLines().forEach(io::print);
+        if (file.summary != null) {
+          signatures.add(file.summary);
+          imagePaths.add(file.path.toString());
+        }
+      }
+      imageIndexFile(indexPath).save(SimilarityIndex.build(signatures), imagePaths, io);
+      lastImageIndex = indexPath;
+      io.print(String.format("Indexed %d images.", signatures.size()));
+    } else {
+      io.print("Invalid 'index build' command. Should have 3 arguments.");
+    }
+  }
+
+  /**
+   * Prints the images of an index whose colours are nearest to those of an
+   * image, from the given index file or the one last built or queried.
+   */
+  private void queryImageIndex(String[] words) {
+    if (words.length >= 4) {
+      ImageInfo image = imageList.get(words[2]);
+      if (image == null) {
+        io.print("Wrong image name provided.");
+        return;
+      }
+      if (!isInteger(words[3]) || Integer.parseInt(words[3]) < 1) {
+        io.print("Count should be a positive integer.");
+        return;
+      }
+      int count = Integer.parseInt(words[3]);
+      String indexPath = words.length >= 5 ? words[4] : lastImageIndex;
+      if (indexPath == null) {
+        io.print("No image index given or built.");
+        return;
+      }
+      ImageIndexFile indexFile = imageIndexFile(indexPath);
+      SimilarityIndex index = indexFile.load(io);
+      if (index == null) {
+        return;
+      }
+      lastImageIndex = indexPath;
+      List<SimilarityIndex.Match> matches;
+      try {
+        matches = index.nearest(model.colorSignature(image), count);
+      } catch (IllegalArgumentException e) {
+        io.print("Unable to query the image index.");
+        return;
+      }
+      if (matches.isEmpty()) {
+        io.print("No match found.");
+      }
+      for (int m = 0; m < matches.size(); m++) {
+        SimilarityIndex.Match match = matches.get(m);
+        io.print(String.format("%d. %s (distance %d)", m + 1,
+                indexFile.getImagePath(match.getId()), match.getDistance()));
+      }
+    } else {
+      io.print("Invalid 'index query' command. Should have 4 arguments.");
+    }
+  }
+
+  private ImageIndexFile imageIndexFile(String path) {
+    return imageIndexes.computeIfAbsent(path, ImageIndexFile::new);
+  }
+
+  /**
+   * A file with its summary, or null if it could not be summarized, and the
+   * messages printed while summarizing it.
+   */
+  private static class SummarizedFile<T> {
+    private final Path path;
+    private final T summary;
+    private final BufferedUserIO messages;
+
+    SummarizedFile(Path path, T summary, BufferedUserIO messages) {
+      this.path = path;
+      this.summary = summary;
+      this.messages = messages;
+    }
+  }
 }
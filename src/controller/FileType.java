@@ -6,7 +6,8 @@ package controller;
 public enum FileType {
   PPM,
   JPEG,
-  PNG;
+  PNG,
+  GIF;
 
   /**
    * Returns corresponding enum value for the file extension.
@@ -24,6 +25,8 @@ public enum FileType {
           return JPEG;
         case "png":
           return PNG;
+        case "gif":
+          return GIF;
         default:
           return null;
       }
@@ -0,0 +1,148 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.SimilarityIndex;
+
+/**
+ * This class loads and saves indexes of the colour signatures of images. An
+ * index file starts with a header of three ints (a magic number, the format
+ * version and the number of images), followed by the records of a
+ * SimilarityIndex and then the path of every image as an int length and its
+ * UTF-8 bytes. Loading memory-maps the records instead of reading them, and
+ * the mapping is kept until the file changes, so a query only touches the
+ * parts of the index it needs and repeated queries read nothing again.
+ */
+class ImageIndexFile {
+  private static final int MAGIC = 0x49494458;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 12;
+
+  private final String path;
+  private SimilarityIndex index;
+  private List<String> imagePaths;
+  private long lastModified;
+
+  /**
+   * Creates an index file for the given path.
+   *
+   * @param path The path of the index file.
+   */
+  ImageIndexFile(String path) {
+    this.path = path;
+  }
+
+  /**
+   * Loads the index from the file, reusing the previous mapping if the file
+   * has not changed since.
+   *
+   * @param io The user input/output interface for error messages.
+   * @return The index, or null if it cannot be loaded.
+   */
+  SimilarityIndex load(UserIO io) {
+    File file = new File(path);
+    if (!file.isFile()) {
+      io.print("File not found at the given path");
+      return null;
+    }
+    if (index != null && file.lastModified() == lastModified) {
+      return index;
+    }
+    try (RandomAccessFile input = new RandomAccessFile(file, "r");
+         FileChannel channel = input.getChannel()) {
+      if (input.length() < HEADER_BYTES || input.readInt() != MAGIC
+              || input.readInt() != VERSION) {
+        io.print("Invalid image index file.");
+        return null;
+      }
+      int count = input.readInt();
+      long size = (long) count * SimilarityIndex.RECORD_BYTES;
+      if (count < 0 || channel.size() < HEADER_BYTES + size) {
+        io.print("Invalid image index file.");
+        return null;
+      }
+      SimilarityIndex loaded = SimilarityIndex.wrap(
+              channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, size));
+      ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + size,
+              channel.size() - HEADER_BYTES - size);
+      List<String> loadedPaths = new ArrayList<>(count);
+      for (int id = 0; id < count; id++) {
+        byte[] bytes = new byte[table.getInt()];
+        table.get(bytes);
+        loadedPaths.add(new String(bytes, StandardCharsets.UTF_8));
+      }
+      index = loaded;
+      imagePaths = loadedPaths;
+      lastModified = file.lastModified();
+      return index;
+    } catch (IOException | IllegalArgumentException | BufferUnderflowException
+             | NegativeArraySizeException e) {
+      io.print("Error reading the image index: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Gets the path of an image in the loaded index.
+   *
+   * @param id The number of the image in the index.
+   * @return The path of the image.
+   */
+  String getImagePath(int id) {
+    return imagePaths.get(id);
+  }
+
+  /**
+   * Saves an index to the file. The saved index is kept as the loaded one.
+   *
+   * @param similarityIndex The index to save.
+   * @param paths           The path of every image in the index, in order.
+   * @param io              The user input/output interface for error messages.
+   */
+  void save(SimilarityIndex similarityIndex, List<String> paths, UserIO io) {
+    if (similarityIndex == null) {
+      return;
+    }
+    try (RandomAccessFile output = new RandomAccessFile(path, "rw");
+         FileChannel channel = output.getChannel()) {
+      channel.truncate(0);
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(similarityIndex.size());
+      write(channel, buffer);
+      ByteBuffer records = similarityIndex.getRecords();
+      while (records.hasRemaining()) {
+        channel.write(records);
+      }
+      for (String imagePath : paths) {
+        byte[] bytes = imagePath.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < 4 + bytes.length) {
+          write(channel, buffer);
+        }
+        buffer.putInt(bytes.length).put(bytes);
+      }
+      write(channel, buffer);
+    } catch (IOException e) {
+      io.print("Error saving the image index: " + e.getMessage());
+      return;
+    }
+    index = similarityIndex;
+    imagePaths = new ArrayList<>(paths);
+    lastModified = new File(path).lastModified();
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
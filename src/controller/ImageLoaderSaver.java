@@ -17,6 +17,20 @@ interface ImageLoaderSaver {
    */
   ImageInfo loadImage(String imagePath, UserIO io);
 
+  /**
+   * Loads a reduced copy of an image, for uses such as hashing that do not
+   * need every pixel. Loaders that can skip pixels while decoding keep only
+   * every n-th row and column such that both sides keep at least the given
+   * number of pixels; the others load the full image.
+   *
+   * @param imagePath The path to the image file to be loaded.
+   * @param minSize   The smallest number of pixels to keep on either side.
+   * @return The loaded image, or null if it could not be loaded.
+   */
+  default ImageInfo loadImage(String imagePath, int minSize, UserIO io) {
+    return loadImage(imagePath, io);
+  }
+
   /**
    * Saves image data to a file at the specified destination path.
    *
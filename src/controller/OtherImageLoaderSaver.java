@@ -1,20 +1,26 @@
 package controller;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import model.ImageData;
 import model.ImageInfo;
 
 /**
  * This class is an implementation of the ImageLoaderSaver interface for loading and saving
- * images using the standard Java ImageIO library.
+ * images using the standard Java ImageIO library. Indexed images are saved with their
+ * palette to PNG and GIF files, and as RGB to other formats.
  */
 class OtherImageLoaderSaver implements ImageLoaderSaver {
   @Override
@@ -26,6 +32,10 @@ class OtherImageLoaderSaver implements ImageLoaderSaver {
         return null;
       }
       BufferedImage image = ImageIO.read(file);
+      if (image == null) {
+        io.print("Error loading the image " + file.getName() + ": unsupported format.");
+        return null;
+      }
       return new ImageData(image);
     } catch (FileNotFoundException e) {
       io.print("File not found at the given path");
@@ -36,6 +46,34 @@ class OtherImageLoaderSaver implements ImageLoaderSaver {
     }
   }
 
+  @Override
+  public ImageInfo loadImage(String imagePath, int minSize, UserIO io) {
+    File file = new File(imagePath);
+    if (!file.exists()) {
+      io.print("File not found at the given path.");
+      return null;
+    }
+    try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+      Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+      if (readers == null || !readers.hasNext()) {
+        io.print("Error loading the image " + file.getName() + ": unsupported format.");
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int step = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / minSize);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(step, step, 0, 0);
+        return new ImageData(reader.read(0, param));
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      io.print("Error loading the image: " + e.getMessage());
+      return null;
+    }
+  }
 
   @Override
   public void saveImage(String destinationFilePath, ImageInfo imageData, UserIO io) {
@@ -47,6 +85,10 @@ class OtherImageLoaderSaver implements ImageLoaderSaver {
     } else {
       return;
     }
+    if (image.getColorModel() instanceof IndexColorModel
+            && !fileExtension.equals("png") && !fileExtension.equals("gif")) {
+      image = toRgb(image);
+    }
     try (OutputStream os = new FileOutputStream(destinationFilePath)) {
       ImageIO.write(image, fileExtension, os);
     } catch (FileNotFoundException e) {
@@ -55,4 +97,17 @@ class OtherImageLoaderSaver implements ImageLoaderSaver {
       io.print("Error saving the image.");
     }
   }
+
+  /**
+   * Copies an indexed image into an RGB image, for formats such as JPEG that
+   * cannot store a palette.
+   */
+  private static BufferedImage toRgb(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    rgb.setRGB(0, 0, width, height, image.getRGB(0, 0, width, height, null, 0, width),
+            0, width);
+    return rgb;
+  }
 }
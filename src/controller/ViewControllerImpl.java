@@ -1,12 +1,19 @@
 package controller;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import model.EnhancedImageProcessingModel;
 import model.ImageInfo;
+import model.ImagePyramid;
 import view.ImageView;
 
 /**
@@ -14,12 +21,19 @@ import view.ImageView;
  * executing commands from the GUI.
  */
 public class ViewControllerImpl extends EnhancedController implements ControllerForGUI {
+  private static final long DISPLAY_PIXELS = 4000000L;
+  private static final long PREVIEW_PIXELS = 1000000L;
+  private static final long HISTOGRAM_PIXELS = 1000000L;
 
   ImageView view;
   String imageName;
 
   boolean imageSaveTracker;
 
+  private final Map<String, ImagePyramid> pyramids;
+  private final Map<String, ImageInfo> histogramSources;
+  private final Map<String, BufferedImage> histograms;
+  private final Set<String> previewNames;
 
   /**
    * Constructs a controller object with the given io, model, view and user input.
@@ -31,6 +45,10 @@ public class ViewControllerImpl extends EnhancedController implements Controller
   public ViewControllerImpl(UserIO io, EnhancedImageProcessingModel model,
                             String[] args, ImageView view) {
     super(io, model, args);
+    this.pyramids = new HashMap<>();
+    this.histogramSources = new HashMap<>();
+    this.histograms = new HashMap<>();
+    this.previewNames = new HashSet<>();
     this.view = view;
     this.view.setFeatures(this);
     imageName = "";
@@ -52,8 +70,8 @@ public class ViewControllerImpl extends EnhancedController implements Controller
     imageName = extractImageName(fileLocation);
     String command = "load " + fileLocation + " " + imageName;
     executeLine(command);
-    view.setImage(imageList.get(imageName).convertPixelDataToBufferedImage(),
-            histogram(imageName).convertPixelDataToBufferedImage());
+    showImage(imageName);
+    discardPreviews();
     imageSaveTracker = true;
     view.enableButtons();
   }
@@ -77,9 +95,9 @@ public class ViewControllerImpl extends EnhancedController implements Controller
     String newImageName = imageNameGenerator.apply(imageName);
     String command = component + " " + imageName + " " + newImageName;
     executeLine(command);
-    view.setImage(imageList.get(newImageName).convertPixelDataToBufferedImage(),
-            histogram(newImageName).convertPixelDataToBufferedImage());
+    showImage(newImageName);
     imageName = newImageName;
+    discardPreviews();
     imageSaveTracker = false;
   }
 
@@ -117,27 +135,22 @@ public class ViewControllerImpl extends EnhancedController implements Controller
     String command = "compress " + compressionFactor + " " + imageName
             + " " + compressedImageName;
     executeLine(command);
-    view.setImage(imageList.get(compressedImageName).convertPixelDataToBufferedImage(),
-            histogram(compressedImageName).convertPixelDataToBufferedImage());
+    showImage(compressedImageName);
     imageName = compressedImageName;
+    discardPreviews();
   }
 
   private void executeOperation(BiFunction<String, Integer,
           String> operation, int defaultFactor) {
-    String resultImageName = operation.apply(imageName, defaultFactor);
-    int choice = view.showSplitImageOperationMenu(
-            imageList.get(resultImageName)
-                    .convertPixelDataToBufferedImage(),
-            histogram(resultImageName).convertPixelDataToBufferedImage());
+    String previewName = levelFor(imageName, PREVIEW_PIXELS);
+    String resultImageName = operation.apply(previewName, defaultFactor);
+    previewNames.add(resultImageName);
+    int choice = showPreview(resultImageName);
     int previousChoice = choice;
 
     while (choice >= 0 && choice <= 100) {
-      resultImageName = operation.apply(imageName, choice);
-      choice = view.showSplitImageOperationMenu(
-              imageList.get(resultImageName)
-                      .convertPixelDataToBufferedImage(),
-              histogram(resultImageName).
-                      convertPixelDataToBufferedImage());
+      resultImageName = operation.apply(previewName, choice);
+      choice = showPreview(resultImageName);
 
       if (choice == -2) {
         choice = previousChoice;
@@ -147,15 +160,12 @@ public class ViewControllerImpl extends EnhancedController implements Controller
     }
     if (choice > 100) {
       resultImageName = operation.apply(imageName, 100);
-      view.setImage(imageList.get(resultImageName).
-                      convertPixelDataToBufferedImage(),
-              histogram(resultImageName).
-                      convertPixelDataToBufferedImage());
+      showImage(resultImageName);
       imageName = resultImageName;
     } else {
-      view.setImage(imageList.get(imageName).convertPixelDataToBufferedImage(),
-              histogram(imageName).convertPixelDataToBufferedImage());
+      showImage(imageName);
     }
+    discardPreviews();
     imageSaveTracker = false;
   }
 
@@ -246,11 +256,11 @@ public class ViewControllerImpl extends EnhancedController implements Controller
     return fileName;
   }
 
-  private String executeLevelAdjustment(int shadow, int mid,
+  private String executeLevelAdjustment(String name, int shadow, int mid,
                                         int highlight, int blurFactor) {
-    String levelAdjustedImageName = "levelAdjusted" + imageName;
+    String levelAdjustedImageName = "levelAdjusted" + name;
     String command = "levels-adjust " + shadow + " " + mid + " " +
-            highlight + " " + imageName
+            highlight + " " + name
             + " " + levelAdjustedImageName + " " + "split" + " " + blurFactor;
     executeLine(command);
     return levelAdjustedImageName;
@@ -262,19 +272,16 @@ public class ViewControllerImpl extends EnhancedController implements Controller
     if (levels[0] == -1) {
       return;
     }
-    String levelAdjustedImageName = executeLevelAdjustment(levels[0], levels[1],
-            levels[2], 100);
-    int choice = view.showSplitImageOperationMenu(imageList.
-                    get(levelAdjustedImageName
-            ).convertPixelDataToBufferedImage(),
-            histogram(levelAdjustedImageName).convertPixelDataToBufferedImage());
+    String previewName = levelFor(imageName, PREVIEW_PIXELS);
+    String levelAdjustedImageName = executeLevelAdjustment(previewName, levels[0],
+            levels[1], levels[2], 100);
+    previewNames.add(levelAdjustedImageName);
+    int choice = showPreview(levelAdjustedImageName);
     int previousChoice = choice;
     while (choice >= 0 && choice <= 100) {
-      levelAdjustedImageName = executeLevelAdjustment(levels[0], levels[1],
-              levels[2], choice);
-      choice = view.showSplitImageOperationMenu(imageList.get(levelAdjustedImageName
-              ).convertPixelDataToBufferedImage(),
-              histogram(levelAdjustedImageName).convertPixelDataToBufferedImage());
+      levelAdjustedImageName = executeLevelAdjustment(previewName, levels[0],
+              levels[1], levels[2], choice);
+      choice = showPreview(levelAdjustedImageName);
       if (choice == -2) {
         choice = previousChoice;
       }
@@ -283,24 +290,92 @@ public class ViewControllerImpl extends EnhancedController implements Controller
       }
     }
     if (choice > 100) {
-      levelAdjustedImageName = executeLevelAdjustment(levels[0], levels[1],
-              levels[2], 100);
-      view.setImage(imageList.get(levelAdjustedImageName).
-                      convertPixelDataToBufferedImage(),
-              histogram(levelAdjustedImageName).convertPixelDataToBufferedImage());
+      levelAdjustedImageName = executeLevelAdjustment(imageName, levels[0],
+              levels[1], levels[2], 100);
+      showImage(levelAdjustedImageName);
       imageName = levelAdjustedImageName;
     }
     else {
-      view.setImage(imageList.get(imageName).convertPixelDataToBufferedImage(),
-              histogram(imageName).convertPixelDataToBufferedImage());
+      showImage(imageName);
     }
+    discardPreviews();
     imageSaveTracker = false;
   }
 
-  private ImageInfo histogram(String imageName) {
-    String histogramName = imageName + "Histogram";
-    String command = "histogram " + imageName + " " + histogramName;
+  /**
+   * Gets the histogram graph of an image, drawing it only if the image under
+   * the name has changed since it was last drawn. Images larger than the
+   * preview size are counted on a pyramid level.
+   */
+  private BufferedImage histogram(String name) {
+    ImageInfo image = imageList.get(name);
+    BufferedImage histogram = histograms.get(name);
+    if (histogram != null && histogramSources.get(name) == image) {
+      return histogram;
+    }
+    String histogramName = name + "Histogram";
+    String command = "histogram " + levelFor(name, HISTOGRAM_PIXELS) + " " + histogramName;
     executeLine(command);
-    return imageList.get(histogramName);
+    histogram = imageList.remove(histogramName).convertPixelDataToBufferedImage();
+    histogramSources.put(name, image);
+    histograms.put(name, histogram);
+    return histogram;
+  }
+
+  private void showImage(String name) {
+    view.setImage(pyramid(name).bestLevelFor(DISPLAY_PIXELS)
+                    .convertPixelDataToBufferedImage(),
+            histogram(name));
+  }
+
+  private int showPreview(String name) {
+    return view.showSplitImageOperationMenu(
+            imageList.get(name).convertPixelDataToBufferedImage(),
+            histogram(name));
+  }
+
+  private ImagePyramid pyramid(String name) {
+    ImageInfo image = imageList.get(name);
+    ImagePyramid pyramid = pyramids.get(name);
+    if (pyramid == null || pyramid.getBase() != image) {
+      pyramid = new ImagePyramid(image);
+      pyramids.put(name, pyramid);
+    }
+    return pyramid;
+  }
+
+  /**
+   * Puts the smallest pyramid level of an image that has at least the given
+   * number of pixels in the image list and returns its name. Images that are
+   * already small enough are used as they are.
+   */
+  private String levelFor(String name, long pixels) {
+    ImageInfo level = pyramid(name).bestLevelFor(pixels);
+    if (level == imageList.get(name)) {
+      return name;
+    }
+    String levelName = name + "Level";
+    imageList.put(levelName, level);
+    previewNames.add(levelName);
+    return levelName;
+  }
+
+  /**
+   * Removes the pyramid levels and preview results that the last action put
+   * in the image list for running commands on them, and drops the pyramids
+   * and histograms of every image but the current one, the only one that is
+   * shown again.
+   */
+  private void discardPreviews() {
+    for (String name : previewNames) {
+      if (!name.equals(imageName)) {
+        imageList.remove(name);
+      }
+    }
+    previewNames.clear();
+    Set<String> current = Collections.singleton(imageName);
+    pyramids.keySet().retainAll(current);
+    histogramSources.keySet().retainAll(current);
+    histograms.keySet().retainAll(current);
   }
 }
@@ -0,0 +1,136 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The AdaptiveEqualizer class performs contrast-limited adaptive histogram
+ * equalization (CLAHE). The image is divided into a grid of tiles, each tile
+ * gets its own clipped and equalized lookup table per channel, and every pixel
+ * is mapped through a bilinear blend of the tables of the four nearest tiles.
+ */
+class AdaptiveEqualizer {
+
+  /**
+   * Equalizes an image using a grid of tiles x tiles contextual regions.
+   *
+   * @param image     The image to equalize.
+   * @param tiles     The number of tiles along each side of the image.
+   * @param clipLimit The clip limit as a multiple of the average bin count
+   *                  of a tile; 1 gives no contrast enhancement.
+   * @return A new ImageInfo with the equalized image.
+   */
+  static ImageInfo equalize(ImageInfo image, int tiles, double clipLimit) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int tilesX = Math.min(tiles, width);
+    int tilesY = Math.min(tiles, height);
+    int[][] planes = ModelUtil.toPlanes(image);
+
+    int[] tileStartX = tileStarts(width, tilesX);
+    int[] tileStartY = tileStarts(height, tilesY);
+    int[][][] lookupTables = new int[tilesX * tilesY][][];
+    IntStream.range(0, tilesX * tilesY).parallel().forEach(t -> {
+      int tx = t % tilesX;
+      int ty = t / tilesX;
+      int[][] bins = new int[3][256];
+      Histograms.accumulate(planes, width, tileStartY[ty], tileStartY[ty + 1],
+              tileStartX[tx], tileStartX[tx + 1], bins);
+      int area = (tileStartY[ty + 1] - tileStartY[ty])
+              * (tileStartX[tx + 1] - tileStartX[tx]);
+      int limit = Math.max(1, (int) (clipLimit * area / 256));
+      for (int k = 0; k < 3; k++) {
+        clip(bins[k], limit);
+        bins[k] = equalizationTable(bins[k], area);
+      }
+      lookupTables[t] = bins;
+    });
+
+    int[] lowTileX = new int[width];
+    int[] lowWeightX = new int[width];
+    interpolationSteps(tileStartX, lowTileX, lowWeightX);
+    int[] lowTileY = new int[height];
+    int[] lowWeightY = new int[height];
+    interpolationSteps(tileStartY, lowTileY, lowWeightY);
+
+    int[][] result = new int[3][width * height];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int top = lowTileY[i];
+      int bottom = Math.min(top + 1, tilesY - 1);
+      int wy = lowWeightY[i];
+      for (int j = 0; j < width; j++) {
+        int left = lowTileX[j];
+        int right = Math.min(left + 1, tilesX - 1);
+        int wx = lowWeightX[j];
+        int[][] topLeft = lookupTables[top * tilesX + left];
+        int[][] topRight = lookupTables[top * tilesX + right];
+        int[][] bottomLeft = lookupTables[bottom * tilesX + left];
+        int[][] bottomRight = lookupTables[bottom * tilesX + right];
+        int index = i * width + j;
+        for (int k = 0; k < 3; k++) {
+          int value = planes[k][index];
+          int upper = wx * topLeft[k][value] + (256 - wx) * topRight[k][value];
+          int lower = wx * bottomLeft[k][value] + (256 - wx) * bottomRight[k][value];
+          result[k][index] = (wy * upper + (256 - wy) * lower + (1 << 15)) >> 16;
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  private static int[] tileStarts(int size, int tiles) {
+    int[] starts = new int[tiles + 1];
+    for (int t = 0; t <= tiles; t++) {
+      starts[t] = t * size / tiles;
+    }
+    return starts;
+  }
+
+  /**
+   * Works out, for every row or column, the tile whose centre lies at or
+   * before it and the 8-bit weight of that tile against the next one.
+   */
+  private static void interpolationSteps(int[] tileStarts, int[] lowTile,
+                                         int[] lowWeight) {
+    int tiles = tileStarts.length - 1;
+    int tile = 0;
+    for (int p = 0; p < lowTile.length; p++) {
+      while (tile < tiles - 1 && 2 * p >= tileStarts[tile + 1] + tileStarts[tile + 2] - 1) {
+        tile++;
+      }
+      double centre = (tileStarts[tile] + tileStarts[tile + 1] - 1) / 2.0;
+      if (p <= centre || tile == tiles - 1) {
+        lowTile[p] = tile;
+        lowWeight[p] = 256;
+      } else {
+        double next = (tileStarts[tile + 1] + tileStarts[tile + 2] - 1) / 2.0;
+        lowTile[p] = tile;
+        lowWeight[p] = (int) Math.round(256 * (next - p) / (next - centre));
+      }
+    }
+  }
+
+  private static void clip(int[] histogram, int limit) {
+    int excess = 0;
+    for (int i = 0; i < 256; i++) {
+      if (histogram[i] > limit) {
+        excess += histogram[i] - limit;
+        histogram[i] = limit;
+      }
+    }
+    int share = excess / 256;
+    int remainder = excess % 256;
+    for (int i = 0; i < 256; i++) {
+      histogram[i] += share + (i < remainder ? 1 : 0);
+    }
+  }
+
+  private static int[] equalizationTable(int[] histogram, int area) {
+    int[] table = new int[256];
+    long cumulative = 0;
+    for (int i = 0; i < 256; i++) {
+      cumulative += histogram[i];
+      table[i] = (int) (cumulative * 255 / area);
+    }
+    return table;
+  }
+}
@@ -0,0 +1,43 @@
+package model;
+
+/**
+ * Enumeration of the modes in which an overlay image can be blended onto a
+ * base image. Each mode combines a base sample and an overlay sample into the
+ * value that is then mixed with the base by the opacity of the overlay.
+ */
+public enum BlendMode {
+  NORMAL,
+  MULTIPLY,
+  SCREEN,
+  OVERLAY,
+  ADD,
+  DIFFERENCE;
+
+  /**
+   * Returns the corresponding enum value for the name of a blend mode.
+   *
+   * @param name The name of the mode, such as "multiply".
+   * @return The corresponding enum value, or null if the name is unknown.
+   */
+  public static BlendMode fromName(String name) {
+    if (name != null) {
+      switch (name.toLowerCase()) {
+        case "normal":
+          return NORMAL;
+        case "multiply":
+          return MULTIPLY;
+        case "screen":
+          return SCREEN;
+        case "overlay":
+          return OVERLAY;
+        case "add":
+          return ADD;
+        case "difference":
+          return DIFFERENCE;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,126 @@
+package model;
+
+/**
+ * This class represents a 3D colour lookup table, a colour grade given as the
+ * output colour for every point of an evenly spaced size x size x size grid of
+ * input colours. Output colours are kept as 8.8 fixed-point values in a single
+ * char array, about 1.6 MB for the largest (65 point) tables, and every channel
+ * has a 256-entry table with the fixed-point grid position of each input value,
+ * so applying the table needs no floating point.
+ */
+public class ColorLut {
+
+  /**
+   * The number of fractional bits of grid positions and output values.
+   */
+  static final int FRACTION_BITS = 8;
+
+  private final int size;
+  private final char[] table;
+  private final int[][] positions;
+
+  /**
+   * Creates a colour lookup table.
+   *
+   * @param size      The number of grid points along each axis, at least 2.
+   * @param entries   The output red, green and blue of every grid point, with
+   *                  red changing fastest and blue slowest, as in .cube files.
+   *                  Values are scaled to the range 0-1 and clamped to it.
+   * @param domainMin The input red, green and blue at the first grid point,
+   *                  scaled to 0-1.
+   * @param domainMax The input red, green and blue at the last grid point,
+   *                  scaled to 0-1.
+   * @throws IllegalArgumentException If the size, entries or domain are invalid.
+   */
+  public ColorLut(int size, double[] entries, double[] domainMin, double[] domainMax)
+          throws IllegalArgumentException {
+    if (size < 2 || size > 256) {
+      throw new IllegalArgumentException("LUT size should be between 2 and 256.");
+    }
+    if (entries == null || entries.length != 3 * size * size * size) {
+      throw new IllegalArgumentException("LUT should have three values per grid point.");
+    }
+    if (domainMin == null || domainMax == null || domainMin.length != 3
+            || domainMax.length != 3) {
+      throw new IllegalArgumentException("LUT domain should have three values.");
+    }
+    this.size = size;
+    this.table = new char[entries.length];
+    double scale = 255 << FRACTION_BITS;
+    for (int i = 0; i < entries.length; i++) {
+      table[i] = (char) Math.round(Math.min(1, Math.max(0, entries[i])) * scale);
+    }
+    this.positions = new int[3][256];
+    int last = (size - 1) << FRACTION_BITS;
+    for (int k = 0; k < 3; k++) {
+      double range = domainMax[k] - domainMin[k];
+      if (!(range > 0)) {
+        throw new IllegalArgumentException("LUT domain maximum should be above its minimum.");
+      }
+      for (int v = 0; v < 256; v++) {
+        double position = (v / 255.0 - domainMin[k]) / range * (size - 1);
+        positions[k][v] = (int) Math.min(last, Math.max(0,
+                Math.round(position * (1 << FRACTION_BITS))));
+      }
+    }
+  }
+
+  /**
+   * Creates a lookup table that applies a 3x3 colour matrix, the kind of
+   * transformation used for sepia and greyscale, so that such matrices can be
+   * combined with or replaced by other colour grades.
+   *
+   * @param matrix The 3x3 matrix; output channel i is the sum of
+   *               matrix[i][j] times input channel j.
+   * @param size   The number of grid points along each axis.
+   * @return The lookup table.
+   * @throws IllegalArgumentException If the matrix is not 3x3 or the size is
+   *                                  invalid.
+   */
+  public static ColorLut fromMatrix(double[][] matrix, int size)
+          throws IllegalArgumentException {
+    if (matrix == null || matrix.length != 3) {
+      throw new IllegalArgumentException("Filter matrix must be 3x3.");
+    }
+    for (double[] row : matrix) {
+      if (row == null || row.length != 3) {
+        throw new IllegalArgumentException("Filter matrix must be 3x3.");
+      }
+    }
+    if (size < 2 || size > 256) {
+      throw new IllegalArgumentException("LUT size should be between 2 and 256.");
+    }
+    double[] entries = new double[3 * size * size * size];
+    int index = 0;
+    for (int b = 0; b < size; b++) {
+      for (int g = 0; g < size; g++) {
+        for (int r = 0; r < size; r++) {
+          double[] input = {(double) r / (size - 1), (double) g / (size - 1),
+              (double) b / (size - 1)};
+          for (int k = 0; k < 3; k++) {
+            entries[index++] = matrix[k][0] * input[0] + matrix[k][1] * input[1]
+                    + matrix[k][2] * input[2];
+          }
+        }
+      }
+    }
+    return new ColorLut(size, entries, new double[]{0, 0, 0}, new double[]{1, 1, 1});
+  }
+
+  /**
+   * Gets the number of grid points along each axis of this table.
+   *
+   * @return The size of the table.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  char[] getTable() {
+    return table;
+  }
+
+  int[][] getPositions() {
+    return positions;
+  }
+}
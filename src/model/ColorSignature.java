@@ -0,0 +1,115 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class holds a compact colour signature of an image for finding images
+ * with similar colours: its joint RGB histogram with four levels per channel,
+ * where every one of the 64 bins stores its share of the pixels as a byte
+ * from 0 to 255. Signatures are compared by the sum of the absolute
+ * differences of their bins, which is a metric.
+ */
+public class ColorSignature {
+  /**
+   * The number of bins, and of bytes, in a signature.
+   */
+  public static final int SIZE = 64;
+  private static final int BAND_HEIGHT = 64;
+
+  private final byte[] bins;
+
+  /**
+   * Creates a signature from its bins.
+   *
+   * @param bins The 64 bins, each the share of the pixels as an unsigned byte.
+   * @throws IllegalArgumentException If there are not 64 bins.
+   */
+  public ColorSignature(byte[] bins) throws IllegalArgumentException {
+    if (bins == null || bins.length != SIZE) {
+      throw new IllegalArgumentException("A colour signature should have 64 bins.");
+    }
+    this.bins = bins.clone();
+  }
+
+  /**
+   * Computes the signature of an image in a single pass over its pixels, with
+   * bands of rows counted in parallel.
+   *
+   * @param image The image.
+   * @return The signature of the image.
+   */
+  static ColorSignature of(ImageInfo image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    long[] counts = IntStream.range(0, bands).parallel().mapToObj(band -> {
+      long[] bandCounts = new long[SIZE];
+      int to = Math.min(height, (band + 1) * BAND_HEIGHT) * width;
+      for (int p = band * BAND_HEIGHT * width; p < to; p++) {
+        bandCounts[(planes[0][p] >> 6) << 4 | (planes[1][p] >> 6) << 2 | planes[2][p] >> 6]++;
+      }
+      return bandCounts;
+    }).reduce(new long[SIZE], (a, b) -> {
+      long[] sum = new long[SIZE];
+      for (int bin = 0; bin < SIZE; bin++) {
+        sum[bin] = a[bin] + b[bin];
+      }
+      return sum;
+    });
+    long total = (long) width * height;
+    byte[] bins = new byte[SIZE];
+    for (int bin = 0; bin < SIZE; bin++) {
+      bins[bin] = (byte) ((counts[bin] * 255 + total / 2) / total);
+    }
+    return new ColorSignature(bins);
+  }
+
+  /**
+   * Gets the bins of this signature.
+   *
+   * @return A copy of the 64 bins, each an unsigned byte.
+   */
+  public byte[] getBins() {
+    return bins.clone();
+  }
+
+  /**
+   * Measures how different the colours of two signatures are.
+   *
+   * @param other The other signature.
+   * @return The sum of the absolute differences of the bins, from 0 for the
+   *         same colours to about 510 for no colour in common.
+   */
+  public int distance(ColorSignature other) {
+    int sum = 0;
+    for (int bin = 0; bin < SIZE; bin++) {
+      sum += Math.abs((bins[bin] & 0xFF) - (other.bins[bin] & 0xFF));
+    }
+    return sum;
+  }
+
+  /**
+   * Measures the distance from the 64 bytes of a signature stored in a buffer
+   * at the given position, without copying them.
+   */
+  int distance(ByteBuffer buffer, int position) {
+    int sum = 0;
+    for (int bin = 0; bin < SIZE; bin++) {
+      sum += Math.abs((bins[bin] & 0xFF) - (buffer.get(position + bin) & 0xFF));
+    }
+    return sum;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ColorSignature && Arrays.equals(bins, ((ColorSignature) other).bins);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bins);
+  }
+}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Enumeration of the colour spaces images can be converted to. Converted images
+ * keep three 8-bit channels: HSV and HSL store hue, saturation and value or
+ * lightness scaled to 0-255, YCbCr is the full-range JPEG encoding, and Lab
+ * stores L scaled to 0-255 with a and b offset by 128.
+ */
+public enum ColorSpace {
+  HSV,
+  HSL,
+  YCBCR,
+  LAB;
+
+  /**
+   * Returns the corresponding enum value for the name of a colour space.
+   *
+   * @param name The name of the colour space, such as "hsv".
+   * @return The corresponding enum value, or null if the name is unknown.
+   */
+  public static ColorSpace fromName(String name) {
+    if (name != null) {
+      switch (name.toLowerCase()) {
+        case "hsv":
+          return HSV;
+        case "hsl":
+          return HSL;
+        case "ycbcr":
+          return YCBCR;
+        case "lab":
+          return LAB;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,419 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The ColorSpaces class holds bulk colour-space kernels that work on the flat
+ * channel buffers of an image, a row at a time with rows in parallel. Per-value
+ * work is moved into lookup tables built once: luma and YCbCr use a table per
+ * channel and coefficient, hue uses a table of reciprocals instead of a
+ * division per pixel, and Lab uses a table of the sRGB transfer curve in both directions.
+ *
+ * <p>Hue is kept in fixed point as six sectors of {@link #HUE_SECTOR} units.
+ * Hue and saturation adjustments decompose every pixel into its maximum,
+ * chroma and hue, change those and compose the pixel again, without rounding
+ * through 8-bit HSV.
+ */
+class ColorSpaces {
+
+  /**
+   * The number of hue units in each of the six sectors of the hue circle.
+   */
+  static final int HUE_SECTOR = 1 << 16;
+
+  private static final int HUE_CIRCLE = 6 * HUE_SECTOR;
+  private static final int HALF = 1 << 15;
+  private static final int[] RECIPROCAL = new int[256];
+  private static final double[] LUMA_RED = new double[256];
+  private static final double[] LUMA_GREEN = new double[256];
+  private static final double[] LUMA_BLUE = new double[256];
+  private static final int[][] TO_YCBCR = new int[9][256];
+  private static final int[][] FROM_YCBCR = new int[4][256];
+  private static final double[] LINEAR = new double[256];
+  private static final double[] ENCODE_THRESHOLDS = new double[255];
+
+  private static final double[][] RGB_TO_XYZ = {
+    {0.4124564 / 0.95047, 0.3575761 / 0.95047, 0.1804375 / 0.95047},
+    {0.2126729, 0.7151522, 0.0721750},
+    {0.0193339 / 1.08883, 0.1191920 / 1.08883, 0.9503041 / 1.08883}
+  };
+  private static final double[][] XYZ_TO_RGB = {
+    {3.2404542 * 0.95047, -1.5371385, -0.4985314 * 1.08883},
+    {-0.9692660 * 0.95047, 1.8760108, 0.0415560 * 1.08883},
+    {0.0556434 * 0.95047, -0.2040259, 1.0572252 * 1.08883}
+  };
+  private static final double LAB_EPSILON = 6.0 / 29;
+
+  static {
+    double[] ycbcr = {
+      0.299, 0.587, 0.114,
+      -0.168736, -0.331264, 0.5,
+      0.5, -0.418688, -0.081312
+    };
+    for (int v = 0; v < 256; v++) {
+      RECIPROCAL[v] = v == 0 ? 0 : (HUE_SECTOR + v / 2) / v;
+      LUMA_RED[v] = 0.2126 * v;
+      LUMA_GREEN[v] = 0.7152 * v;
+      LUMA_BLUE[v] = 0.0722 * v;
+      for (int c = 0; c < 9; c++) {
+        TO_YCBCR[c][v] = (int) Math.round(ycbcr[c] * v * (1 << 16));
+      }
+      FROM_YCBCR[0][v] = (int) Math.round(1.402 * (v - 128) * (1 << 16));
+      FROM_YCBCR[1][v] = (int) Math.round(-0.344136 * (v - 128) * (1 << 16));
+      FROM_YCBCR[2][v] = (int) Math.round(-0.714136 * (v - 128) * (1 << 16));
+      FROM_YCBCR[3][v] = (int) Math.round(1.772 * (v - 128) * (1 << 16));
+      double c = v / 255.0;
+      LINEAR[v] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+    for (int v = 0; v < 255; v++) {
+      ENCODE_THRESHOLDS[v] = (LINEAR[v] + LINEAR[v + 1]) / 2;
+    }
+  }
+
+  /**
+   * Computes the luma of every pixel, truncated to an integer.
+   *
+   * @param planes The channel buffers of the image.
+   * @return The luma of every pixel.
+   */
+  static int[] luma(int[][] planes) {
+    int[] red = planes[0];
+    int[] green = planes[1];
+    int[] blue = planes[2];
+    int[] result = new int[red.length];
+    IntStream.range(0, red.length).parallel().forEach(p ->
+            result[p] = (int) (LUMA_RED[red[p]] + LUMA_GREEN[green[p]] + LUMA_BLUE[blue[p]]));
+    return result;
+  }
+
+  /**
+   * Computes the luma of a pixel without truncating it.
+   *
+   * @param red   The red value, 0-255.
+   * @param green The green value, 0-255.
+   * @param blue  The blue value, 0-255.
+   * @return The luma, 0-255.
+   */
+  static double luma(int red, int green, int blue) {
+    return LUMA_RED[red] + LUMA_GREEN[green] + LUMA_BLUE[blue];
+  }
+
+  /**
+   * Computes the value, the largest channel, of every pixel.
+   *
+   * @param planes The channel buffers of the image.
+   * @return The value of every pixel.
+   */
+  static int[] value(int[][] planes) {
+    int[] red = planes[0];
+    int[] green = planes[1];
+    int[] blue = planes[2];
+    int[] result = new int[red.length];
+    IntStream.range(0, red.length).parallel().forEach(p ->
+            result[p] = Math.max(red[p], Math.max(green[p], blue[p])));
+    return result;
+  }
+
+  /**
+   * Computes the intensity, the truncated average of the channels, of every pixel.
+   *
+   * @param planes The channel buffers of the image.
+   * @return The intensity of every pixel.
+   */
+  static int[] intensity(int[][] planes) {
+    int[] red = planes[0];
+    int[] green = planes[1];
+    int[] blue = planes[2];
+    int[] result = new int[red.length];
+    IntStream.range(0, red.length).parallel().forEach(p ->
+            result[p] = (red[p] + green[p] + blue[p]) / 3);
+    return result;
+  }
+
+  /**
+   * Converts RGB channel buffers to another colour space.
+   *
+   * @param planes The RGB channel buffers, 0-255.
+   * @param width  The width of the image.
+   * @param space  The colour space to convert to.
+   * @return The channel buffers in the given colour space.
+   */
+  static int[][] fromRgb(int[][] planes, int width, ColorSpace space) {
+    int[][] result = new int[3][planes[0].length];
+    rows(planes[0].length, width, (from, to) -> {
+      switch (space) {
+        case HSV:
+          toHsv(planes, result, from, to);
+          break;
+        case HSL:
+          toHsl(planes, result, from, to);
+          break;
+        case YCBCR:
+          toYcbcr(planes, result, from, to);
+          break;
+        default:
+          toLab(planes, result, from, to);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Converts channel buffers in another colour space back to RGB.
+   *
+   * @param planes The channel buffers in the given colour space, 0-255.
+   * @param width  The width of the image.
+   * @param space  The colour space to convert from.
+   * @return The RGB channel buffers.
+   */
+  static int[][] toRgb(int[][] planes, int width, ColorSpace space) {
+    int[][] result = new int[3][planes[0].length];
+    rows(planes[0].length, width, (from, to) -> {
+      switch (space) {
+        case HSV:
+          fromHsv(planes, result, from, to);
+          break;
+        case HSL:
+          fromHsl(planes, result, from, to);
+          break;
+        case YCBCR:
+          fromYcbcr(planes, result, from, to);
+          break;
+        default:
+          fromLab(planes, result, from, to);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Rotates the hue and scales the HSV saturation of every pixel, keeping its
+   * value.
+   *
+   * @param planes     The RGB channel buffers, 0-255.
+   * @param width      The width of the image.
+   * @param hueShift   The hue rotation in hue units, see {@link #HUE_SECTOR}.
+   * @param saturation The saturation factor in 16.16 fixed point.
+   * @return The adjusted RGB channel buffers.
+   */
+  static int[][] adjustHsv(int[][] planes, int width, int hueShift, int saturation) {
+    int shift = Math.floorMod(hueShift, HUE_CIRCLE);
+    int[][] result = new int[3][planes[0].length];
+    int[] red = planes[0];
+    int[] green = planes[1];
+    int[] blue = planes[2];
+    rows(red.length, width, (from, to) -> {
+      for (int p = from; p < to; p++) {
+        int max = Math.max(red[p], Math.max(green[p], blue[p]));
+        int chroma = max - Math.min(red[p], Math.min(green[p], blue[p]));
+        int hue = hue(red[p], green[p], blue[p], max, chroma) + shift;
+        if (hue >= HUE_CIRCLE) {
+          hue -= HUE_CIRCLE;
+        }
+        chroma = (int) Math.min(max, ((long) chroma * saturation + HALF) >> 16);
+        compose(hue, max, chroma, result, p);
+      }
+    });
+    return result;
+  }
+
+  private static void toHsv(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      int r = planes[0][p];
+      int g = planes[1][p];
+      int b = planes[2][p];
+      int max = Math.max(r, Math.max(g, b));
+      int chroma = max - Math.min(r, Math.min(g, b));
+      result[0][p] = hueToByte(hue(r, g, b, max, chroma));
+      result[1][p] = max == 0 ? 0 : (chroma * 255 + max / 2) / max;
+      result[2][p] = max;
+    }
+  }
+
+  private static void fromHsv(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      int max = planes[2][p];
+      int chroma = (planes[1][p] * max + 127) / 255;
+      compose(byteToHue(planes[0][p]), max, chroma, result, p);
+    }
+  }
+
+  private static void toHsl(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      int r = planes[0][p];
+      int g = planes[1][p];
+      int b = planes[2][p];
+      int max = Math.max(r, Math.max(g, b));
+      int min = Math.min(r, Math.min(g, b));
+      int chroma = max - min;
+      int range = 255 - Math.abs(max + min - 255);
+      result[0][p] = hueToByte(hue(r, g, b, max, chroma));
+      result[1][p] = chroma == 0 ? 0 : (chroma * 255 + range / 2) / range;
+      result[2][p] = (max + min + 1) / 2;
+    }
+  }
+
+  private static void fromHsl(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      int lightness = planes[2][p];
+      int chroma = ((255 - Math.abs(2 * lightness - 255)) * planes[1][p] + 127) / 255;
+      int max = Math.min(255, (2 * lightness + chroma + 1) / 2);
+      compose(byteToHue(planes[0][p]), max, Math.min(max, chroma), result, p);
+    }
+  }
+
+  private static void toYcbcr(int[][] planes, int[][] result, int from, int to) {
+    int offset = (128 << 16) + HALF;
+    for (int p = from; p < to; p++) {
+      int r = planes[0][p];
+      int g = planes[1][p];
+      int b = planes[2][p];
+      result[0][p] = ModelUtil.clamp((TO_YCBCR[0][r] + TO_YCBCR[1][g] + TO_YCBCR[2][b]
+              + HALF) >> 16);
+      result[1][p] = ModelUtil.clamp((TO_YCBCR[3][r] + TO_YCBCR[4][g] + TO_YCBCR[5][b]
+              + offset) >> 16);
+      result[2][p] = ModelUtil.clamp((TO_YCBCR[6][r] + TO_YCBCR[7][g] + TO_YCBCR[8][b]
+              + offset) >> 16);
+    }
+  }
+
+  private static void fromYcbcr(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      int y = (planes[0][p] << 16) + HALF;
+      int cb = planes[1][p];
+      int cr = planes[2][p];
+      result[0][p] = ModelUtil.clamp((y + FROM_YCBCR[0][cr]) >> 16);
+      result[1][p] = ModelUtil.clamp((y + FROM_YCBCR[1][cb] + FROM_YCBCR[2][cr]) >> 16);
+      result[2][p] = ModelUtil.clamp((y + FROM_YCBCR[3][cb]) >> 16);
+    }
+  }
+
+  private static void toLab(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      double r = LINEAR[planes[0][p]];
+      double g = LINEAR[planes[1][p]];
+      double b = LINEAR[planes[2][p]];
+      double fx = labCurve(RGB_TO_XYZ[0][0] * r + RGB_TO_XYZ[0][1] * g + RGB_TO_XYZ[0][2] * b);
+      double fy = labCurve(RGB_TO_XYZ[1][0] * r + RGB_TO_XYZ[1][1] * g + RGB_TO_XYZ[1][2] * b);
+      double fz = labCurve(RGB_TO_XYZ[2][0] * r + RGB_TO_XYZ[2][1] * g + RGB_TO_XYZ[2][2] * b);
+      result[0][p] = ModelUtil.clamp((int) Math.round((116 * fy - 16) * 2.55));
+      result[1][p] = ModelUtil.clamp((int) Math.round(500 * (fx - fy) + 128));
+      result[2][p] = ModelUtil.clamp((int) Math.round(200 * (fy - fz) + 128));
+    }
+  }
+
+  private static void fromLab(int[][] planes, int[][] result, int from, int to) {
+    for (int p = from; p < to; p++) {
+      double fy = (planes[0][p] / 2.55 + 16) / 116;
+      double x = inverseLabCurve(fy + (planes[1][p] - 128) / 500.0);
+      double y = inverseLabCurve(fy);
+      double z = inverseLabCurve(fy - (planes[2][p] - 128) / 200.0);
+      for (int k = 0; k < 3; k++) {
+        double linear = XYZ_TO_RGB[k][0] * x + XYZ_TO_RGB[k][1] * y + XYZ_TO_RGB[k][2] * z;
+        result[k][p] = encode(linear);
+      }
+    }
+  }
+
+  /**
+   * Finds the 8-bit sRGB value whose linear light is closest to the given one,
+   * by a binary search over the midpoints of the transfer curve table.
+   */
+  private static int encode(double linear) {
+    int low = 0;
+    int high = 255;
+    while (low < high) {
+      int mid = (low + high) / 2;
+      if (ENCODE_THRESHOLDS[mid] < linear) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static double labCurve(double t) {
+    return t > LAB_EPSILON * LAB_EPSILON * LAB_EPSILON ? Math.cbrt(t)
+            : t / (3 * LAB_EPSILON * LAB_EPSILON) + 4.0 / 29;
+  }
+
+  private static double inverseLabCurve(double t) {
+    return t > LAB_EPSILON ? t * t * t : 3 * LAB_EPSILON * LAB_EPSILON * (t - 4.0 / 29);
+  }
+
+  /**
+   * Gets the hue of a pixel in hue units, from 0 up to six sectors.
+   */
+  private static int hue(int r, int g, int b, int max, int chroma) {
+    if (chroma == 0) {
+      return 0;
+    }
+    int reciprocal = RECIPROCAL[chroma];
+    int hue;
+    if (max == r) {
+      hue = (g - b) * reciprocal;
+      if (hue < 0) {
+        hue += HUE_CIRCLE;
+      }
+    } else if (max == g) {
+      hue = 2 * HUE_SECTOR + (b - r) * reciprocal;
+    } else {
+      hue = 4 * HUE_SECTOR + (r - g) * reciprocal;
+    }
+    return Math.min(HUE_CIRCLE - 1, hue);
+  }
+
+  /**
+   * Writes the pixel with the given hue, maximum channel and chroma.
+   */
+  private static void compose(int hue, int max, int chroma, int[][] result, int p) {
+    int min = max - chroma;
+    int step = (int) (((long) chroma * (hue & (HUE_SECTOR - 1)) + HALF) >> 16);
+    switch (hue >> 16) {
+      case 0:
+        set(result, p, max, min + step, min);
+        break;
+      case 1:
+        set(result, p, max - step, max, min);
+        break;
+      case 2:
+        set(result, p, min, max, min + step);
+        break;
+      case 3:
+        set(result, p, min, max - step, max);
+        break;
+      case 4:
+        set(result, p, min + step, min, max);
+        break;
+      default:
+        set(result, p, max, min, max - step);
+    }
+  }
+
+  private static void set(int[][] result, int p, int r, int g, int b) {
+    result[0][p] = r;
+    result[1][p] = g;
+    result[2][p] = b;
+  }
+
+  private static int hueToByte(int hue) {
+    return (int) (((long) hue * 255 + HUE_CIRCLE / 2) / HUE_CIRCLE) % 255;
+  }
+
+  private static int byteToHue(int value) {
+    return (int) ((long) value * HUE_CIRCLE / 255) % HUE_CIRCLE;
+  }
+
+  private static void rows(int pixels, int width, RowKernel kernel) {
+    IntStream.range(0, pixels / width).parallel().forEach(i ->
+            kernel.apply(i * width, (i + 1) * width));
+  }
+
+  /**
+   * A kernel that works on the pixels of one row, given as a range of indices.
+   */
+  private interface RowKernel {
+    void apply(int from, int to);
+  }
+}
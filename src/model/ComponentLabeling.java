@@ -0,0 +1,156 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This class represents the connected components found in an image: a label
+ * for every pixel, 0 for the background and 1 to the number of components for
+ * the foreground, together with the area, bounding box and centroid of each
+ * component. Components are numbered in the order in which their first pixel
+ * appears, row by row.
+ */
+public class ComponentLabeling {
+  private final int width;
+  private final int height;
+  private final int[] labels;
+  private final int count;
+  private final long[] area;
+  private final int[] left;
+  private final int[] top;
+  private final int[] right;
+  private final int[] bottom;
+  private final long[] sumX;
+  private final long[] sumY;
+
+  /**
+   * Creates a labeling from the label of every pixel and computes the
+   * statistics of its components.
+   *
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @param labels The label of every pixel, row by row, numbered from 1 with
+   *               0 for the background.
+   * @throws IllegalArgumentException If there is not one label per pixel or a
+   *                                  label is negative.
+   */
+  public ComponentLabeling(int width, int height, int[] labels)
+          throws IllegalArgumentException {
+    if (labels == null || labels.length != width * height) {
+      throw new IllegalArgumentException("There should be one label per pixel.");
+    }
+    int max = 0;
+    for (int label : labels) {
+      if (label < 0) {
+        throw new IllegalArgumentException("Labels cannot be negative.");
+      }
+      max = Math.max(max, label);
+    }
+    this.width = width;
+    this.height = height;
+    this.labels = labels;
+    this.count = max;
+    this.area = new long[max + 1];
+    this.left = new int[max + 1];
+    this.top = new int[max + 1];
+    this.right = new int[max + 1];
+    this.bottom = new int[max + 1];
+    this.sumX = new long[max + 1];
+    this.sumY = new long[max + 1];
+    Arrays.fill(left, Integer.MAX_VALUE);
+    Arrays.fill(top, Integer.MAX_VALUE);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int label = labels[i * width + j];
+        if (label == 0) {
+          continue;
+        }
+        area[label]++;
+        left[label] = Math.min(left[label], j);
+        right[label] = Math.max(right[label], j);
+        top[label] = Math.min(top[label], i);
+        bottom[label] = Math.max(bottom[label], i);
+        sumX[label] += j;
+        sumY[label] += i;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of components.
+   *
+   * @return The number of components.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the label of a pixel.
+   *
+   * @param x The row of the pixel.
+   * @param y The column of the pixel.
+   * @return The label of the pixel, 0 for the background.
+   */
+  public int getLabel(int x, int y) {
+    return labels[x * width + y];
+  }
+
+  /**
+   * Gets the number of pixels of a component.
+   *
+   * @param label The label of the component.
+   * @return The area of the component in pixels.
+   */
+  public long getArea(int label) {
+    return area[checkLabel(label)];
+  }
+
+  /**
+   * Gets the bounding box of a component.
+   *
+   * @param label The label of the component.
+   * @return The left, top, right and bottom pixel of the component.
+   */
+  public int[] getBoundingBox(int label) {
+    checkLabel(label);
+    return new int[]{left[label], top[label], right[label], bottom[label]};
+  }
+
+  /**
+   * Gets the centroid of a component.
+   *
+   * @param label The label of the component.
+   * @return The average column and row of the pixels of the component.
+   */
+  public double[] getCentroid(int label) {
+    checkLabel(label);
+    return new double[]{(double) sumX[label] / area[label], (double) sumY[label] / area[label]};
+  }
+
+  /**
+   * Creates an image showing the components, each in its own colour on a
+   * black background.
+   *
+   * @return The label image.
+   */
+  public ImageInfo getLabelImage() {
+    int[][] planes = new int[3][labels.length];
+    for (int p = 0; p < labels.length; p++) {
+      int label = labels[p];
+      if (label != 0) {
+        int hash = label * 0x9E3779B1;
+        planes[0][p] = 64 + ((hash >>> 8) & 0xBF);
+        planes[1][p] = 64 + ((hash >>> 16) & 0xBF);
+        planes[2][p] = 64 + ((hash >>> 24) & 0xBF);
+      }
+    }
+    return ModelUtil.fromPlanes(planes, width, height);
+  }
+
+  private int checkLabel(int label) {
+    if (label < 1 || label > count) {
+      throw new IllegalArgumentException("There is no component with label " + label + ".");
+    }
+    return label;
+  }
+}
@@ -0,0 +1,143 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The ConnectedComponents class labels the 8-connected regions of foreground
+ * pixels, the pixels whose luma is at least a threshold. It uses union-find
+ * over a parent array with one entry per pixel. The image is cut into bands
+ * of rows that are labeled independently and in parallel, after which only
+ * the rows on either side of each seam between bands are merged. A union
+ * always keeps the smaller root, so every component ends up with its first
+ * pixel in raster order as root, and components are numbered in that order.
+ */
+class ConnectedComponents {
+  private static final int BAND_HEIGHT = 64;
+  private static final int BACKGROUND = -1;
+
+  /**
+   * Labels the components of an image.
+   *
+   * @param image     The image to label.
+   * @param threshold The lowest luma of a foreground pixel.
+   * @return The labeling of the image.
+   */
+  static ComponentLabeling label(ImageInfo image, int threshold) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] luma = ColorSpaces.luma(ModelUtil.toPlanes(image));
+    int[] parent = new int[width * height];
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+
+    IntStream.range(0, bands).parallel().forEach(b -> {
+      int fromRow = b * BAND_HEIGHT;
+      int toRow = Math.min(height, fromRow + BAND_HEIGHT);
+      for (int i = fromRow; i < toRow; i++) {
+        for (int j = 0; j < width; j++) {
+          int p = i * width + j;
+          if (luma[p] < threshold) {
+            parent[p] = BACKGROUND;
+            continue;
+          }
+          parent[p] = p;
+          if (j > 0 && parent[p - 1] != BACKGROUND) {
+            union(parent, p, p - 1);
+          }
+          if (i > fromRow) {
+            unionAbove(parent, p, j, width);
+          }
+        }
+      }
+    });
+
+    for (int b = 1; b < bands; b++) {
+      int i = b * BAND_HEIGHT;
+      for (int j = 0; j < width; j++) {
+        int p = i * width + j;
+        if (parent[p] != BACKGROUND) {
+          unionAbove(parent, p, j, width);
+        }
+      }
+    }
+
+    int[] rootsBefore = new int[bands + 1];
+    IntStream.range(0, bands).parallel().forEach(b -> {
+      int to = Math.min(height, (b + 1) * BAND_HEIGHT) * width;
+      int roots = 0;
+      for (int p = b * BAND_HEIGHT * width; p < to; p++) {
+        if (parent[p] == p) {
+          roots++;
+        }
+      }
+      rootsBefore[b + 1] = roots;
+    });
+    for (int b = 0; b < bands; b++) {
+      rootsBefore[b + 1] += rootsBefore[b];
+    }
+
+    int[] labels = new int[width * height];
+    IntStream.range(0, bands).parallel().forEach(b -> {
+      int to = Math.min(height, (b + 1) * BAND_HEIGHT) * width;
+      int next = rootsBefore[b];
+      for (int p = b * BAND_HEIGHT * width; p < to; p++) {
+        if (parent[p] == p) {
+          labels[p] = ++next;
+        }
+      }
+    });
+    IntStream.range(0, bands).parallel().forEach(b -> {
+      int to = Math.min(height, (b + 1) * BAND_HEIGHT) * width;
+      for (int p = b * BAND_HEIGHT * width; p < to; p++) {
+        if (parent[p] != BACKGROUND && parent[p] != p) {
+          labels[p] = labels[root(parent, p)];
+        }
+      }
+    });
+    return new ComponentLabeling(width, height, labels);
+  }
+
+  /**
+   * Joins a pixel with its foreground neighbours in the row above.
+   */
+  private static void unionAbove(int[] parent, int p, int column, int width) {
+    int rowAbove = p - width - column;
+    for (int c = Math.max(0, column - 1); c <= Math.min(width - 1, column + 1); c++) {
+      if (parent[rowAbove + c] != BACKGROUND) {
+        union(parent, p, rowAbove + c);
+      }
+    }
+  }
+
+  private static void union(int[] parent, int a, int b) {
+    int rootA = find(parent, a);
+    int rootB = find(parent, b);
+    if (rootA < rootB) {
+      parent[rootB] = rootA;
+    } else if (rootB < rootA) {
+      parent[rootA] = rootB;
+    }
+  }
+
+  /**
+   * Finds the root of a pixel, halving the path on the way. Only called while
+   * a band owns all the pixels it can reach, or from the serial seam merge.
+   */
+  private static int find(int[] parent, int p) {
+    while (parent[p] != p) {
+      parent[p] = parent[parent[p]];
+      p = parent[p];
+    }
+    return p;
+  }
+
+  /**
+   * Finds the root of a pixel without changing the parent array, for the
+   * final pass in which bands read each other's pixels.
+   */
+  private static int root(int[] parent, int p) {
+    while (parent[p] != p) {
+      p = parent[p];
+    }
+    return p;
+  }
+}
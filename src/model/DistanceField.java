@@ -0,0 +1,87 @@
+package model;
+
+import java.nio.FloatBuffer;
+
+/**
+ * This class represents the Euclidean distance of every pixel of an image to
+ * the nearest foreground pixel, in pixels. Foreground pixels have distance 0,
+ * and every pixel has infinite distance if the image has no foreground at all.
+ */
+public class DistanceField {
+  private final int width;
+  private final int height;
+  private final float[] distances;
+
+  /**
+   * Creates a distance field from the distance of every pixel.
+   *
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param distances The distance of every pixel, row by row.
+   * @throws IllegalArgumentException If there is not one distance per pixel.
+   */
+  public DistanceField(int width, int height, float[] distances)
+          throws IllegalArgumentException {
+    if (distances == null || distances.length != width * height) {
+      throw new IllegalArgumentException("There should be one distance per pixel.");
+    }
+    this.width = width;
+    this.height = height;
+    this.distances = distances;
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the distance of a pixel.
+   *
+   * @param x The row of the pixel.
+   * @param y The column of the pixel.
+   * @return The distance of the pixel to the nearest foreground pixel.
+   */
+  public float getDistance(int x, int y) {
+    return distances[x * width + y];
+  }
+
+  /**
+   * Gets the distances of all pixels, row by row, without copying them.
+   *
+   * @return A read-only view of the distances.
+   */
+  public FloatBuffer getDistances() {
+    return FloatBuffer.wrap(distances).asReadOnlyBuffer();
+  }
+
+  /**
+   * Creates a greyscale image of the distances, one grey level per pixel of
+   * distance, so that distances of 255 pixels or more are white.
+   *
+   * @return The distance image.
+   */
+  public ImageInfo getDistanceImage() {
+    int[][] planes = new int[3][distances.length];
+    for (int p = 0; p < distances.length; p++) {
+      int value = (int) Math.min(255, distances[p] + 0.5f);
+      planes[0][p] = value;
+      planes[1][p] = value;
+      planes[2][p] = value;
+    }
+    return ModelUtil.fromPlanes(planes, width, height);
+  }
+}
@@ -0,0 +1,138 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The DistanceTransform class computes exact Euclidean distance fields with
+ * the separable algorithm of Felzenszwalb and Huttenlocher. The first pass
+ * finds, for every pixel, the distance to the nearest foreground pixel in its
+ * column; on a binary image this one-dimensional transform reduces to a
+ * downward and an upward scan, which are run over strips of columns in
+ * parallel. The second pass takes, along every row, the lower envelope of the
+ * parabolas rooted at each pixel with the squared column distances as their
+ * heights, which gives the squared distance in the plane. Both passes are
+ * linear in the number of pixels.
+ */
+class DistanceTransform {
+  private static final int STRIP_WIDTH = 256;
+  private static final int BAND_HEIGHT = 64;
+  private static final int NONE = -1;
+
+  /**
+   * Computes the distance field of an image.
+   *
+   * @param image     The image to transform.
+   * @param threshold The lowest luma of a foreground pixel.
+   * @return The distance of every pixel to the nearest foreground pixel.
+   */
+  static DistanceField transform(ImageInfo image, int threshold) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] luma = ColorSpaces.luma(ModelUtil.toPlanes(image));
+    int[] columnDistance = new int[width * height];
+
+    int strips = (width + STRIP_WIDTH - 1) / STRIP_WIDTH;
+    IntStream.range(0, strips).parallel().forEach(s -> {
+      int fromColumn = s * STRIP_WIDTH;
+      int toColumn = Math.min(width, fromColumn + STRIP_WIDTH);
+      for (int j = fromColumn; j < toColumn; j++) {
+        columnDistance[j] = luma[j] >= threshold ? 0 : NONE;
+      }
+      for (int i = 1; i < height; i++) {
+        int row = i * width;
+        for (int j = fromColumn; j < toColumn; j++) {
+          int above = columnDistance[row - width + j];
+          columnDistance[row + j] = luma[row + j] >= threshold ? 0
+                  : above == NONE ? NONE : above + 1;
+        }
+      }
+      for (int i = height - 2; i >= 0; i--) {
+        int row = i * width;
+        for (int j = fromColumn; j < toColumn; j++) {
+          int below = columnDistance[row + width + j];
+          int current = columnDistance[row + j];
+          if (below != NONE && (current == NONE || below + 1 < current)) {
+            columnDistance[row + j] = below + 1;
+          }
+        }
+      }
+    });
+
+    float[] distances = new float[width * height];
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    IntStream.range(0, bands).parallel().forEach(b -> {
+      int[] roots = new int[width];
+      double[] bounds = new double[width + 1];
+      int toRow = Math.min(height, (b + 1) * BAND_HEIGHT);
+      for (int i = b * BAND_HEIGHT; i < toRow; i++) {
+        lowerEnvelope(columnDistance, distances, i * width, width, roots, bounds);
+      }
+    });
+    return new DistanceField(width, height, distances);
+  }
+
+  /**
+   * Transforms one row. Every pixel with a finite column distance contributes
+   * the parabola (x - q)^2 + f(q), where f is the squared column distance. The
+   * envelope is built left to right, dropping parabolas that a newer one
+   * hides, and then read off at every pixel.
+   *
+   * @param columnDistance The column distances, NONE where a column has no
+   *                       foreground.
+   * @param distances      The buffer the distances of the row are written to.
+   * @param row            The offset of the row.
+   * @param width          The width of the row.
+   * @param roots          Scratch space for the roots of the envelope parabolas.
+   * @param bounds         Scratch space for where each envelope parabola starts.
+   */
+  private static void lowerEnvelope(int[] columnDistance, float[] distances, int row,
+                                    int width, int[] roots, double[] bounds) {
+    int k = -1;
+    for (int q = 0; q < width; q++) {
+      if (columnDistance[row + q] == NONE) {
+        continue;
+      }
+      if (k < 0) {
+        k = 0;
+        roots[0] = q;
+        bounds[0] = Double.NEGATIVE_INFINITY;
+        bounds[1] = Double.POSITIVE_INFINITY;
+        continue;
+      }
+      double s = intersection(columnDistance, row, roots[k], q);
+      while (s <= bounds[k]) {
+        k--;
+        s = intersection(columnDistance, row, roots[k], q);
+      }
+      k++;
+      roots[k] = q;
+      bounds[k] = s;
+      bounds[k + 1] = Double.POSITIVE_INFINITY;
+    }
+    if (k < 0) {
+      for (int q = 0; q < width; q++) {
+        distances[row + q] = Float.POSITIVE_INFINITY;
+      }
+      return;
+    }
+    k = 0;
+    for (int q = 0; q < width; q++) {
+      while (bounds[k + 1] < q) {
+        k++;
+      }
+      long dx = q - roots[k];
+      long dy = columnDistance[row + roots[k]];
+      distances[row + q] = (float) Math.sqrt(dx * dx + dy * dy);
+    }
+  }
+
+  /**
+   * Finds the column at which the parabolas rooted at p and q, p < q, cross.
+   */
+  private static double intersection(int[] columnDistance, int row, int p, int q) {
+    long fp = columnDistance[row + p];
+    long fq = columnDistance[row + q];
+    long numerator = (fq * fq + (long) q * q) - (fp * fp + (long) p * p);
+    return numerator / (2.0 * (q - p));
+  }
+}
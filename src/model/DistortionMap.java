@@ -0,0 +1,87 @@
+package model;
+
+import java.nio.IntBuffer;
+
+/**
+ * This class represents a per-pixel coordinate map used to correct lens
+ * distortion. For every pixel of the corrected image it holds the position in
+ * the captured image that the pixel is taken from, as a column and a row in
+ * fixed point with {@link #FRACTION_BITS} fractional bits. A map only depends on
+ * the camera, so it is built once, saved, and applied to every image taken with
+ * that camera. The coordinates may live in any IntBuffer, including one that is
+ * memory-mapped from a saved map file.
+ */
+public class DistortionMap {
+
+  /**
+   * The number of fractional bits of the stored coordinates.
+   */
+  public static final int FRACTION_BITS = 8;
+
+  /**
+   * The coordinate stored for pixels that have no source in the captured image.
+   */
+  public static final int NO_SOURCE = Integer.MIN_VALUE;
+
+  private final int width;
+  private final int height;
+  private final IntBuffer coordinates;
+
+  /**
+   * Creates a distortion map.
+   *
+   * @param width       The width of the images the map applies to.
+   * @param height      The height of the images the map applies to.
+   * @param coordinates The source column and row of every pixel, row by row,
+   *                    starting at the current position of the buffer.
+   * @throws IllegalArgumentException If the size is not positive or the buffer
+   *                                  does not hold two values per pixel.
+   */
+  public DistortionMap(int width, int height, IntBuffer coordinates)
+          throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height should be positive.");
+    }
+    if (coordinates == null || coordinates.remaining() != 2L * width * height) {
+      throw new IllegalArgumentException("Distortion map should have two coordinates per pixel.");
+    }
+    this.width = width;
+    this.height = height;
+    this.coordinates = coordinates.slice();
+  }
+
+  /**
+   * Gets the width of the images this map applies to.
+   *
+   * @return The width in pixels.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the images this map applies to.
+   *
+   * @return The height in pixels.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the coordinates of this map as a read-only buffer, for saving it.
+   *
+   * @return The source column and row of every pixel, row by row.
+   */
+  public IntBuffer getCoordinates() {
+    return coordinates.asReadOnlyBuffer();
+  }
+
+  int getSourceColumn(int index) {
+    return coordinates.get(2 * index);
+  }
+
+  int getSourceRow(int index) {
+    return coordinates.get(2 * index + 1);
+  }
+}
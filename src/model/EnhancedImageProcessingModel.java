@@ -1,6 +1,7 @@
 package model;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * The EnhancedImageProcessingModel interface defines a set of
@@ -137,4 +138,557 @@ public interface EnhancedImageProcessingModel extends ImageProcessingModel {
                                  int highlight, int percentage) throws
           IllegalArgumentException;
 
+  /**
+   * Applies contrast-limited adaptive histogram equalization (CLAHE) to the
+   * provided image. The image is divided into a grid of tiles, each tile is
+   * equalized on its own with a clipped histogram, and the results are blended
+   * bilinearly between neighbouring tiles.
+   *
+   * @param image     The original image to be equalized.
+   * @param tiles     The number of tiles along each side of the image.
+   * @param clipLimit The clip limit as a multiple of the average histogram bin
+   *                  count of a tile. Higher values allow more contrast.
+   * @return A new ImageInfo object representing the equalized image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo claheImage(ImageInfo image, int tiles, double clipLimit) throws
+          IllegalArgumentException;
+
+  /**
+   * Removes noise from the provided image using non-local means: every pixel
+   * is replaced by an average of the pixels around it, weighted by how similar
+   * their neighbourhoods are.
+   *
+   * @param image    The original image to be denoised.
+   * @param strength The filtering strength. Larger values remove more noise
+   *                 but also more detail.
+   * @return A new ImageInfo object representing the denoised image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo denoiseImage(ImageInfo image, double strength) throws
+          IllegalArgumentException;
+
+  /**
+   * Applies a split non-local means denoising effect to the provided image
+   * based on the specified percentage.
+   *
+   * @param image      The original image to undergo split denoising.
+   * @param strength   The filtering strength.
+   * @param percentage The percentage of the image to apply the denoising effect.
+   * @return A new ImageInfo object representing the split-denoised image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo splitDenoise(ImageInfo image, double strength, int percentage) throws
+          IllegalArgumentException;
+
+  /**
+   * Reduces every channel of the provided image to the given number of evenly
+   * spaced levels, using Floyd-Steinberg error diffusion to preserve the
+   * overall tone.
+   *
+   * @param image  The original image to be dithered.
+   * @param levels The number of levels per channel (2-256).
+   * @return A new ImageInfo object representing the dithered image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo floydSteinbergDither(ImageInfo image, int levels) throws
+          IllegalArgumentException;
+
+  /**
+   * Reduces every channel of the provided image to the given number of evenly
+   * spaced levels, using Atkinson error diffusion, which passes on only part
+   * of the error and keeps more contrast.
+   *
+   * @param image  The original image to be dithered.
+   * @param levels The number of levels per channel (2-256).
+   * @return A new ImageInfo object representing the dithered image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo atkinsonDither(ImageInfo image, int levels) throws
+          IllegalArgumentException;
+
+  /**
+   * Resizes the provided image to the given dimensions using the given
+   * resampling filter.
+   *
+   * @param image  The original image to be resized.
+   * @param width  The width of the resized image.
+   * @param height The height of the resized image.
+   * @param filter The resampling filter. AUTO uses area averaging for
+   *               downscales to half the size or less and Lanczos otherwise.
+   * @return A new ImageInfo object representing the resized image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo resizeImage(ImageInfo image, int width, int height, ResizeFilter filter)
+          throws IllegalArgumentException;
+
+  /**
+   * Rotates the provided image about its centre. The image keeps its size;
+   * corners that come from outside the original image are black.
+   *
+   * @param image         The original image to be rotated.
+   * @param degrees       The angle of the rotation, clockwise.
+   * @param interpolation How the image is sampled between pixels.
+   * @return A new ImageInfo object representing the rotated image.
+   * @throws IllegalArgumentException If the angle is not finite or the
+   *                                  operation cannot be performed on the
+   *                                  provided image.
+   */
+  ImageInfo rotateImage(ImageInfo image, double degrees, Interpolation interpolation)
+          throws IllegalArgumentException;
+
+  /**
+   * Applies an affine transformation to the provided image. The image keeps
+   * its size.
+   *
+   * @param image         The original image to be transformed.
+   * @param matrix        The transformation as {a, b, c, d, e, f}, which moves
+   *                      the pixel at (x, y) to (ax + by + c, dx + ey + f).
+   * @param interpolation How the image is sampled between pixels.
+   * @return A new ImageInfo object representing the transformed image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image, a
+   *                                  value is not finite or the
+   *                                  transformation cannot be inverted.
+   */
+  ImageInfo affineTransform(ImageInfo image, double[] matrix, Interpolation interpolation)
+          throws IllegalArgumentException;
+
+  /**
+   * Applies a perspective transformation to the provided image, moving its
+   * four corners to the given positions. The image keeps its size.
+   *
+   * @param image         The original image to be transformed.
+   * @param corners       The new positions of the top-left, top-right,
+   *                      bottom-right and bottom-left corners as
+   *                      {x0, y0, x1, y1, x2, y2, x3, y3}.
+   * @param interpolation How the image is sampled between pixels.
+   * @return A new ImageInfo object representing the transformed image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image, a
+   *                                  corner is not finite or the corners do
+   *                                  not describe a valid transformation.
+   */
+  ImageInfo perspectiveTransform(ImageInfo image, double[] corners,
+                                 Interpolation interpolation)
+          throws IllegalArgumentException;
+
+  /**
+   * Builds the map that corrects the radial distortion of a camera lens, to be
+   * applied to images with {@link #remapImage(ImageInfo, DistortionMap)}.
+   *
+   * @param width  The width of the images taken with the camera.
+   * @param height The height of the images taken with the camera.
+   * @param k1     The second order distortion coefficient.
+   * @param k2     The fourth order distortion coefficient.
+   * @return A new DistortionMap for images of the given size.
+   * @throws IllegalArgumentException If the size is not positive or a
+   *                                  coefficient is not finite.
+   */
+  DistortionMap buildDistortionMap(int width, int height, double k1, double k2)
+          throws IllegalArgumentException;
+
+  /**
+   * Corrects the provided image with a distortion map, taking every pixel from
+   * the position the map gives for it.
+   *
+   * @param image The original image to be corrected.
+   * @param map   The distortion map, which should have the size of the image.
+   * @return A new ImageInfo object representing the corrected image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image or
+   *                                  the map does not match its size.
+   */
+  ImageInfo remapImage(ImageInfo image, DistortionMap map) throws IllegalArgumentException;
+
+  /**
+   * Maps the colours of the provided image through a 3D colour lookup table.
+   *
+   * @param image         The original image to be graded.
+   * @param lut           The lookup table.
+   * @param interpolation How colours between the grid points of the table
+   *                      are blended.
+   * @return A new ImageInfo object representing the graded image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo applyColorLut(ImageInfo image, ColorLut lut, LutInterpolation interpolation)
+          throws IllegalArgumentException;
+
+  /**
+   * Converts the provided RGB image to another colour space. The channels of
+   * the result hold the components of that space scaled to 0-255.
+   *
+   * @param image The original image to be converted.
+   * @param space The colour space to convert to.
+   * @return A new ImageInfo object with the components of the colour space.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo convertToColorSpace(ImageInfo image, ColorSpace space)
+          throws IllegalArgumentException;
+
+  /**
+   * Converts an image holding the components of another colour space, as
+   * produced by {@link #convertToColorSpace(ImageInfo, ColorSpace)}, back to RGB.
+   *
+   * @param image The image with the components of the colour space.
+   * @param space The colour space to convert from.
+   * @return A new ImageInfo object representing the RGB image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo convertFromColorSpace(ImageInfo image, ColorSpace space)
+          throws IllegalArgumentException;
+
+  /**
+   * Rotates the hue of every pixel of the provided image, keeping its
+   * saturation and value.
+   *
+   * @param image   The original image to be adjusted.
+   * @param degrees The rotation of the hue in degrees.
+   * @return A new ImageInfo object representing the adjusted image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo hueShift(ImageInfo image, double degrees) throws IllegalArgumentException;
+
+  /**
+   * Applies a split hue rotation to the provided image based on the specified
+   * percentage.
+   *
+   * @param image      The original image to undergo the split hue rotation.
+   * @param degrees    The rotation of the hue in degrees.
+   * @param percentage The percentage of the image width to be adjusted.
+   * @return A new ImageInfo object representing the split-adjusted image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo splitHueShift(ImageInfo image, double degrees, int percentage) throws
+          IllegalArgumentException;
+
+  /**
+   * Scales the saturation of every pixel of the provided image, keeping its
+   * hue and value.
+   *
+   * @param image  The original image to be adjusted.
+   * @param factor The saturation factor; 0 gives greys and values above 1
+   *               give more vivid colours.
+   * @return A new ImageInfo object representing the adjusted image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo adjustSaturation(ImageInfo image, double factor) throws IllegalArgumentException;
+
+  /**
+   * Applies a split saturation adjustment to the provided image based on the
+   * specified percentage.
+   *
+   * @param image      The original image to undergo the split adjustment.
+   * @param factor     The saturation factor.
+   * @param percentage The percentage of the image width to be adjusted.
+   * @return A new ImageInfo object representing the split-adjusted image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo splitSaturation(ImageInfo image, double factor, int percentage) throws
+          IllegalArgumentException;
+
+  /**
+   * Thresholds the provided image on luma and labels its 8-connected regions
+   * of foreground pixels.
+   *
+   * @param image     The image to label.
+   * @param threshold The lowest luma, 0-255, of a foreground pixel.
+   * @return The labeling, with the label of every pixel and the statistics of
+   *         every component.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ComponentLabeling labelComponents(ImageInfo image, int threshold)
+          throws IllegalArgumentException;
+
+  /**
+   * Thresholds the provided image on luma and computes the Euclidean distance
+   * of every pixel to the nearest foreground pixel.
+   *
+   * @param image     The image to transform.
+   * @param threshold The lowest luma, 0-255, of a foreground pixel.
+   * @return The distance field of the image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  DistanceField distanceTransform(ImageInfo image, int threshold)
+          throws IllegalArgumentException;
+
+  /**
+   * Reduces the provided image to a palette of at most the given number of
+   * colours.
+   *
+   * @param image  The image to quantize.
+   * @param colors The largest number of colours, 2-256.
+   * @return The image as an indexed image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  IndexedImage quantize(ImageInfo image, int colors) throws IllegalArgumentException;
+
+  /**
+   * Reduces a stack of same-size images to one image, combining the samples
+   * of every pixel by mean, median or maximum. The images are taken one at a
+   * time, so they can be loaded lazily and memory does not grow with their
+   * number.
+   *
+   * @param frames The images to stack. They are iterated once, or twice for
+   *               the median.
+   * @param mode   How the samples of a pixel are combined.
+   * @return A new ImageInfo object representing the stacked image.
+   * @throws IllegalArgumentException If there are no images, they differ in
+   *                                  size or the mode is null.
+   */
+  ImageInfo stackImages(Iterable<ImageInfo> frames, StackMode mode)
+          throws IllegalArgumentException;
+
+  /**
+   * Blends an overlay image onto a base image. The overlay may be smaller
+   * than the base and placed anywhere on it; the parts of the base it does
+   * not cover are left as they are, and the parts of the overlay outside the
+   * base are ignored.
+   *
+   * @param base    The base image.
+   * @param overlay The overlay image.
+   * @param mode    How base and overlay colours are combined.
+   * @param opacity The opacity of the overlay, from 0 to 1.
+   * @param mask    An image of the size of the overlay whose luma scales the
+   *                opacity pixel by pixel, white being fully opaque, or null.
+   * @param offsetX The column of the base at which the overlay starts.
+   * @param offsetY The row of the base at which the overlay starts.
+   * @return A new ImageInfo object representing the blended image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided images.
+   */
+  ImageInfo blendImages(ImageInfo base, ImageInfo overlay, BlendMode mode, double opacity,
+                        ImageInfo mask, int offsetX, int offsetY)
+          throws IllegalArgumentException;
+
+  /**
+   * Shrinks the provided image to the given size by removing its
+   * lowest-energy seams, which keeps the prominent content of the image
+   * undistorted.
+   *
+   * @param image  The image to be carved.
+   * @param width  The new width, between 1 and the width of the image.
+   * @param height The new height, between 1 and the height of the image.
+   * @return A new ImageInfo object representing the carved image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo seamCarve(ImageInfo image, int width, int height) throws IllegalArgumentException;
+
+  /**
+   * Measures the quality of an image against a reference image of the same
+   * size, channel by channel, such as the quality lost by compressing it.
+   *
+   * @param reference The reference image.
+   * @param image     The image to measure.
+   * @return The mean squared error, peak signal-to-noise ratio and structural
+   *         similarity of every channel.
+   * @throws IllegalArgumentException If the images are missing or differ in size.
+   */
+  ImageMetrics compareImages(ImageInfo reference, ImageInfo image)
+          throws IllegalArgumentException;
+
+  /**
+   * Computes a 64-bit perceptual hash of the provided image, from the low
+   * frequencies of its luma. Near-duplicate images, such as resized or
+   * recompressed copies, have hashes that differ in few bits, which can be
+   * looked up with a HashIndex.
+   *
+   * @param image The image to hash.
+   * @return The perceptual hash.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  long perceptualHash(ImageInfo image) throws IllegalArgumentException;
+
+  /**
+   * Adjusts the levels of the provided image with shadow, mid and highlight
+   * values taken from the combined histogram of its channels: the shadow and
+   * highlight are the given percentiles of the samples, and the mid is their
+   * median, kept within the middle of that range. The histogram is cached on
+   * the image, so adjusting the same image again does not recount it.
+   *
+   * @param image          The original image to undergo level adjustment.
+   * @param lowPercentile  The percentage of samples to clip to black.
+   * @param highPercentile The percentage of samples at or below white.
+   * @return A new ImageInfo object representing the level-adjusted image, or
+   *         the image itself if its samples span fewer than three values.
+   * @throws IllegalArgumentException If the percentiles are not ordered
+   *                                  between 0 and 100, or the operation
+   *                                  cannot be performed on the image.
+   */
+  ImageInfo autoLevels(ImageInfo image, double lowPercentile, double highPercentile)
+          throws IllegalArgumentException;
+
+  /**
+   * Matches the histogram of every channel of the provided image to that of a
+   * reference image: each value is mapped to the reference value at the same
+   * position of the cumulative histogram, so the result has the tonal and
+   * colour distribution of the reference. The images may differ in size.
+   *
+   * @param image     The original image to be matched.
+   * @param reference The image whose histograms to match.
+   * @return A new ImageInfo object representing the matched image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided images.
+   */
+  ImageInfo matchHistogram(ImageInfo image, ImageInfo reference)
+          throws IllegalArgumentException;
+
+  /**
+   * Applies a split histogram matching to the provided image based on the
+   * specified percentage. The mapping is derived from the whole image.
+   *
+   * @param image      The original image to undergo split histogram matching.
+   * @param reference  The image whose histograms to match.
+   * @param percentage The percentage of the image to apply the matching to.
+   * @return A new ImageInfo object representing the split-matched image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided images.
+   */
+  ImageInfo splitMatchHistogram(ImageInfo image, ImageInfo reference, int percentage)
+          throws IllegalArgumentException;
+
+  /**
+   * Smooths the provided image with an edge-preserving guided filter, each
+   * channel guiding itself. The cost per pixel does not depend on the radius.
+   *
+   * @param image  The original image to be filtered.
+   * @param radius The radius of the square window, at least 1.
+   * @param eps    The regularization, as a variance of values scaled to 0-1.
+   *               Areas varying less than this are smoothed, while edges
+   *               varying much more are kept.
+   * @return A new ImageInfo object representing the filtered image.
+   * @throws IllegalArgumentException If the radius is below 1, eps is not
+   *                                  positive, or the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo guidedFilter(ImageInfo image, int radius, double eps)
+          throws IllegalArgumentException;
+
+  /**
+   * Applies a split guided filter to the provided image based on the
+   * specified percentage.
+   *
+   * @param image      The original image to undergo split filtering.
+   * @param radius     The radius of the square window, at least 1.
+   * @param eps        The regularization, as a variance of values scaled to 0-1.
+   * @param percentage The percentage of the image to apply the filter to.
+   * @return A new ImageInfo object representing the split-filtered image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo splitGuidedFilter(ImageInfo image, int radius, double eps, int percentage)
+          throws IllegalArgumentException;
+
+  /**
+   * Sharpens the provided image by adding back a multiple of its detail
+   * layer, the difference between the image and its guided-filtered version.
+   * Strong edges are mostly kept by the filter and so are barely amplified,
+   * which keeps halos around them small.
+   *
+   * @param image  The original image to be enhanced.
+   * @param amount The multiple of the detail layer to add, between 0 and 10.
+   * @param radius The radius of the filter window, at least 1; larger radii
+   *               enhance coarser detail.
+   * @return A new ImageInfo object representing the enhanced image.
+   * @throws IllegalArgumentException If the amount or radius is out of range,
+   *                                  or the operation cannot be performed on
+   *                                  the provided image.
+   */
+  ImageInfo detailEnhance(ImageInfo image, double amount, int radius)
+          throws IllegalArgumentException;
+
+  /**
+   * Applies a split detail enhancement to the provided image based on the
+   * specified percentage.
+   *
+   * @param image      The original image to undergo split enhancement.
+   * @param amount     The multiple of the detail layer to add, between 0 and 10.
+   * @param radius     The radius of the filter window, at least 1.
+   * @param percentage The percentage of the image to apply the enhancement to.
+   * @return A new ImageInfo object representing the split-enhanced image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo splitDetailEnhance(ImageInfo image, double amount, int radius, int percentage)
+          throws IllegalArgumentException;
+
+  /**
+   * Tone-maps the provided image with a Laplacian pyramid of its luma: dark
+   * areas are lifted towards the brightest ones while local contrast is kept,
+   * which brings out both the inside of a room and the view from its window.
+   *
+   * @param image    The original image to be tone-mapped.
+   * @param strength How much to compress large-scale brightness differences,
+   *                 from 0 for none to 1 for flattening them completely.
+   * @return A new ImageInfo object representing the tone-mapped image.
+   * @throws IllegalArgumentException If the strength is not between 0 and 1,
+   *                                  or the operation cannot be performed on
+   *                                  the provided image.
+   */
+  ImageInfo toneMap(ImageInfo image, double strength) throws IllegalArgumentException;
+
+  /**
+   * Applies a split tone mapping to the provided image based on the specified
+   * percentage.
+   *
+   * @param image      The original image to undergo split tone mapping.
+   * @param strength   How much to compress large-scale brightness differences,
+   *                   between 0 and 1.
+   * @param percentage The percentage of the image to apply the tone mapping to.
+   * @return A new ImageInfo object representing the split-tone-mapped image.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ImageInfo splitToneMap(ImageInfo image, double strength, int percentage)
+          throws IllegalArgumentException;
+
+  /**
+   * Finds where a template appears in the provided image, by the normalized
+   * cross-correlation of their lumas, which does not depend on differences in
+   * brightness and contrast. The correlation is computed with FFTs over tiles
+   * of the image, so the time taken barely depends on the template size.
+   *
+   * @param image    The image to search.
+   * @param template The template to look for, no larger than the image.
+   * @param count    The largest number of matches to return, at least 1.
+   * @return The best matches with a positive score, best first, each at
+   *         least half a template away from the better ones.
+   * @throws IllegalArgumentException If the template is larger than the
+   *                                  image or of a single colour, the count
+   *                                  is below 1, or the operation cannot be
+   *                                  performed on the provided images.
+   */
+  List<TemplateMatch> findTemplate(ImageInfo image, ImageInfo template, int count)
+          throws IllegalArgumentException;
+
+  /**
+   * Computes the colour signature of the provided image, its joint RGB
+   * histogram with four levels per channel, for finding images with similar
+   * colours with a SimilarityIndex.
+   *
+   * @param image The image to summarize.
+   * @return The colour signature.
+   * @throws IllegalArgumentException If the operation cannot be
+   *                                  performed on the provided image.
+   */
+  ColorSignature colorSignature(ImageInfo image) throws IllegalArgumentException;
+
 }
@@ -2,8 +2,10 @@ package model;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.IntStream;
 
 /**
  * The EnhancedImageProcessor class extends the basic ImageProcessor class
@@ -12,6 +14,13 @@ import java.util.TreeSet;
  */
 public class EnhancedImageProcessor extends ImageProcessor implements
         EnhancedImageProcessingModel {
+  /**
+   * The guided filter regularization used for detail enhancement: texture
+   * with a standard deviation below a tenth of the range is enhanced, while
+   * stronger edges stay in the base layer.
+   */
+  private static final double DETAIL_EPS = 0.01;
+
   @Override
   public ImageInfo compressImage(ImageInfo image, int percentage) throws
           IllegalArgumentException {
@@ -82,6 +91,440 @@ public class EnhancedImageProcessor extends ImageProcessor implements
             splitImage(image, percentage)[1], image);
   }
 
+  @Override
+  public ImageInfo claheImage(ImageInfo image, int tiles, double clipLimit) throws
+          IllegalArgumentException {
+    checkImage(image);
+    if (tiles < 1) {
+      throw new IllegalArgumentException("Number of tiles should be positive.");
+    }
+    if (!(clipLimit >= 1)) {
+      throw new IllegalArgumentException("Clip limit should be at least 1.");
+    }
+    return AdaptiveEqualizer.equalize(image, tiles, clipLimit);
+  }
+
+  @Override
+  public ImageInfo denoiseImage(ImageInfo image, double strength) throws
+          IllegalArgumentException {
+    checkImage(image);
+    if (!(strength > 0)) {
+      throw new IllegalArgumentException("Denoising strength should be positive.");
+    }
+    return NonLocalMeans.denoise(image, strength);
+  }
+
+  @Override
+  public ImageInfo splitDenoise(ImageInfo image, double strength, int percentage) throws
+          IllegalArgumentException {
+    return combineImages(denoiseImage(splitImage(image, percentage)[0], strength),
+            splitImage(image, percentage)[1], image);
+  }
+
+  @Override
+  public ImageInfo floydSteinbergDither(ImageInfo image, int levels) throws
+          IllegalArgumentException {
+    checkDither(image, levels);
+    return ErrorDiffusion.dither(image, ErrorDiffusion.FLOYD_STEINBERG, levels);
+  }
+
+  @Override
+  public ImageInfo atkinsonDither(ImageInfo image, int levels) throws
+          IllegalArgumentException {
+    checkDither(image, levels);
+    return ErrorDiffusion.dither(image, ErrorDiffusion.ATKINSON, levels);
+  }
+
+  private void checkDither(ImageInfo image, int levels) {
+    checkImage(image);
+    if (levels < 2 || levels > 256) {
+      throw new IllegalArgumentException("Number of levels should be between 2 and 256.");
+    }
+  }
+
+  @Override
+  public ImageInfo resizeImage(ImageInfo image, int width, int height,
+                               ResizeFilter filter) throws IllegalArgumentException {
+    checkImage(image);
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height should be positive.");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("Resize filter cannot be null.");
+    }
+    return Resampler.resize(image, width, height, filter);
+  }
+
+  @Override
+  public ImageInfo rotateImage(ImageInfo image, double degrees,
+                               Interpolation interpolation) throws IllegalArgumentException {
+    checkWarp(image, interpolation);
+    checkFinite("Rotation angle should be finite.", degrees);
+    return Warp.warp(image, Warp.rotation(image.getWidth(), image.getHeight(), degrees),
+            image.getWidth(), image.getHeight(), interpolation);
+  }
+
+  @Override
+  public ImageInfo affineTransform(ImageInfo image, double[] matrix,
+                                   Interpolation interpolation) throws IllegalArgumentException {
+    checkWarp(image, interpolation);
+    if (matrix == null || matrix.length != 6) {
+      throw new IllegalArgumentException("Affine transformation should have 6 values.");
+    }
+    checkFinite("Affine transformation values should be finite.", matrix);
+    return Warp.warp(image, Warp.affine(matrix), image.getWidth(), image.getHeight(),
+            interpolation);
+  }
+
+  @Override
+  public ImageInfo perspectiveTransform(ImageInfo image, double[] corners,
+                                        Interpolation interpolation)
+          throws IllegalArgumentException {
+    checkWarp(image, interpolation);
+    if (corners == null || corners.length != 8) {
+      throw new IllegalArgumentException("Perspective transformation should have 8 values.");
+    }
+    checkFinite("Perspective corners should be finite.", corners);
+    return Warp.warp(image, Warp.perspective(image.getWidth(), image.getHeight(), corners),
+            image.getWidth(), image.getHeight(), interpolation);
+  }
+
+  @Override
+  public DistortionMap buildDistortionMap(int width, int height, double k1, double k2)
+          throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height should be positive.");
+    }
+    checkFinite("Distortion coefficients should be finite.", k1, k2);
+    return Remapper.radial(width, height, k1, k2);
+  }
+
+  @Override
+  public ImageInfo remapImage(ImageInfo image, DistortionMap map)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (map == null) {
+      throw new IllegalArgumentException("Distortion map cannot be null.");
+    }
+    if (map.getWidth() != image.getWidth() || map.getHeight() != image.getHeight()) {
+      throw new IllegalArgumentException("Distortion map does not match the image size.");
+    }
+    return Remapper.remap(image, map);
+  }
+
+  @Override
+  public ImageInfo applyColorLut(ImageInfo image, ColorLut lut,
+                                 LutInterpolation interpolation)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (lut == null) {
+      throw new IllegalArgumentException("Lookup table cannot be null.");
+    }
+    if (interpolation == null) {
+      throw new IllegalArgumentException("Interpolation cannot be null.");
+    }
+    return LutApplier.apply(image, lut, interpolation);
+  }
+
+  @Override
+  public ImageInfo convertToColorSpace(ImageInfo image, ColorSpace space)
+          throws IllegalArgumentException {
+    checkColorSpace(image, space);
+    return ModelUtil.fromPlanes(ColorSpaces.fromRgb(ModelUtil.toPlanes(image),
+            image.getWidth(), space), image.getWidth(), image.getHeight());
+  }
+
+  @Override
+  public ImageInfo convertFromColorSpace(ImageInfo image, ColorSpace space)
+          throws IllegalArgumentException {
+    checkColorSpace(image, space);
+    return ModelUtil.fromPlanes(ColorSpaces.toRgb(ModelUtil.toPlanes(image),
+            image.getWidth(), space), image.getWidth(), image.getHeight());
+  }
+
+  @Override
+  public ImageInfo hueShift(ImageInfo image, double degrees) throws IllegalArgumentException {
+    checkImage(image);
+    int shift = (int) Math.round(degrees % 360 / 60 * ColorSpaces.HUE_SECTOR);
+    return ModelUtil.fromPlanes(ColorSpaces.adjustHsv(ModelUtil.toPlanes(image),
+            image.getWidth(), shift, 1 << 16), image.getWidth(), image.getHeight());
+  }
+
+  @Override
+  public ImageInfo splitHueShift(ImageInfo image, double degrees, int percentage) throws
+          IllegalArgumentException {
+    return combineImages(hueShift(splitImage(image, percentage)[0], degrees),
+            splitImage(image, percentage)[1], image);
+  }
+
+  @Override
+  public ImageInfo adjustSaturation(ImageInfo image, double factor)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (!(factor >= 0) || factor > 256) {
+      throw new IllegalArgumentException("Saturation factor should be between 0 and 256.");
+    }
+    int saturation = (int) Math.round(factor * (1 << 16));
+    return ModelUtil.fromPlanes(ColorSpaces.adjustHsv(ModelUtil.toPlanes(image),
+            image.getWidth(), 0, saturation), image.getWidth(), image.getHeight());
+  }
+
+  @Override
+  public ImageInfo splitSaturation(ImageInfo image, double factor, int percentage) throws
+          IllegalArgumentException {
+    return combineImages(adjustSaturation(splitImage(image, percentage)[0], factor),
+            splitImage(image, percentage)[1], image);
+  }
+
+  @Override
+  public ComponentLabeling labelComponents(ImageInfo image, int threshold)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (threshold < 0 || threshold > 255) {
+      throw new IllegalArgumentException("Threshold should be between 0 and 255.");
+    }
+    return ConnectedComponents.label(image, threshold);
+  }
+
+  @Override
+  public DistanceField distanceTransform(ImageInfo image, int threshold)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (threshold < 0 || threshold > 255) {
+      throw new IllegalArgumentException("Threshold should be between 0 and 255.");
+    }
+    return DistanceTransform.transform(image, threshold);
+  }
+
+  @Override
+  public IndexedImage quantize(ImageInfo image, int colors) throws IllegalArgumentException {
+    checkImage(image);
+    if (colors < 2 || colors > 256) {
+      throw new IllegalArgumentException("Number of colours should be between 2 and 256.");
+    }
+    return PaletteQuantizer.quantize(image, colors);
+  }
+
+  @Override
+  public ImageInfo stackImages(Iterable<ImageInfo> frames, StackMode mode)
+          throws IllegalArgumentException {
+    if (frames == null) {
+      throw new IllegalArgumentException("Images to stack cannot be null.");
+    }
+    if (mode == null) {
+      throw new IllegalArgumentException("Stacking mode cannot be null.");
+    }
+    return ImageStacker.stack(frames, mode);
+  }
+
+  @Override
+  public ImageInfo blendImages(ImageInfo base, ImageInfo overlay, BlendMode mode,
+                               double opacity, ImageInfo mask, int offsetX, int offsetY)
+          throws IllegalArgumentException {
+    checkImage(base);
+    checkImage(overlay);
+    if (mode == null) {
+      throw new IllegalArgumentException("Blend mode cannot be null.");
+    }
+    if (!(opacity >= 0 && opacity <= 1)) {
+      throw new IllegalArgumentException("Opacity should be between 0 and 1.");
+    }
+    if (mask != null && (mask.getWidth() != overlay.getWidth()
+            || mask.getHeight() != overlay.getHeight())) {
+      throw new IllegalArgumentException("Mask should have the size of the overlay.");
+    }
+    return Blender.blend(base, overlay, mode, (int) Math.round(opacity * 255), mask,
+            offsetX, offsetY);
+  }
+
+  @Override
+  public ImageInfo seamCarve(ImageInfo image, int width, int height)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height should be positive.");
+    }
+    if (width > image.getWidth() || height > image.getHeight()) {
+      throw new IllegalArgumentException("Seam carving can only make an image smaller.");
+    }
+    return SeamCarver.carve(image, width, height);
+  }
+
+  @Override
+  public ImageMetrics compareImages(ImageInfo reference, ImageInfo image)
+          throws IllegalArgumentException {
+    checkImage(reference);
+    checkImage(image);
+    if (reference.getWidth() != image.getWidth()
+            || reference.getHeight() != image.getHeight()) {
+      throw new IllegalArgumentException("Images should have the same size.");
+    }
+    return QualityMetrics.compare(reference, image);
+  }
+
+  @Override
+  public long perceptualHash(ImageInfo image) throws IllegalArgumentException {
+    checkImage(image);
+    return PerceptualHash.hash(image);
+  }
+
+  @Override
+  public ImageInfo autoLevels(ImageInfo image, double lowPercentile, double highPercentile)
+          throws IllegalArgumentException {
+    checkImage(image);
+    if (!(lowPercentile >= 0 && lowPercentile < highPercentile && highPercentile <= 100)) {
+      throw new IllegalArgumentException("Percentiles should satisfy 0 <= low < high <= 100.");
+    }
+    int[][] histograms = computeHistograms(image);
+    long[] cumulative = new long[256];
+    long total = 0;
+    for (int value = 0; value < 256; value++) {
+      total += histograms[0][value] + histograms[1][value] + histograms[2][value];
+      cumulative[value] = total;
+    }
+    int shadow = percentile(cumulative, lowPercentile);
+    int highlight = percentile(cumulative, highPercentile);
+    if (highlight - shadow < 2) {
+      return image;
+    }
+    // The median sets the midtones, kept within the middle of the range so
+    // that the levels curve through the three points stays increasing.
+    int median = percentile(cumulative, 50);
+    int mid = Math.max(shadow + (int) Math.ceil(0.3 * (highlight - shadow)),
+            Math.min(shadow + (int) (0.7 * (highlight - shadow)), median));
+    return performLevelAdjustment(image, shadow, mid, highlight);
+  }
+
+  /**
+   * Finds the smallest value below or at which the given percentage of the
+   * samples lie.
+   */
+  private static int percentile(long[] cumulative, double percentage) {
+    double count = cumulative[255] * percentage / 100;
+    int value = 0;
+    while (value < 255 && cumulative[value] < count) {
+      value++;
+    }
+    return value;
+  }
+
+  @Override
+  public ImageInfo matchHistogram(ImageInfo image, ImageInfo reference)
+          throws IllegalArgumentException {
+    checkImage(image);
+    checkImage(reference);
+    return applyTables(image, histogramMatchingTables(image, reference));
+  }
+
+  @Override
+  public ImageInfo splitMatchHistogram(ImageInfo image, ImageInfo reference, int percentage)
+          throws IllegalArgumentException {
+    checkImage(image);
+    checkImage(reference);
+    int[][] tables = histogramMatchingTables(image, reference);
+    return combineImages(applyTables(splitImage(image, percentage)[0], tables),
+            splitImage(image, percentage)[1], image);
+  }
+
+  @Override
+  public ImageInfo guidedFilter(ImageInfo image, int radius, double eps)
+          throws IllegalArgumentException {
+    checkGuidedFilter(image, radius, eps);
+    return GuidedFilter.filter(image, radius, eps);
+  }
+
+  @Override
+  public ImageInfo splitGuidedFilter(ImageInfo image, int radius, double eps, int percentage)
+          throws IllegalArgumentException {
+    return combineImages(guidedFilter(splitImage(image, percentage)[0], radius, eps),
+            splitImage(image, percentage)[1], image);
+  }
+
+  @Override
+  public ImageInfo detailEnhance(ImageInfo image, double amount, int radius)
+          throws IllegalArgumentException {
+    checkGuidedFilter(image, radius, DETAIL_EPS);
+    if (!(amount >= 0) || amount > 10) {
+      throw new IllegalArgumentException("Amount should be between 0 and 10.");
+    }
+    return GuidedFilter.enhance(image, amount, radius, DETAIL_EPS);
+  }
+
+  @Override
+  public ImageInfo splitDetailEnhance(ImageInfo image, double amount, int radius,
+                                      int percentage) throws IllegalArgumentException {
+    return combineImages(detailEnhance(splitImage(image, percentage)[0], amount, radius),
+            splitImage(image, percentage)[1], image);
+  }
+
+  private void checkGuidedFilter(ImageInfo image, int radius, double eps) {
+    checkImage(image);
+    if (radius < 1) {
+      throw new IllegalArgumentException("Radius should be at least 1.");
+    }
+    if (!(eps > 0)) {
+      throw new IllegalArgumentException("Eps should be positive.");
+    }
+  }
+
+  @Override
+  public ImageInfo toneMap(ImageInfo image, double strength) throws IllegalArgumentException {
+    checkImage(image);
+    if (!(strength >= 0) || strength > 1) {
+      throw new IllegalArgumentException("Strength should be between 0 and 1.");
+    }
+    return ToneMapper.map(image, strength);
+  }
+
+  @Override
+  public ImageInfo splitToneMap(ImageInfo image, double strength, int percentage)
+          throws IllegalArgumentException {
+    return combineImages(toneMap(splitImage(image, percentage)[0], strength),
+            splitImage(image, percentage)[1], image);
+  }
+
+  @Override
+  public List<TemplateMatch> findTemplate(ImageInfo image, ImageInfo template, int count)
+          throws IllegalArgumentException {
+    checkImage(image);
+    checkImage(template);
+    if (template.getWidth() > image.getWidth() || template.getHeight() > image.getHeight()) {
+      throw new IllegalArgumentException("Template should not be larger than the image.");
+    }
+    if (count < 1) {
+      throw new IllegalArgumentException("Count should be at least 1.");
+    }
+    return TemplateMatcher.find(image, template, count);
+  }
+
+  @Override
+  public ColorSignature colorSignature(ImageInfo image) throws IllegalArgumentException {
+    checkImage(image);
+    return ColorSignature.of(image);
+  }
+
+  private void checkColorSpace(ImageInfo image, ColorSpace space) {
+    checkImage(image);
+    if (space == null) {
+      throw new IllegalArgumentException("Colour space cannot be null.");
+    }
+  }
+
+  private void checkWarp(ImageInfo image, Interpolation interpolation) {
+    checkImage(image);
+    if (interpolation == null) {
+      throw new IllegalArgumentException("Interpolation cannot be null.");
+    }
+  }
+
+  private static void checkFinite(String message, double... values) {
+    for (double value : values) {
+      if (!Double.isFinite(value)) {
+        throw new IllegalArgumentException(message);
+      }
+    }
+  }
+
   private ImageInfo[] splitImage(ImageInfo image, int percentage) {
     int width = image.getWidth();
     int height = image.getHeight();
@@ -144,7 +587,38 @@ public class EnhancedImageProcessor extends ImageProcessor implements
         }
       }
     }
-    return new ImageData(combinedData);
+    ImageData combined = new ImageData(combinedData);
+    cacheSplitHistograms(combined, originalImage, leftWidth);
+    return combined;
+  }
+
+  /**
+   * Caches the histograms of a split result whose columns from the given one
+   * on are those of the original image, if the histograms of the original are
+   * cached and the processed part is the smaller one. They are then the
+   * histograms of the processed columns plus those of the original less its
+   * replaced columns, so moving the split point of a preview only counts the
+   * columns to its left.
+   */
+  private static void cacheSplitHistograms(ImageData combined, ImageInfo originalImage,
+                                           int splitColumn) {
+    if (!(originalImage instanceof ImageData)
+            || ((ImageData) originalImage).getCachedHistograms() == null
+            || combined.getWidth() != originalImage.getWidth()
+            || combined.getHeight() != originalImage.getHeight()
+            || 2 * splitColumn > combined.getWidth()) {
+      return;
+    }
+    int[][] original = ((ImageData) originalImage).getCachedHistograms();
+    int[][] replaced = Histograms.compute(originalImage, 0, splitColumn);
+    int[][] processed = Histograms.compute(combined, 0, splitColumn);
+    int[][] histograms = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      for (int value = 0; value < 256; value++) {
+        histograms[k][value] = original[k][value] - replaced[k][value] + processed[k][value];
+      }
+    }
+    combined.cacheHistograms(histograms);
   }
 
   private ImageInfo performLevelAdjustment(
@@ -169,21 +643,56 @@ public class EnhancedImageProcessor extends ImageProcessor implements
     double a = aA / first;
     double b = aB / first;
     double c = aC / first;
-    BufferedImage correctedImage = new BufferedImage(width, height,
-            BufferedImage.TYPE_INT_RGB);
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int redValue = image.getPixelValue(i, j, 0);
-        int greenValue = image.getPixelValue(i, j, 1);
-        int blueValue = image.getPixelValue(i, j, 2);
-        redValue = applyLevelsAdjustment(redValue, a, b, c);
-        greenValue = applyLevelsAdjustment(greenValue, a, b, c);
-        blueValue = applyLevelsAdjustment(blueValue, a, b, c);
-        int rgb = (redValue << 16) | (greenValue << 8) | blueValue;
-        correctedImage.setRGB(j, i, rgb);
+    int[] table = new int[256];
+    for (int value = 0; value < 256; value++) {
+      table[value] = applyLevelsAdjustment(value, a, b, c);
+    }
+    return applyTables(image, new int[][]{table, table, table});
+  }
+
+  /**
+   * Maps every sample of an image through the 256-entry table of its channel,
+   * in a single parallel pass.
+   */
+  private static ImageInfo applyTables(ImageInfo image, int[][] tables) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        for (int k = 0; k < 3; k++) {
+          planes[k][p] = tables[k][planes[k][p]];
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(planes, width, height);
+  }
+
+  /**
+   * Builds the table of every channel that maps each value of the image to
+   * the smallest value of the reference whose share of reference samples at
+   * or below it is at least the share of image samples at or below the
+   * value.
+   */
+  private int[][] histogramMatchingTables(ImageInfo image, ImageInfo reference) {
+    int[][] source = computeHistograms(image);
+    int[][] target = computeHistograms(reference);
+    long sourceCount = (long) image.getWidth() * image.getHeight();
+    long targetCount = (long) reference.getWidth() * reference.getHeight();
+    int[][] tables = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      long sourceTotal = 0;
+      long targetTotal = target[k][0];
+      int mapped = 0;
+      for (int value = 0; value < 256; value++) {
+        sourceTotal += source[k][value];
+        while (mapped < 255 && targetTotal * sourceCount < sourceTotal * targetCount) {
+          targetTotal += target[k][++mapped];
+        }
+        tables[k][value] = mapped;
       }
     }
-    return new ImageData(correctedImage);
+    return tables;
   }
 
   private static int applyLevelsAdjustment(int value, double a, double b, double c) {
@@ -248,19 +757,21 @@ public class EnhancedImageProcessor extends ImageProcessor implements
     return peakIndex;
   }
 
+  /**
+   * Computes the red, green and blue histograms of an image. The histograms
+   * of an ImageData are cached on it, so callers must not modify them.
+   */
   private int[][] computeHistograms(ImageInfo image) {
-    int[][] histograms = new int[3][256];
-    int height = image.getHeight();
-    int width = image.getWidth();
-
-    for (int channel = 0; channel < 3; channel++) {
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          int pixelValue = Math.min(255, Math.max(0, image.getPixelValue(i, j, channel)));
-          histograms[channel][pixelValue]++;
-        }
+    if (image instanceof ImageData) {
+      int[][] cached = ((ImageData) image).getCachedHistograms();
+      if (cached != null) {
+        return cached;
       }
     }
+    int[][] histograms = Histograms.compute(image);
+    if (image instanceof ImageData) {
+      ((ImageData) image).cacheHistograms(histograms);
+    }
     return histograms;
   }
 
@@ -0,0 +1,201 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The ErrorDiffusion class quantizes every channel of an image to a fixed
+ * number of evenly spaced levels and spreads the quantization error of each
+ * pixel onto the pixels that come after it.
+ *
+ * <p>Because a pixel depends on pixels of the rows above it, rows cannot simply
+ * be handed to separate threads. Instead they are processed as a diagonal
+ * wavefront: every row runs on its own worker and only advances to a column once
+ * the row above has finished the pixels that send error into it. Errors are kept
+ * as integers in sixteenths of a channel value, and every row receives error from each
+ * earlier row in its own buffer, so the result is identical to a serial pass.
+ *
+ * <p>The workers wait for each other, so they get a pool of their own rather
+ * than sharing the common pool, where some of them might never start. If one
+ * fails, the others stop waiting and the first failure is rethrown.
+ */
+class ErrorDiffusion {
+
+  /**
+   * Floyd-Steinberg weights as {column offset, row offset, weight in sixteenths}.
+   */
+  static final int[][] FLOYD_STEINBERG = {
+    {1, 0, 7}, {-1, 1, 3}, {0, 1, 5}, {1, 1, 1}
+  };
+
+  /**
+   * Atkinson weights as {column offset, row offset, weight in sixteenths}. Only
+   * three quarters of the error are passed on.
+   */
+  static final int[][] ATKINSON = {
+    {1, 0, 2}, {2, 0, 2}, {-1, 1, 2}, {0, 1, 2}, {1, 1, 2}, {0, 2, 2}
+  };
+
+  private static final int PUBLISH_INTERVAL = 64;
+
+  /**
+   * Dithers an image.
+   *
+   * @param image  The image to dither.
+   * @param kernel The diffusion weights, one of the kernels of this class.
+   * @param levels The number of levels per channel, between 2 and 256.
+   * @return A new ImageInfo with the dithered image.
+   */
+  static ImageInfo dither(ImageInfo image, int[][] kernel, int levels) {
+    return dither(image, kernel, levels, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Dithers an image using the given number of worker threads.
+   *
+   * @param image   The image to dither.
+   * @param kernel  The diffusion weights, one of the kernels of this class.
+   * @param levels  The number of levels per channel, between 2 and 256.
+   * @param threads The number of rows to work on at the same time.
+   * @return A new ImageInfo with the dithered image.
+   */
+  static ImageInfo dither(ImageInfo image, int[][] kernel, int levels, int threads) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    int depth = 0;
+    for (int[] tap : kernel) {
+      depth = Math.max(depth, tap[1]);
+    }
+    int[][][] received = new int[depth + 1][3][];
+    for (int d = 1; d <= depth; d++) {
+      for (int k = 0; k < 3; k++) {
+        received[d][k] = new int[width * height];
+      }
+    }
+    int[] table = quantizationTable(levels);
+    int[][] result = new int[3][width * height];
+    AtomicIntegerArray progress = new AtomicIntegerArray(height);
+
+    int workers = Math.min(height, threads);
+    if (workers <= 1) {
+      AtomicBoolean never = new AtomicBoolean();
+      for (int i = 0; i < height; i++) {
+        ditherRow(planes, received, kernel, table, result, width, i, progress, never);
+      }
+      return ModelUtil.fromPlanes(result, width, height);
+    }
+    AtomicBoolean aborted = new AtomicBoolean();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    List<Future<?>> rowWorkers = new ArrayList<>();
+    try {
+      for (int t = 0; t < workers; t++) {
+        int first = t;
+        rowWorkers.add(executor.submit(() -> {
+          try {
+            for (int i = first; i < height; i += workers) {
+              if (!ditherRow(planes, received, kernel, table, result, width, i, progress,
+                      aborted)) {
+                return;
+              }
+            }
+          } catch (RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+            aborted.set(true);
+          }
+        }));
+      }
+      for (Future<?> rowWorker : rowWorkers) {
+        rowWorker.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Dithering failed.", e.getCause());
+    } catch (InterruptedException e) {
+      aborted.set(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Dithering was interrupted.");
+    } finally {
+      executor.shutdown();
+    }
+    if (failure.get() instanceof RuntimeException) {
+      throw (RuntimeException) failure.get();
+    }
+    if (failure.get() instanceof Error) {
+      throw (Error) failure.get();
+    }
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  /**
+   * Dithers one row, waiting for the row above as needed.
+   *
+   * @return Whether the row was finished, which it is not if another row
+   *         failed while this one was waiting.
+   */
+  private static boolean ditherRow(int[][] planes, int[][][] received, int[][] kernel,
+                                   int[] table, int[][] result, int width, int row,
+                                   AtomicIntegerArray progress, AtomicBoolean aborted) {
+    int height = progress.length();
+    int[][] carry = new int[3][2];
+    int aboveDone = row == 0 ? width : 0;
+    for (int j = 0; j < width; j++) {
+      int needed = Math.min(width, j + 2);
+      while (aboveDone < needed) {
+        if (aborted.get()) {
+          return false;
+        }
+        aboveDone = progress.get(row - 1);
+        if (aboveDone < needed) {
+          Thread.yield();
+        }
+      }
+      int index = row * width + j;
+      for (int k = 0; k < 3; k++) {
+        int error = carry[k][0];
+        for (int d = 1; d < received.length; d++) {
+          error += received[d][k][index];
+        }
+        int value = Math.min(255, Math.max(0, planes[k][index] + ((error + 8) >> 4)));
+        int quantized = table[value];
+        result[k][index] = quantized;
+        int difference = value - quantized;
+
+        carry[k][0] = carry[k][1];
+        carry[k][1] = 0;
+        for (int[] tap : kernel) {
+          int column = j + tap[0];
+          if (column < 0 || column >= width) {
+            continue;
+          }
+          if (tap[1] == 0) {
+            carry[k][tap[0] - 1] += difference * tap[2];
+          } else if (row + tap[1] < height) {
+            received[tap[1]][k][(row + tap[1]) * width + column] += difference * tap[2];
+          }
+        }
+      }
+      if ((j + 1) % PUBLISH_INTERVAL == 0) {
+        progress.set(row, j + 1);
+      }
+    }
+    progress.set(row, width);
+    return true;
+  }
+
+  private static int[] quantizationTable(int levels) {
+    int[] table = new int[256];
+    for (int v = 0; v < 256; v++) {
+      int level = (v * (levels - 1) + 127) / 255;
+      table[v] = (level * 255 + (levels - 1) / 2) / (levels - 1);
+    }
+    return table;
+  }
+}
@@ -0,0 +1,145 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The GuidedFilter class smooths images while keeping their edges, with every
+ * channel guiding its own filtering. Around each pixel the output is a linear
+ * function of the input whose slope is the local variance over the variance
+ * plus eps, so flat areas are averaged and strong edges pass through. All the
+ * local statistics are box means, computed with running sums along the rows
+ * and then down the columns, so every pixel costs the same whatever the
+ * radius. Windows are clipped at the borders. Bands of rows run in parallel.
+ *
+ * <p>The difference between an image and its filtered version is its detail
+ * layer; adding a multiple of it back sharpens the image with much weaker
+ * halos around strong edges than a fixed sharpening kernel leaves.
+ */
+class GuidedFilter {
+  private static final int BAND_HEIGHT = 32;
+
+  /**
+   * Filters an image.
+   *
+   * @param image  The image to filter.
+   * @param radius The radius of the square window, at least 1.
+   * @param eps    The regularization, as a variance of values scaled to 0-1.
+   *               Edges whose variance is well above it are kept.
+   * @return The filtered image.
+   */
+  static ImageInfo filter(ImageInfo image, int radius, double eps) {
+    return enhance(image, -1, radius, eps);
+  }
+
+  /**
+   * Adds a multiple of the detail layer of an image back to it. An amount of
+   * -1 gives the filtered image and 0 the image itself.
+   *
+   * @param image  The image to enhance.
+   * @param amount The multiple of the detail layer to add.
+   * @param radius The radius of the square window of the filter.
+   * @param eps    The regularization of the filter, as a variance of values
+   *               scaled to 0-1.
+   * @return The enhanced image.
+   */
+  static ImageInfo enhance(ImageInfo image, double amount, int radius, double eps) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    double scaledEps = eps * 255 * 255;
+    int[][] result = new int[3][];
+    for (int k = 0; k < 3; k++) {
+      int[] plane = planes[k];
+      float[] values = new float[plane.length];
+      float[] squares = new float[plane.length];
+      for (int p = 0; p < plane.length; p++) {
+        values[p] = plane[p];
+        squares[p] = (float) plane[p] * plane[p];
+      }
+      float[] mean = boxMean(values, width, height, radius);
+      float[] meanSquare = boxMean(squares, width, height, radius);
+      // The inputs are no longer needed, so they hold the coefficients.
+      float[] slope = squares;
+      float[] offset = values;
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int p = i * width; p < (i + 1) * width; p++) {
+          double variance = Math.max(0, meanSquare[p] - (double) mean[p] * mean[p]);
+          double a = variance / (variance + scaledEps);
+          slope[p] = (float) a;
+          offset[p] = (float) ((1 - a) * mean[p]);
+        }
+      });
+      float[] meanSlope = boxMean(slope, width, height, radius);
+      float[] meanOffset = boxMean(offset, width, height, radius);
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int p = i * width; p < (i + 1) * width; p++) {
+          double base = meanSlope[p] * plane[p] + meanOffset[p];
+          double value = plane[p] + amount * (plane[p] - base);
+          plane[p] = ModelUtil.clamp((int) Math.round(value));
+        }
+      });
+      result[k] = plane;
+    }
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  /**
+   * Computes the mean of every (2 * radius + 1)-square window clipped to the
+   * image: running sums along each row, then running sums of those down the
+   * columns, one band of rows at a time.
+   */
+  private static float[] boxMean(float[] input, int width, int height, int radius) {
+    float[] rowSums = new float[input.length];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int row = i * width;
+      double sum = 0;
+      for (int j = 0; j < Math.min(width, radius); j++) {
+        sum += input[row + j];
+      }
+      for (int j = 0; j < width; j++) {
+        if (j + radius < width) {
+          sum += input[row + j + radius];
+        }
+        if (j - radius - 1 >= 0) {
+          sum -= input[row + j - radius - 1];
+        }
+        rowSums[row + j] = (float) sum;
+      }
+    });
+    double[] columnWeights = new double[width];
+    for (int j = 0; j < width; j++) {
+      columnWeights[j] = 1.0 / (Math.min(width - 1, j + radius) - Math.max(0, j - radius) + 1);
+    }
+    float[] output = new float[input.length];
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      int fromRow = band * BAND_HEIGHT;
+      int toRow = Math.min(height, fromRow + BAND_HEIGHT);
+      double[] sums = new double[width];
+      for (int r = Math.max(0, fromRow - radius - 1); r < Math.min(height, fromRow + radius); r++) {
+        for (int j = 0; j < width; j++) {
+          sums[j] += rowSums[r * width + j];
+        }
+      }
+      for (int i = fromRow; i < toRow; i++) {
+        if (i + radius < height) {
+          int added = (i + radius) * width;
+          for (int j = 0; j < width; j++) {
+            sums[j] += rowSums[added + j];
+          }
+        }
+        if (i - radius - 1 >= 0) {
+          int removed = (i - radius - 1) * width;
+          for (int j = 0; j < width; j++) {
+            sums[j] -= rowSums[removed + j];
+          }
+        }
+        double rowWeight = 1.0 / (Math.min(height - 1, i + radius) - Math.max(0, i - radius) + 1);
+        for (int j = 0; j < width; j++) {
+          output[i * width + j] = (float) (sums[j] * rowWeight * columnWeights[j]);
+        }
+      }
+    });
+    return output;
+  }
+}
@@ -0,0 +1,170 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * This class indexes values by 64-bit hashes for lookups by Hamming distance,
+ * such as finding the images whose perceptual hash is close to that of a given
+ * image. It is a BK-tree: every child of a node sits at a fixed distance from
+ * it, so by the triangle inequality a search within a distance of a query only
+ * visits the children whose distance from their parent is within that much of
+ * the distance between the parent and the query. This class is not
+ * thread-safe.
+ *
+ * @param <T> The type of the indexed values.
+ */
+public class HashIndex<T> {
+  private static final int BITS = 64;
+
+  private Node<T> root;
+  private int size;
+
+  /**
+   * Adds a value to the index.
+   *
+   * @param hash  The hash of the value.
+   * @param value The value.
+   */
+  public void add(long hash, T value) {
+    Match<T> entry = new Match<>(value, hash, 0, size++);
+    if (root == null) {
+      root = new Node<>(hash);
+      root.entries.add(entry);
+      return;
+    }
+    Node<T> node = root;
+    while (true) {
+      int distance = distance(node.hash, hash);
+      if (distance == 0) {
+        node.entries.add(entry);
+        return;
+      }
+      if (node.children[distance] == null) {
+        node.children[distance] = new Node<>(hash);
+        node.children[distance].entries.add(entry);
+        return;
+      }
+      node = node.children[distance];
+    }
+  }
+
+  /**
+   * Gets the number of values in the index.
+   *
+   * @return The number of values added.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the values whose hash is within a Hamming distance of a hash.
+   *
+   * @param hash        The hash to look up.
+   * @param maxDistance The largest number of differing bits, 0-64.
+   * @return The matches, nearest first and in the order they were added
+   *         among equally near ones.
+   */
+  public List<Match<T>> search(long hash, int maxDistance) {
+    List<Match<T>> matches = new ArrayList<>();
+    if (root == null) {
+      return matches;
+    }
+    Deque<Node<T>> pending = new ArrayDeque<>();
+    pending.push(root);
+    while (!pending.isEmpty()) {
+      Node<T> node = pending.pop();
+      int distance = distance(node.hash, hash);
+      if (distance <= maxDistance) {
+        for (Match<T> entry : node.entries) {
+          matches.add(new Match<>(entry.value, entry.hash, distance, entry.order));
+        }
+      }
+      int to = Math.min(BITS, distance + maxDistance);
+      for (int d = Math.max(1, distance - maxDistance); d <= to; d++) {
+        if (node.children[d] != null) {
+          pending.push(node.children[d]);
+        }
+      }
+    }
+    matches.sort(Comparator.<Match<T>>comparingInt(match -> match.distance)
+            .thenComparingInt(match -> match.order));
+    return matches;
+  }
+
+  /**
+   * Counts the bits in which two hashes differ.
+   *
+   * @param a The first hash.
+   * @param b The second hash.
+   * @return The Hamming distance, 0-64.
+   */
+  public static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+
+  /**
+   * A value found by a search, with its hash and its distance from the query.
+   *
+   * @param <T> The type of the value.
+   */
+  public static class Match<T> {
+    private final T value;
+    private final long hash;
+    private final int distance;
+    private final int order;
+
+    Match(T value, long hash, int distance, int order) {
+      this.value = value;
+      this.hash = hash;
+      this.distance = distance;
+      this.order = order;
+    }
+
+    /**
+     * Gets the value that was found.
+     *
+     * @return The value.
+     */
+    public T getValue() {
+      return value;
+    }
+
+    /**
+     * Gets the hash of the value that was found.
+     *
+     * @return The hash.
+     */
+    public long getHash() {
+      return hash;
+    }
+
+    /**
+     * Gets the distance of the hash of the value from the query.
+     *
+     * @return The number of differing bits.
+     */
+    public int getDistance() {
+      return distance;
+    }
+  }
+
+  private static class Node<T> {
+    private final long hash;
+    private final List<Match<T>> entries = new ArrayList<>(1);
+    private final Node<T>[] children = newChildren();
+
+    Node(long hash) {
+      this.hash = hash;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Node<T>[] newChildren() {
+      return new Node[BITS + 1];
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The Histograms class holds the histogram routines shared by the operations
+ * of the model that work on the distribution of channel values.
+ */
+class Histograms {
+  private static final int BAND_HEIGHT = 64;
+
+  /**
+   * Computes the histograms of all three channels of an image in a single
+   * pass over its pixels. Bands of rows are counted in parallel, each into
+   * its own bins, and the bins are added up at the end. Values outside 0-255
+   * are counted at the nearest end of the range.
+   *
+   * @param image The image.
+   * @return The red, green and blue histograms, 256 bins each.
+   */
+  static int[][] compute(ImageInfo image) {
+    return compute(image, 0, image.getWidth());
+  }
+
+  /**
+   * Computes the histograms of all three channels of a range of columns of an
+   * image, in the same way as for the whole image.
+   *
+   * @param image      The image.
+   * @param fromColumn The first column (inclusive).
+   * @param toColumn   The last column (exclusive).
+   * @return The red, green and blue histograms of the columns, 256 bins each.
+   */
+  static int[][] compute(ImageInfo image, int fromColumn, int toColumn) {
+    int height = image.getHeight();
+    int[][][] data = image instanceof ImageData ? ((ImageData) image).getData() : null;
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    return IntStream.range(0, bands).parallel().mapToObj(band -> {
+      int[] redBins = new int[256];
+      int[] greenBins = new int[256];
+      int[] blueBins = new int[256];
+      int toRow = Math.min(height, (band + 1) * BAND_HEIGHT);
+      for (int i = band * BAND_HEIGHT; i < toRow; i++) {
+        if (data != null) {
+          int[][] row = data[i];
+          for (int j = fromColumn; j < toColumn; j++) {
+            int[] pixel = row[j];
+            redBins[ModelUtil.clamp(pixel[0])]++;
+            greenBins[ModelUtil.clamp(pixel[1])]++;
+            blueBins[ModelUtil.clamp(pixel[2])]++;
+          }
+        } else {
+          for (int j = fromColumn; j < toColumn; j++) {
+            redBins[ModelUtil.clamp(image.getPixelValue(i, j, 0))]++;
+            greenBins[ModelUtil.clamp(image.getPixelValue(i, j, 1))]++;
+            blueBins[ModelUtil.clamp(image.getPixelValue(i, j, 2))]++;
+          }
+        }
+      }
+      return new int[][]{redBins, greenBins, blueBins};
+    }).reduce(new int[3][256], (a, b) -> {
+      int[][] sum = new int[3][256];
+      for (int k = 0; k < 3; k++) {
+        for (int value = 0; value < 256; value++) {
+          sum[k][value] = a[k][value] + b[k][value];
+        }
+      }
+      return sum;
+    });
+  }
+
+  /**
+   * Adds the values of a rectangular region to the histograms of all three
+   * channels in a single pass over the region.
+   *
+   * @param planes     The channel buffers (R, G, B) of the image, with values
+   *                   already limited to 0-255.
+   * @param width      The width of the image.
+   * @param fromRow    The first row of the region (inclusive).
+   * @param toRow      The last row of the region (exclusive).
+   * @param fromColumn The first column of the region (inclusive).
+   * @param toColumn   The last column of the region (exclusive).
+   * @param bins       Three arrays of 256 bins to add the counts to.
+   */
+  static void accumulate(int[][] planes, int width, int fromRow, int toRow,
+                         int fromColumn, int toColumn, int[][] bins) {
+    int[] red = planes[0];
+    int[] green = planes[1];
+    int[] blue = planes[2];
+    int[] redBins = bins[0];
+    int[] greenBins = bins[1];
+    int[] blueBins = bins[2];
+    for (int i = fromRow; i < toRow; i++) {
+      int rowStart = i * width;
+      for (int j = rowStart + fromColumn; j < rowStart + toColumn; j++) {
+        redBins[red[j]]++;
+        greenBins[green[j]]++;
+        blueBins[blue[j]]++;
+      }
+    }
+  }
+}
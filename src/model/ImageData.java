@@ -9,6 +9,7 @@ import java.awt.image.BufferedImage;
  */
 public class ImageData implements ImageInfo {
   private final int[][][] data;
+  private volatile int[][] histograms;
 
   /**
    * Creates an ImageData instance from a 3D array representing color image data.
@@ -76,6 +77,38 @@ public class ImageData implements ImageInfo {
     return data[0].length;
   }
 
+  /**
+   * Gives the other model classes direct read access to the pixel array, so
+   * bulk operations can skip the per-sample checks of getPixelValue.
+   * Callers must not modify the returned array.
+   *
+   * @return The pixel array, indexed by row, column and channel.
+   */
+  int[][][] getData() {
+    return data;
+  }
+
+  /**
+   * Gets the channel histograms the model has computed for this image, so
+   * repeated operations that need them do not scan the pixels again. The
+   * pixels must not change once histograms are cached.
+   *
+   * @return The red, green and blue histograms, or null if none are cached.
+   */
+  int[][] getCachedHistograms() {
+    return histograms;
+  }
+
+  /**
+   * Caches the channel histograms of this image. Callers must not modify
+   * the histograms afterwards.
+   *
+   * @param histograms The red, green and blue histograms.
+   */
+  void cacheHistograms(int[][] histograms) {
+    this.histograms = histograms;
+  }
+
   @Override
   public BufferedImage convertPixelDataToBufferedImage() {
     int height = getHeight();
@@ -0,0 +1,65 @@
+package model;
+
+/**
+ * This class holds the quality metrics of an image measured against a
+ * reference image, for each colour channel: the mean squared error, the peak
+ * signal-to-noise ratio in decibels and the structural similarity index.
+ */
+public class ImageMetrics {
+  private final double[] mse;
+  private final double[] ssim;
+
+  /**
+   * Creates the metrics from the error and the similarity of every channel.
+   *
+   * @param mse  The mean squared error of the red, green and blue channels.
+   * @param ssim The structural similarity of the red, green and blue channels.
+   * @throws IllegalArgumentException If there are not three values of each.
+   */
+  public ImageMetrics(double[] mse, double[] ssim) throws IllegalArgumentException {
+    if (mse == null || ssim == null || mse.length != 3 || ssim.length != 3) {
+      throw new IllegalArgumentException("There should be one value per channel.");
+    }
+    this.mse = mse.clone();
+    this.ssim = ssim.clone();
+  }
+
+  /**
+   * Gets the mean squared error of a channel.
+   *
+   * @param channel The channel, 0 for red, 1 for green and 2 for blue.
+   * @return The mean of the squared differences of the samples.
+   */
+  public double getMse(int channel) {
+    return mse[checkChannel(channel)];
+  }
+
+  /**
+   * Gets the peak signal-to-noise ratio of a channel.
+   *
+   * @param channel The channel, 0 for red, 1 for green and 2 for blue.
+   * @return The ratio in decibels, infinite if the channels are identical.
+   */
+  public double getPsnr(int channel) {
+    double error = mse[checkChannel(channel)];
+    return error == 0 ? Double.POSITIVE_INFINITY
+            : 10 * Math.log10(255.0 * 255.0 / error);
+  }
+
+  /**
+   * Gets the structural similarity index of a channel.
+   *
+   * @param channel The channel, 0 for red, 1 for green and 2 for blue.
+   * @return The mean similarity, 1 if the channels are identical.
+   */
+  public double getSsim(int channel) {
+    return ssim[checkChannel(channel)];
+  }
+
+  private int checkChannel(int channel) {
+    if (channel < 0 || channel > 2) {
+      throw new IllegalArgumentException("Channel should be 0, 1 or 2.");
+    }
+    return channel;
+  }
+}
@@ -2,6 +2,7 @@ package model;
 
 
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * An implementation of the ImageProcessingModel interface for image manipulations
@@ -40,24 +41,21 @@ public class ImageProcessor implements ImageProcessingModel {
   public ImageInfo createValueComponentOfImage(ImageInfo imageData) throws
           IllegalArgumentException {
     checkImage(imageData);
-    return calculate(imageData, (value1, value2, value3
-    ) -> Math.max(value1, Math.max(value2, value3)));
+    return calculate(imageData, ColorSpaces::value);
   }
 
   @Override
   public ImageInfo createLumaComponentOfImage(ImageInfo imageData) throws
           IllegalArgumentException {
     checkImage(imageData);
-    return calculate(imageData, (red, green, blue
-    ) -> (int) (0.2126 * red + 0.7152 * green + 0.0722 * blue));
+    return calculate(imageData, ColorSpaces::luma);
   }
 
   @Override
   public ImageInfo createIntensityComponentOfImage(ImageInfo imageData) throws
           IllegalArgumentException {
     checkImage(imageData);
-    return calculate(imageData, (value1, value2, value3
-    ) -> (value1 + value2 + value3) / 3);
+    return calculate(imageData, ColorSpaces::intensity);
   }
 
   @Override
@@ -128,7 +126,7 @@ public class ImageProcessor implements ImageProcessingModel {
     return linearTransformation(imageData, ModelUtil.getGreyScaleFilter());
   }
 
-  private void checkImage(ImageInfo imageData) {
+  void checkImage(ImageInfo imageData) {
     if (imageData == null) {
       throw new IllegalArgumentException("Image data cannot be null.");
     }
@@ -154,27 +152,13 @@ public class ImageProcessor implements ImageProcessingModel {
   }
 
 
-  private ImageInfo calculate(ImageInfo image,
-                              TriFunction<Integer, Integer, Integer, Integer> operation) {
-    if (operation == null) {
+  private ImageInfo calculate(ImageInfo image, Function<int[][], int[]> component) {
+    if (component == null) {
       throw new IllegalArgumentException("Cannot perform the specified operation.");
     }
-    int height = image.getHeight();
-    int width = image.getWidth();
-    int[][][] result = new int[height][width][3];
-    for (int x = 0; x < height; x++) {
-      for (int y = 0; y < width; y++) {
-        int red = image.getPixelValue(x, y, 0);
-        int green = image.getPixelValue(x, y, 1);
-        int blue = image.getPixelValue(x, y, 2);
-        int newValue = operation.apply(red, green, blue);
-        result[x][y][0] = newValue;
-        result[x][y][1] = newValue;
-        result[x][y][2] = newValue;
-      }
-    }
-
-    return new ImageData(result);
+    int[] values = component.apply(ModelUtil.toPlanes(image));
+    return ModelUtil.fromPlanes(new int[][]{values, values, values}, image.getWidth(),
+            image.getHeight());
   }
 
   private ImageInfo flip(ImageInfo image,
@@ -0,0 +1,119 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class represents a multi-resolution pyramid of an image. Level 0 is the
+ * image itself and every following level is half the width and height of the
+ * one before, down to a single pixel. Levels are built lazily, each one from the
+ * level above it by averaging 2x2 blocks, so the whole pyramid costs about a
+ * third of the base image and is only paid for the levels that are used.
+ */
+public class ImagePyramid {
+  private final List<ImageInfo> levels;
+  private final int levelCount;
+
+  /**
+   * Creates a pyramid over the given image. No levels are built yet.
+   *
+   * @param base The full-resolution image.
+   */
+  public ImagePyramid(ImageInfo base) {
+    if (base == null) {
+      throw new IllegalArgumentException("Image data cannot be null.");
+    }
+    this.levels = new ArrayList<>();
+    this.levels.add(base);
+    int count = 1;
+    int width = base.getWidth();
+    int height = base.getHeight();
+    while (width > 1 || height > 1) {
+      width = (width + 1) / 2;
+      height = (height + 1) / 2;
+      count++;
+    }
+    this.levelCount = count;
+  }
+
+  /**
+   * Gets the full-resolution image of this pyramid.
+   *
+   * @return The base image.
+   */
+  public ImageInfo getBase() {
+    return levels.get(0);
+  }
+
+  /**
+   * Gets the number of levels in this pyramid, including the base image.
+   *
+   * @return The number of levels.
+   */
+  public int getLevelCount() {
+    return levelCount;
+  }
+
+  /**
+   * Gets a level of the pyramid, building it and the levels above it if needed.
+   *
+   * @param level The level, 0 being the base image. Levels past the last one
+   *              give the last (1x1) level.
+   * @return The image at that level.
+   */
+  public synchronized ImageInfo getLevel(int level) {
+    if (level < 0) {
+      throw new IllegalArgumentException("Pyramid level cannot be negative.");
+    }
+    level = Math.min(level, levelCount - 1);
+    while (levels.size() <= level) {
+      levels.add(halve(levels.get(levels.size() - 1)));
+    }
+    return levels.get(level);
+  }
+
+  /**
+   * Gets the smallest level that still has at least the given number of pixels,
+   * which is the cheapest level that can be shown or processed at that size.
+   *
+   * @param pixels The number of pixels needed.
+   * @return The best level for that number of pixels, or the base image if it
+   *         is smaller than that.
+   */
+  public ImageInfo bestLevelFor(long pixels) {
+    long width = getBase().getWidth();
+    long height = getBase().getHeight();
+    int level = 0;
+    while (level < levelCount - 1
+            && ((width + 1) / 2) * ((height + 1) / 2) >= pixels) {
+      width = (width + 1) / 2;
+      height = (height + 1) / 2;
+      level++;
+    }
+    return getLevel(level);
+  }
+
+  private static ImageInfo halve(ImageInfo image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int halfWidth = (width + 1) / 2;
+    int halfHeight = (height + 1) / 2;
+    int[][] planes = ModelUtil.toPlanes(image);
+    int[][] result = new int[3][halfWidth * halfHeight];
+    IntStream.range(0, halfHeight).parallel().forEach(i -> {
+      int top = 2 * i * width;
+      int bottom = Math.min(2 * i + 1, height - 1) * width;
+      for (int j = 0; j < halfWidth; j++) {
+        int left = 2 * j;
+        int right = Math.min(2 * j + 1, width - 1);
+        for (int k = 0; k < 3; k++) {
+          int[] source = planes[k];
+          result[k][i * halfWidth + j] = (source[top + left] + source[top + right]
+                  + source[bottom + left] + source[bottom + right] + 2) >> 2;
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(result, halfWidth, halfHeight);
+  }
+}
@@ -0,0 +1,248 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+/**
+ * The ImageStacker class reduces a stack of same-size images to one image.
+ * Frames are taken one at a time and folded into per-sample accumulators, so
+ * memory does not grow with the number of frames.
+ *
+ * <p>The mean and the maximum need a single pass over the frames. The median is
+ * found with a radix select in two passes: the first counts every sample in a
+ * 16-bin histogram of its upper four bits, which gives the bin holding the
+ * median, and the second counts only the samples in that bin by their lower
+ * four bits. Counters are 16 bits wide, which bounds a median stack to 65535
+ * frames.
+ */
+class ImageStacker {
+  private static final int BIN_BITS = 4;
+  private static final int BINS = 1 << BIN_BITS;
+  private static final int MAX_MEDIAN_FRAMES = Character.MAX_VALUE;
+
+  /**
+   * Stacks images.
+   *
+   * @param frames The images to stack. They are iterated once, or twice for the
+   *               median, and each frame is only used while it is being added.
+   * @param mode   How the samples of a pixel are combined.
+   * @return The stacked image.
+   * @throws IllegalArgumentException If there are no frames, a frame is null,
+   *                                  the frames differ in size or there are
+   *                                  too many frames for a median.
+   */
+  static ImageInfo stack(Iterable<ImageInfo> frames, StackMode mode)
+          throws IllegalArgumentException {
+    switch (mode) {
+      case MEAN:
+        return mean(frames);
+      case MEDIAN:
+        return median(frames);
+      default:
+        return max(frames);
+    }
+  }
+
+  private static ImageInfo mean(Iterable<ImageInfo> frames) {
+    Frames stream = new Frames(frames);
+    int[][] sums = stream.firstPlanes();
+    int count = 1;
+    while (stream.hasNext()) {
+      int[][] planes = stream.nextPlanes();
+      forEachRow(stream, (from, to) -> {
+        for (int k = 0; k < 3; k++) {
+          for (int p = from; p < to; p++) {
+            sums[k][p] += planes[k][p];
+          }
+        }
+      });
+      count++;
+    }
+    int frameCount = count;
+    forEachRow(stream, (from, to) -> {
+      for (int k = 0; k < 3; k++) {
+        for (int p = from; p < to; p++) {
+          sums[k][p] = (sums[k][p] + frameCount / 2) / frameCount;
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(sums, stream.width, stream.height);
+  }
+
+  private static ImageInfo max(Iterable<ImageInfo> frames) {
+    Frames stream = new Frames(frames);
+    int[][] result = stream.firstPlanes();
+    while (stream.hasNext()) {
+      int[][] planes = stream.nextPlanes();
+      forEachRow(stream, (from, to) -> {
+        for (int k = 0; k < 3; k++) {
+          for (int p = from; p < to; p++) {
+            result[k][p] = Math.max(result[k][p], planes[k][p]);
+          }
+        }
+      });
+    }
+    return ModelUtil.fromPlanes(result, stream.width, stream.height);
+  }
+
+  /**
+   * Finds the median of every sample; for an even number of frames, the lower
+   * of the two middle values. Every sample keeps the value bits found so far
+   * and the rank of the median among the frames still in its range.
+   */
+  private static ImageInfo median(Iterable<ImageInfo> frames) {
+    char[] counts = null;
+    byte[] prefix = null;
+    char[] rank = null;
+    int width = 0;
+    int height = 0;
+    int firstFrameCount = 0;
+    for (int shift = 8 - BIN_BITS; shift >= 0; shift -= BIN_BITS) {
+      Frames stream = new Frames(frames);
+      int[][] planes = stream.firstPlanes();
+      if (counts == null) {
+        width = stream.width;
+        height = stream.height;
+        counts = new char[3 * width * height * BINS];
+        prefix = new byte[3 * width * height];
+        rank = new char[3 * width * height];
+      } else {
+        stream.checkSize(width, height);
+        Arrays.fill(counts, (char) 0);
+      }
+      int frameCount = 0;
+      while (true) {
+        frameCount++;
+        if (frameCount > MAX_MEDIAN_FRAMES) {
+          throw new IllegalArgumentException("At most " + MAX_MEDIAN_FRAMES
+                  + " images can be stacked by median.");
+        }
+        count(planes, stream, counts, prefix, shift);
+        if (!stream.hasNext()) {
+          break;
+        }
+        planes = stream.nextPlanes();
+      }
+      if (shift == 8 - BIN_BITS) {
+        firstFrameCount = frameCount;
+        Arrays.fill(rank, (char) ((frameCount - 1) / 2));
+      } else if (frameCount != firstFrameCount) {
+        throw new IllegalArgumentException("The images changed while they were stacked.");
+      }
+      select(stream, counts, prefix, rank, shift);
+    }
+
+    int[][] result = new int[3][width * height];
+    for (int k = 0; k < 3; k++) {
+      for (int p = 0; p < width * height; p++) {
+        result[k][p] = prefix[3 * p + k] & 0xFF;
+      }
+    }
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  /**
+   * Counts the samples of a frame whose higher bits match the prefix of their
+   * sample, by the next BIN_BITS bits of their value.
+   */
+  private static void count(int[][] planes, Frames stream, char[] counts, byte[] prefix,
+                            int shift) {
+    int prefixShift = shift + BIN_BITS;
+    forEachRow(stream, (from, to) -> {
+      for (int p = from; p < to; p++) {
+        for (int k = 0; k < 3; k++) {
+          int sample = 3 * p + k;
+          int value = planes[k][p];
+          if (prefixShift == 8
+                  || value >> prefixShift == (prefix[sample] & 0xFF) >> prefixShift) {
+            counts[sample * BINS + ((value >> shift) & (BINS - 1))]++;
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Finds, for every sample, the bin holding the median and adds it to the
+   * prefix of the sample, leaving the rank of the median within that bin.
+   */
+  private static void select(Frames stream, char[] counts, byte[] prefix, char[] rank,
+                             int shift) {
+    forEachRow(stream, (from, to) -> {
+      for (int sample = 3 * from; sample < 3 * to; sample++) {
+        int remaining = rank[sample];
+        int bin = 0;
+        while (remaining >= counts[sample * BINS + bin]) {
+          remaining -= counts[sample * BINS + bin];
+          bin++;
+        }
+        rank[sample] = (char) remaining;
+        prefix[sample] = (byte) ((prefix[sample] & 0xFF) | bin << shift);
+      }
+    });
+  }
+
+  private static void forEachRow(Frames stream, RowRange action) {
+    int width = stream.width;
+    IntStream.range(0, stream.height).parallel()
+            .forEach(i -> action.apply(i * width, (i + 1) * width));
+  }
+
+  /**
+   * An action on the pixels from one index up to another.
+   */
+  private interface RowRange {
+    void apply(int from, int to);
+  }
+
+  /**
+   * The frames of a stack, checked and turned into channel buffers one at a
+   * time.
+   */
+  private static class Frames {
+    private final Iterator<ImageInfo> iterator;
+    private int width;
+    private int height;
+
+    Frames(Iterable<ImageInfo> frames) {
+      this.iterator = frames.iterator();
+    }
+
+    int[][] firstPlanes() {
+      if (!iterator.hasNext()) {
+        throw new IllegalArgumentException("There should be at least one image to stack.");
+      }
+      ImageInfo frame = next();
+      width = frame.getWidth();
+      height = frame.getHeight();
+      return ModelUtil.toPlanes(frame);
+    }
+
+    boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    int[][] nextPlanes() {
+      ImageInfo frame = next();
+      if (frame.getWidth() != width || frame.getHeight() != height) {
+        throw new IllegalArgumentException("All images should have the same size.");
+      }
+      return ModelUtil.toPlanes(frame);
+    }
+
+    void checkSize(int expectedWidth, int expectedHeight) {
+      if (width != expectedWidth || height != expectedHeight) {
+        throw new IllegalArgumentException("All images should have the same size.");
+      }
+    }
+
+    private ImageInfo next() {
+      ImageInfo frame = iterator.next();
+      if (frame == null) {
+        throw new IllegalArgumentException("Image data cannot be null.");
+      }
+      return frame;
+    }
+  }
+}
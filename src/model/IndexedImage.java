@@ -0,0 +1,134 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * This class represents an image whose pixels are indices into a palette of at
+ * most 256 colours. It converts to an indexed BufferedImage, packed to 1, 2 or
+ * 4 bits per pixel when the palette is small enough, so formats that support
+ * palettes, such as PNG and GIF, can store it as an indexed image.
+ */
+public class IndexedImage implements ImageInfo {
+  private final int width;
+  private final int height;
+  private final int[] palette;
+  private final byte[] indices;
+
+  /**
+   * Creates an indexed image.
+   *
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param palette The palette, one 0xRRGGBB colour per entry, with 1 to 256
+   *                entries.
+   * @param indices The palette index of every pixel, row by row.
+   * @throws IllegalArgumentException If the palette is empty or too large, or
+   *                                  there is not one valid index per pixel.
+   */
+  public IndexedImage(int width, int height, int[] palette, byte[] indices)
+          throws IllegalArgumentException {
+    if (palette == null || palette.length < 1 || palette.length > 256) {
+      throw new IllegalArgumentException("Palette should have between 1 and 256 colours.");
+    }
+    if (width < 1 || height < 1 || indices == null || indices.length != width * height) {
+      throw new IllegalArgumentException("There should be one index per pixel.");
+    }
+    for (byte index : indices) {
+      if ((index & 0xFF) >= palette.length) {
+        throw new IllegalArgumentException("Pixel index outside the palette.");
+      }
+    }
+    this.width = width;
+    this.height = height;
+    this.palette = palette.clone();
+    this.indices = indices;
+  }
+
+  /**
+   * Gets the number of colours in the palette.
+   *
+   * @return The size of the palette.
+   */
+  public int getPaletteSize() {
+    return palette.length;
+  }
+
+  /**
+   * Gets a colour of the palette.
+   *
+   * @param index The index of the colour.
+   * @return The colour as 0xRRGGBB.
+   */
+  public int getPaletteColor(int index) {
+    return palette[index];
+  }
+
+  /**
+   * Gets the palette index of a pixel.
+   *
+   * @param x The row of the pixel.
+   * @param y The column of the pixel.
+   * @return The index of the colour of the pixel.
+   */
+  public int getIndex(int x, int y) {
+    return indices[x * width + y] & 0xFF;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getChannels() {
+    return 3;
+  }
+
+  @Override
+  public int getPixelValue(int x, int y, int k) {
+    if (x >= height || x < 0) {
+      throw new IndexOutOfBoundsException("Row index out of bounds");
+    }
+    if (y >= width || y < 0) {
+      throw new IndexOutOfBoundsException("Column index out of bounds");
+    }
+    if (k > 2 || k < 0) {
+      throw new IndexOutOfBoundsException("Invalid color index passed");
+    }
+    return (palette[getIndex(x, y)] >> (16 - 8 * k)) & 0xFF;
+  }
+
+  @Override
+  public BufferedImage convertPixelDataToBufferedImage() {
+    int bits = palette.length <= 2 ? 1 : palette.length <= 4 ? 2
+            : palette.length <= 16 ? 4 : 8;
+    IndexColorModel colorModel = new IndexColorModel(bits, palette.length, palette, 0,
+            false, -1, DataBufferByte.TYPE_BYTE);
+    if (bits == 8) {
+      BufferedImage image = new BufferedImage(width, height,
+              BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+      byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+      System.arraycopy(indices, 0, data, 0, indices.length);
+      return image;
+    }
+    BufferedImage image = new BufferedImage(width, height,
+            BufferedImage.TYPE_BYTE_BINARY, colorModel);
+    WritableRaster raster = image.getRaster();
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        row[j] = indices[i * width + j] & 0xFF;
+      }
+      raster.setSamples(0, i, width, 1, 0, row);
+    }
+    return image;
+  }
+}
@@ -0,0 +1,30 @@
+package model;
+
+/**
+ * Enumeration of the interpolation methods supported when an image is
+ * sampled at positions between its pixels, such as in rotations.
+ */
+public enum Interpolation {
+  BILINEAR,
+  BICUBIC;
+
+  /**
+   * Returns the corresponding enum value for the name of an interpolation method.
+   *
+   * @param name The name of the method, such as "bicubic".
+   * @return The corresponding enum value, or null if the name is unknown.
+   */
+  public static Interpolation fromName(String name) {
+    if (name != null) {
+      switch (name.toLowerCase()) {
+        case "bilinear":
+          return BILINEAR;
+        case "bicubic":
+          return BICUBIC;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
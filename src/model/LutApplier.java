@@ -0,0 +1,146 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The LutApplier class maps images through 3D colour lookup tables. Every pixel
+ * finds the grid cell that holds its colour from the position tables of the
+ * LUT and blends the outputs at the corners of that cell, either from the four
+ * corners of the tetrahedron the colour falls in or from all eight corners.
+ * All arithmetic is in fixed point and rows run in parallel.
+ */
+class LutApplier {
+  private static final int BITS = ColorLut.FRACTION_BITS;
+  private static final int ONE = 1 << BITS;
+  private static final int MASK = ONE - 1;
+
+  /**
+   * Maps an image through a lookup table.
+   *
+   * @param image         The image to map.
+   * @param lut           The lookup table.
+   * @param interpolation How outputs are blended between grid points.
+   * @return A new ImageInfo with the mapped image.
+   */
+  static ImageInfo apply(ImageInfo image, ColorLut lut, LutInterpolation interpolation) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    int size = lut.getSize();
+    char[] table = lut.getTable();
+    int[][] positions = lut.getPositions();
+    int strideG = 3 * size;
+    int strideB = 3 * size * size;
+    boolean tetrahedral = interpolation == LutInterpolation.TETRAHEDRAL;
+    int[][] result = new int[3][width * height];
+
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[] corners = new int[8];
+      for (int index = i * width; index < (i + 1) * width; index++) {
+        int pr = positions[0][planes[0][index]];
+        int pg = positions[1][planes[1][index]];
+        int pb = positions[2][planes[2][index]];
+        int fr = pr & MASK;
+        int fg = pg & MASK;
+        int fb = pb & MASK;
+        int base = 3 * (pr >> BITS) + strideG * (pg >> BITS) + strideB * (pb >> BITS);
+        int stepR = fr > 0 ? 3 : 0;
+        int stepG = fg > 0 ? strideG : 0;
+        int stepB = fb > 0 ? strideB : 0;
+        if (tetrahedral) {
+          tetrahedral(table, base, stepR, stepG, stepB, fr, fg, fb, result, index);
+        } else {
+          corners[0] = base;
+          corners[1] = base + stepR;
+          corners[2] = base + stepG;
+          corners[3] = base + stepR + stepG;
+          for (int c = 0; c < 4; c++) {
+            corners[c + 4] = corners[c] + stepB;
+          }
+          trilinear(table, corners, fr, fg, fb, result, index);
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  /**
+   * Splits the cell into six tetrahedra along its main diagonal and blends the
+   * four corners of the one that holds the colour, walking from the black
+   * corner to the white corner along the channels in order of their fractions.
+   */
+  private static void tetrahedral(char[] table, int base, int stepR, int stepG, int stepB,
+                                  int fr, int fg, int fb, int[][] result, int index) {
+    int first;
+    int second;
+    int high;
+    int middle;
+    int low;
+    if (fr >= fg) {
+      if (fg >= fb) {
+        first = stepR;
+        second = stepR + stepG;
+        high = fr;
+        middle = fg;
+        low = fb;
+      } else if (fr >= fb) {
+        first = stepR;
+        second = stepR + stepB;
+        high = fr;
+        middle = fb;
+        low = fg;
+      } else {
+        first = stepB;
+        second = stepR + stepB;
+        high = fb;
+        middle = fr;
+        low = fg;
+      }
+    } else {
+      if (fb > fg) {
+        first = stepB;
+        second = stepG + stepB;
+        high = fb;
+        middle = fg;
+        low = fr;
+      } else if (fb > fr) {
+        first = stepG;
+        second = stepG + stepB;
+        high = fg;
+        middle = fb;
+        low = fr;
+      } else {
+        first = stepG;
+        second = stepR + stepG;
+        high = fg;
+        middle = fr;
+        low = fb;
+      }
+    }
+    int last = stepR + stepG + stepB;
+    for (int k = 0; k < 3; k++) {
+      int value = (ONE - high) * table[base + k]
+              + (high - middle) * table[base + first + k]
+              + (middle - low) * table[base + second + k]
+              + low * table[base + last + k];
+      result[k][index] = (value + (1 << (2 * BITS - 1))) >> (2 * BITS);
+    }
+  }
+
+  private static void trilinear(char[] table, int[] corners, int fr, int fg, int fb,
+                                int[][] result, int index) {
+    for (int k = 0; k < 3; k++) {
+      int c00 = lerp(table[corners[0] + k], table[corners[1] + k], fr);
+      int c10 = lerp(table[corners[2] + k], table[corners[3] + k], fr);
+      int c01 = lerp(table[corners[4] + k], table[corners[5] + k], fr);
+      int c11 = lerp(table[corners[6] + k], table[corners[7] + k], fr);
+      int c0 = lerp(c00, c10, fg);
+      int c1 = lerp(c01, c11, fg);
+      result[k][index] = (lerp(c0, c1, fb) + (1 << (BITS - 1))) >> BITS;
+    }
+  }
+
+  private static int lerp(int from, int to, int fraction) {
+    return from + (((to - from) * fraction + (1 << (BITS - 1))) >> BITS);
+  }
+}
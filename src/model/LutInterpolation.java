@@ -0,0 +1,30 @@
+package model;
+
+/**
+ * Enumeration of the interpolation methods supported when an image is mapped
+ * through a 3D colour lookup table.
+ */
+public enum LutInterpolation {
+  TETRAHEDRAL,
+  TRILINEAR;
+
+  /**
+   * Returns the corresponding enum value for the name of an interpolation method.
+   *
+   * @param name The name of the method, such as "tetrahedral".
+   * @return The corresponding enum value, or null if the name is unknown.
+   */
+  public static LutInterpolation fromName(String name) {
+    if (name != null) {
+      switch (name.toLowerCase()) {
+        case "tetrahedral":
+          return TETRAHEDRAL;
+        case "trilinear":
+          return TRILINEAR;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
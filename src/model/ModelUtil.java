@@ -1,7 +1,10 @@
 package model;
 
+import java.util.stream.IntStream;
+
 /**
- * The ModelUtil class provides utility methods for obtaining various image filters.
+ * The ModelUtil class provides utility methods for obtaining various image filters
+ * and for moving pixel data in and out of flat per-channel buffers.
  */
 class ModelUtil {
 
@@ -59,4 +62,71 @@ class ModelUtil {
             {0.272, 0.534, 0.131}
     };
   }
+
+  /**
+   * Copies the pixels of an image into one flat, row-major buffer per channel.
+   * Values are clamped to the range 0-255 on the way, so the buffers can be
+   * used to index lookup tables directly. Rows are copied in parallel.
+   *
+   * @param image The image to read.
+   * @return An array of three buffers (R, G, B), each of size width * height.
+   */
+  static int[][] toPlanes(ImageInfo image) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[][] planes = new int[3][width * height];
+    if (image instanceof ImageData) {
+      int[][][] data = ((ImageData) image).getData();
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int j = 0; j < width; j++) {
+          int[] row = data[i][j];
+          int index = i * width + j;
+          planes[0][index] = clamp(row[0]);
+          planes[1][index] = clamp(row[1]);
+          planes[2][index] = clamp(row[2]);
+        }
+      });
+    } else {
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int j = 0; j < width; j++) {
+          for (int k = 0; k < 3; k++) {
+            planes[k][i * width + j] = clamp(image.getPixelValue(i, j, k));
+          }
+        }
+      });
+    }
+    return planes;
+  }
+
+  /**
+   * Builds an image from flat, row-major per-channel buffers. Values are
+   * clamped to the range 0-255.
+   *
+   * @param planes The three channel buffers (R, G, B).
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   * @return A new ImageInfo holding the given pixels.
+   */
+  static ImageInfo fromPlanes(int[][] planes, int width, int height) {
+    int[][][] data = new int[height][width][3];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int j = 0; j < width; j++) {
+        int index = i * width + j;
+        for (int k = 0; k < 3; k++) {
+          data[i][j][k] = clamp(planes[k][index]);
+        }
+      }
+    });
+    return new ImageData(data);
+  }
+
+  /**
+   * Clamps a value to the range of a colour channel.
+   *
+   * @param value The value to clamp.
+   * @return The value limited to 0-255.
+   */
+  static int clamp(int value) {
+    return Math.min(255, Math.max(0, value));
+  }
 }
@@ -0,0 +1,121 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The NonLocalMeans class removes noise by replacing every pixel with a weighted
+ * average of the pixels in its search window, weighted by how similar their
+ * surrounding patches are. Patch distances are not summed pixel by pixel;
+ * for every search offset the squared differences are put into a summed-area
+ * table, so each patch distance costs four lookups whatever the patch size.
+ * The image is processed in bands of rows that run in parallel.
+ */
+class NonLocalMeans {
+  private static final int SEARCH_RADIUS = 5;
+  private static final int PATCH_RADIUS = 2;
+  private static final int BAND_HEIGHT = 32;
+
+  /**
+   * Denoises an image.
+   *
+   * @param image    The image to denoise.
+   * @param strength The filtering strength h. Larger values smooth more.
+   * @return A new ImageInfo with the denoised image.
+   */
+  static ImageInfo denoise(ImageInfo image, double strength) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+
+    int maxDistance = 3 * 255 * 255;
+    double[] weights = new double[maxDistance + 1];
+    double scale = 3 * strength * strength;
+    for (int d = 0; d <= maxDistance; d++) {
+      weights[d] = Math.exp(-d / scale);
+    }
+
+    int[][] result = new int[3][width * height];
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    IntStream.range(0, bands).parallel().forEach(b ->
+            denoiseBand(planes, width, height, b * BAND_HEIGHT,
+                    Math.min(height, (b + 1) * BAND_HEIGHT), weights, result));
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  private static void denoiseBand(int[][] planes, int width, int height,
+                                  int fromRow, int toRow, double[] weights,
+                                  int[][] result) {
+    int[] red = planes[0];
+    int[] green = planes[1];
+    int[] blue = planes[2];
+    int patchSize = 2 * PATCH_RADIUS + 1;
+    int patchArea = patchSize * patchSize;
+    int rows = toRow - fromRow + 2 * PATCH_RADIUS;
+    int columns = width + 2 * PATCH_RADIUS;
+    int stride = columns + 1;
+    long[] table = new long[(rows + 1) * stride];
+
+    int[] baseColumn = new int[columns];
+    for (int c = 0; c < columns; c++) {
+      baseColumn[c] = clamp(c - PATCH_RADIUS, width);
+    }
+    int[] shiftedColumn = new int[columns];
+
+    int bandPixels = (toRow - fromRow) * width;
+    double[] weightSum = new double[bandPixels];
+    double[][] sums = new double[3][bandPixels];
+
+    for (int dy = -SEARCH_RADIUS; dy <= SEARCH_RADIUS; dy++) {
+      for (int dx = -SEARCH_RADIUS; dx <= SEARCH_RADIUS; dx++) {
+        for (int c = 0; c < columns; c++) {
+          shiftedColumn[c] = clamp(c - PATCH_RADIUS + dx, width);
+        }
+
+        for (int r = 0; r < rows; r++) {
+          int y = clamp(fromRow - PATCH_RADIUS + r, height) * width;
+          int shiftedY = clamp(fromRow - PATCH_RADIUS + r + dy, height) * width;
+          int above = r * stride;
+          int current = above + stride;
+          long rowSum = 0;
+          for (int c = 0; c < columns; c++) {
+            int a = y + baseColumn[c];
+            int b = shiftedY + shiftedColumn[c];
+            int dr = red[a] - red[b];
+            int dg = green[a] - green[b];
+            int db = blue[a] - blue[b];
+            rowSum += dr * dr + dg * dg + db * db;
+            table[current + c + 1] = table[above + c + 1] + rowSum;
+          }
+        }
+
+        for (int i = fromRow; i < toRow; i++) {
+          int top = (i - fromRow) * stride;
+          int bottom = top + patchSize * stride;
+          int shiftedY = clamp(i + dy, height) * width;
+          int local = (i - fromRow) * width;
+          for (int j = 0; j < width; j++) {
+            long box = table[bottom + j + patchSize] - table[top + j + patchSize]
+                    - table[bottom + j] + table[top + j];
+            double weight = weights[(int) (box / patchArea)];
+            int source = shiftedY + shiftedColumn[j + PATCH_RADIUS];
+            weightSum[local + j] += weight;
+            sums[0][local + j] += weight * red[source];
+            sums[1][local + j] += weight * green[source];
+            sums[2][local + j] += weight * blue[source];
+          }
+        }
+      }
+    }
+
+    int offset = fromRow * width;
+    for (int p = 0; p < bandPixels; p++) {
+      for (int k = 0; k < 3; k++) {
+        result[k][offset + p] = (int) Math.round(sums[k][p] / weightSum[p]);
+      }
+    }
+  }
+
+  private static int clamp(int coordinate, int size) {
+    return Math.min(size - 1, Math.max(0, coordinate));
+  }
+}
@@ -0,0 +1,320 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The PaletteQuantizer class reduces an image to a palette of at most 256
+ * colours. Images that already have few enough colours keep them exactly.
+ * Otherwise the palette is built with median cut over a histogram of 5-bit
+ * colour cells, taken from a sample of at most about a million pixels: the
+ * box of cells with the largest population times extent is cut at the median
+ * of its longest side until there are enough boxes, and every box gives the
+ * mean colour of its pixels. Pixels are then mapped through an inverse-colour
+ * cache of 6-bit cells, each holding the nearest palette colour to its centre
+ * and filled the first time a pixel falls in it.
+ */
+class PaletteQuantizer {
+  private static final int HISTOGRAM_BITS = 5;
+  private static final int HISTOGRAM_SIZE = 1 << (3 * HISTOGRAM_BITS);
+  private static final int CACHE_BITS = 6;
+  private static final int MAX_SAMPLES = 1 << 20;
+  private static final int SET_BITS = 10;
+
+  /**
+   * Quantizes an image.
+   *
+   * @param image  The image to quantize.
+   * @param colors The largest number of colours in the palette, 2-256.
+   * @return The indexed image.
+   */
+  static IndexedImage quantize(ImageInfo image, int colors) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    int[] rgb = new int[width * height];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        rgb[p] = (planes[0][p] << 16) | (planes[1][p] << 8) | planes[2][p];
+      }
+    });
+
+    int[] palette = exactPalette(rgb, colors);
+    if (palette != null) {
+      return new IndexedImage(width, height, palette, mapExact(rgb, palette, width, height));
+    }
+    palette = medianCut(rgb, colors);
+    return new IndexedImage(width, height, palette, map(rgb, palette, width, height));
+  }
+
+  /**
+   * Collects the distinct colours of an image in an open-addressing set,
+   * giving up as soon as there are more than the palette can hold.
+   *
+   * @return The distinct colours, or null if there are too many.
+   */
+  private static int[] exactPalette(int[] rgb, int colors) {
+    int[] table = newColorSet();
+    int[] found = new int[colors];
+    int count = 0;
+    for (int color : rgb) {
+      int slot = slot(table, color);
+      if (table[slot] == -1) {
+        if (count == colors) {
+          return null;
+        }
+        table[slot] = color;
+        found[count++] = color;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Maps every pixel to the index of its colour in a palette that holds all
+   * the colours of the image.
+   */
+  private static byte[] mapExact(int[] rgb, int[] palette, int width, int height) {
+    int[] table = newColorSet();
+    byte[] slotIndex = new byte[table.length];
+    for (int index = 0; index < palette.length; index++) {
+      int slot = slot(table, palette[index]);
+      table[slot] = palette[index];
+      slotIndex[slot] = (byte) index;
+    }
+    byte[] indices = new byte[rgb.length];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        indices[p] = slotIndex[slot(table, rgb[p])];
+      }
+    });
+    return indices;
+  }
+
+  private static int[] newColorSet() {
+    int[] table = new int[1 << SET_BITS];
+    Arrays.fill(table, -1);
+    return table;
+  }
+
+  /**
+   * Finds the slot of a colour in a colour set: the slot holding it, or the
+   * empty slot where it belongs.
+   */
+  private static int slot(int[] table, int color) {
+    int slot = (color * 0x9E3779B1) >>> (32 - SET_BITS);
+    while (table[slot] != -1 && table[slot] != color) {
+      slot = (slot + 1) & (table.length - 1);
+    }
+    return slot;
+  }
+
+  private static int[] medianCut(int[] rgb, int colors) {
+    int[] population = new int[HISTOGRAM_SIZE];
+    long[][] sums = new long[3][HISTOGRAM_SIZE];
+    int step = Math.max(1, rgb.length / MAX_SAMPLES);
+    for (int p = 0; p < rgb.length; p += step) {
+      int color = rgb[p];
+      int cell = cell(color, HISTOGRAM_BITS);
+      population[cell]++;
+      sums[0][cell] += color >> 16;
+      sums[1][cell] += (color >> 8) & 0xFF;
+      sums[2][cell] += color & 0xFF;
+    }
+    int occupied = 0;
+    for (int count : population) {
+      if (count > 0) {
+        occupied++;
+      }
+    }
+    int[] cells = new int[occupied];
+    occupied = 0;
+    for (int c = 0; c < HISTOGRAM_SIZE; c++) {
+      if (population[c] > 0) {
+        cells[occupied++] = c;
+      }
+    }
+
+    Box[] boxes = new Box[colors];
+    boxes[0] = new Box(cells, population, 0, cells.length);
+    int count = 1;
+    int[] scratch = new int[cells.length];
+    while (count < colors) {
+      Box largest = null;
+      int largestIndex = -1;
+      for (int b = 0; b < count; b++) {
+        if (boxes[b].extent() > 0
+                && (largest == null || boxes[b].priority() > largest.priority())) {
+          largest = boxes[b];
+          largestIndex = b;
+        }
+      }
+      if (largest == null) {
+        break;
+      }
+      Box[] halves = largest.split(cells, population, scratch);
+      boxes[largestIndex] = halves[0];
+      boxes[count++] = halves[1];
+    }
+
+    int[] palette = new int[count];
+    for (int b = 0; b < count; b++) {
+      long total = 0;
+      long[] sum = new long[3];
+      for (int c = boxes[b].from; c < boxes[b].to; c++) {
+        total += population[cells[c]];
+        for (int k = 0; k < 3; k++) {
+          sum[k] += sums[k][cells[c]];
+        }
+      }
+      palette[b] = (int) ((sum[0] + total / 2) / total) << 16
+              | (int) ((sum[1] + total / 2) / total) << 8
+              | (int) ((sum[2] + total / 2) / total);
+    }
+    return palette;
+  }
+
+  /**
+   * Maps every pixel to its nearest palette colour. Cache entries are filled
+   * lazily from several threads at once, which is safe because every thread
+   * computes the same value for a cell and short writes are atomic.
+   */
+  private static byte[] map(int[] rgb, int[] palette, int width, int height) {
+    short[] cache = new short[1 << (3 * CACHE_BITS)];
+    Arrays.fill(cache, (short) -1);
+    byte[] indices = new byte[rgb.length];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        int cell = cell(rgb[p], CACHE_BITS);
+        int index = cache[cell];
+        if (index < 0) {
+          index = nearest(palette, center(cell, 0), center(cell, 1), center(cell, 2));
+          cache[cell] = (short) index;
+        }
+        indices[p] = (byte) index;
+      }
+    });
+    return indices;
+  }
+
+  /**
+   * Gets the centre of a cache cell along one channel, 0 being red.
+   */
+  private static int center(int cell, int k) {
+    int component = (cell >> ((2 - k) * CACHE_BITS)) & ((1 << CACHE_BITS) - 1);
+    return (component << (8 - CACHE_BITS)) + (1 << (7 - CACHE_BITS));
+  }
+
+  private static int nearest(int[] palette, int red, int green, int blue) {
+    int best = 0;
+    int bestDistance = Integer.MAX_VALUE;
+    for (int index = 0; index < palette.length; index++) {
+      int dr = (palette[index] >> 16) - red;
+      int dg = ((palette[index] >> 8) & 0xFF) - green;
+      int db = (palette[index] & 0xFF) - blue;
+      int distance = dr * dr + dg * dg + db * db;
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = index;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Gets the cell of a colour on a grid with the given bits per channel, red
+   * in the highest bits.
+   */
+  private static int cell(int color, int bits) {
+    int shift = 8 - bits;
+    return ((color >> 16) >> shift) << (2 * bits)
+            | (((color >> 8) & 0xFF) >> shift) << bits
+            | (color & 0xFF) >> shift;
+  }
+
+  /**
+   * A box of histogram cells: a range of the cell array together with the
+   * population and the bounds of its cells along each channel.
+   */
+  private static class Box {
+    private final int from;
+    private final int to;
+    private final long population;
+    private final int[] low = new int[3];
+    private final int[] high = new int[3];
+
+    Box(int[] cells, int[] counts, int from, int to) {
+      this.from = from;
+      this.to = to;
+      long total = 0;
+      Arrays.fill(low, Integer.MAX_VALUE);
+      for (int c = from; c < to; c++) {
+        total += counts[cells[c]];
+        for (int k = 0; k < 3; k++) {
+          int component = component(cells[c], k);
+          low[k] = Math.min(low[k], component);
+          high[k] = Math.max(high[k], component);
+        }
+      }
+      this.population = total;
+    }
+
+    private int longestSide() {
+      int side = 0;
+      for (int k = 1; k < 3; k++) {
+        if (high[k] - low[k] > high[side] - low[side]) {
+          side = k;
+        }
+      }
+      return side;
+    }
+
+    int extent() {
+      int side = longestSide();
+      return high[side] - low[side];
+    }
+
+    long priority() {
+      return population * extent();
+    }
+
+    /**
+     * Sorts the cells of this box along its longest side with a counting sort
+     * and cuts them between two values of that side, at the median of the
+     * population.
+     *
+     * @return The lower and the upper half of the box.
+     */
+    Box[] split(int[] cells, int[] counts, int[] scratch) {
+      int side = longestSide();
+      int[] starts = new int[(1 << HISTOGRAM_BITS) + 1];
+      long[] populations = new long[1 << HISTOGRAM_BITS];
+      for (int c = from; c < to; c++) {
+        int value = component(cells[c], side);
+        starts[value + 1]++;
+        populations[value] += counts[cells[c]];
+      }
+      for (int v = 0; v < 1 << HISTOGRAM_BITS; v++) {
+        starts[v + 1] += starts[v];
+      }
+      int[] next = starts.clone();
+      for (int c = from; c < to; c++) {
+        scratch[from + next[component(cells[c], side)]++] = cells[c];
+      }
+      System.arraycopy(scratch, from, cells, from, to - from);
+
+      int cutValue = low[side];
+      long below = populations[cutValue];
+      while (cutValue + 1 < high[side] && (below + populations[cutValue + 1]) * 2 <= population) {
+        cutValue++;
+        below += populations[cutValue];
+      }
+      int cut = from + starts[cutValue + 1];
+      return new Box[]{new Box(cells, counts, from, cut), new Box(cells, counts, cut, to)};
+    }
+
+    private static int component(int cell, int k) {
+      return (cell >> ((2 - k) * HISTOGRAM_BITS)) & ((1 << HISTOGRAM_BITS) - 1);
+    }
+  }
+}
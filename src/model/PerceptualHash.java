@@ -0,0 +1,67 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The PerceptualHash class computes 64-bit perceptual hashes. The image is
+ * area-averaged down to 32x32, reduced to its luma, and transformed with a
+ * two-dimensional DCT of which only the 8x8 lowest frequencies are computed.
+ * Every bit of the hash tells whether one of those coefficients is above their
+ * median, so the hash survives resizing, recompression and small colour
+ * changes, and similar images have hashes a small Hamming distance apart.
+ */
+class PerceptualHash {
+  private static final int SIZE = 32;
+  private static final int FREQUENCIES = 8;
+  private static final double[][] COSINES = new double[FREQUENCIES][SIZE];
+
+  static {
+    for (int u = 0; u < FREQUENCIES; u++) {
+      for (int x = 0; x < SIZE; x++) {
+        COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * SIZE));
+      }
+    }
+  }
+
+  /**
+   * Hashes an image.
+   *
+   * @param image The image to hash.
+   * @return The 64-bit hash, the lowest frequency in the highest bit.
+   */
+  static long hash(ImageInfo image) {
+    int[] luma = ColorSpaces.luma(Resampler.resize(ModelUtil.toPlanes(image),
+            image.getWidth(), image.getHeight(), SIZE, SIZE, ResizeFilter.AREA));
+
+    double[] rows = new double[SIZE * FREQUENCIES];
+    for (int y = 0; y < SIZE; y++) {
+      for (int u = 0; u < FREQUENCIES; u++) {
+        double sum = 0;
+        for (int x = 0; x < SIZE; x++) {
+          sum += COSINES[u][x] * luma[y * SIZE + x];
+        }
+        rows[y * FREQUENCIES + u] = sum;
+      }
+    }
+    double[] coefficients = new double[FREQUENCIES * FREQUENCIES];
+    for (int v = 0; v < FREQUENCIES; v++) {
+      for (int u = 0; u < FREQUENCIES; u++) {
+        double sum = 0;
+        for (int y = 0; y < SIZE; y++) {
+          sum += COSINES[v][y] * rows[y * FREQUENCIES + u];
+        }
+        coefficients[v * FREQUENCIES + u] = sum;
+      }
+    }
+
+    double[] sorted = new double[coefficients.length - 1];
+    System.arraycopy(coefficients, 1, sorted, 0, sorted.length);
+    Arrays.sort(sorted);
+    double median = sorted[sorted.length / 2];
+    long hash = 0;
+    for (double coefficient : coefficients) {
+      hash = hash << 1 | (coefficient > median ? 1 : 0);
+    }
+    return hash;
+  }
+}
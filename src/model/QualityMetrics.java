@@ -0,0 +1,147 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The QualityMetrics class measures how far an image is from a reference
+ * image. The structural similarity uses an 11x11 Gaussian window with a
+ * standard deviation of 1.5 and the usual constants, over the positions where
+ * the window fits inside the image. The window is separable, so each band of
+ * rows filters its input rows horizontally into a small ring of rows, one row
+ * at a time, and combines the ring vertically into a row of similarities,
+ * which are summed as they are produced. Bands run in parallel.
+ */
+class QualityMetrics {
+  private static final int RADIUS = 5;
+  private static final double SIGMA = 1.5;
+  private static final double C1 = (0.01 * 255) * (0.01 * 255);
+  private static final double C2 = (0.03 * 255) * (0.03 * 255);
+  private static final int BAND_HEIGHT = 64;
+
+  /**
+   * Compares an image with a reference image of the same size.
+   *
+   * @param reference The reference image.
+   * @param image     The image to measure.
+   * @return The metrics of every channel.
+   */
+  static ImageMetrics compare(ImageInfo reference, ImageInfo image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] a = ModelUtil.toPlanes(reference);
+    int[][] b = ModelUtil.toPlanes(image);
+    double[] mse = new double[3];
+    double[] ssim = new double[3];
+    for (int k = 0; k < 3; k++) {
+      mse[k] = meanSquaredError(a[k], b[k], width, height);
+      ssim[k] = structuralSimilarity(a[k], b[k], width, height);
+    }
+    return new ImageMetrics(mse, ssim);
+  }
+
+  private static double meanSquaredError(int[] a, int[] b, int width, int height) {
+    long total = IntStream.range(0, height).parallel().mapToLong(i -> {
+      long sum = 0;
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        int difference = a[p] - b[p];
+        sum += difference * difference;
+      }
+      return sum;
+    }).sum();
+    return (double) total / ((long) width * height);
+  }
+
+  private static double structuralSimilarity(int[] a, int[] b, int width, int height) {
+    int radius = Math.min(RADIUS, (Math.min(width, height) - 1) / 2);
+    double[] weights = gaussian(radius);
+    int window = 2 * radius + 1;
+    int outWidth = width - 2 * radius;
+    int outHeight = height - 2 * radius;
+    int bands = (outHeight + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    double[] bandSums = new double[bands];
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      int fromRow = band * BAND_HEIGHT;
+      int toRow = Math.min(outHeight, fromRow + BAND_HEIGHT);
+      double[][] ring = new double[5][window * outWidth];
+      for (int y = fromRow; y < fromRow + window - 1; y++) {
+        filterRow(a, b, y, width, outWidth, weights, ring, window);
+      }
+      double sum = 0;
+      for (int row = fromRow; row < toRow; row++) {
+        filterRow(a, b, row + window - 1, width, outWidth, weights, ring, window);
+        for (int x = 0; x < outWidth; x++) {
+          double meanA = 0;
+          double meanB = 0;
+          double squareA = 0;
+          double squareB = 0;
+          double product = 0;
+          for (int t = 0; t < window; t++) {
+            int slot = ((row + t) % window) * outWidth + x;
+            double weight = weights[t];
+            meanA += weight * ring[0][slot];
+            meanB += weight * ring[1][slot];
+            squareA += weight * ring[2][slot];
+            squareB += weight * ring[3][slot];
+            product += weight * ring[4][slot];
+          }
+          double varianceA = squareA - meanA * meanA;
+          double varianceB = squareB - meanB * meanB;
+          double covariance = product - meanA * meanB;
+          sum += (2 * meanA * meanB + C1) * (2 * covariance + C2)
+                  / ((meanA * meanA + meanB * meanB + C1) * (varianceA + varianceB + C2));
+        }
+      }
+      bandSums[band] = sum;
+    });
+    double total = 0;
+    for (double sum : bandSums) {
+      total += sum;
+    }
+    return total / ((long) outWidth * outHeight);
+  }
+
+  /**
+   * Filters one input row horizontally into its slot of the ring, for the
+   * samples of both images, their squares and their products.
+   */
+  private static void filterRow(int[] a, int[] b, int y, int width, int outWidth,
+                                double[] weights, double[][] ring, int window) {
+    int slot = (y % window) * outWidth;
+    int row = y * width;
+    for (int x = 0; x < outWidth; x++) {
+      double sumA = 0;
+      double sumB = 0;
+      double squareA = 0;
+      double squareB = 0;
+      double product = 0;
+      for (int t = 0; t < window; t++) {
+        int valueA = a[row + x + t];
+        int valueB = b[row + x + t];
+        double weight = weights[t];
+        sumA += weight * valueA;
+        sumB += weight * valueB;
+        squareA += weight * (valueA * valueA);
+        squareB += weight * (valueB * valueB);
+        product += weight * (valueA * valueB);
+      }
+      ring[0][slot + x] = sumA;
+      ring[1][slot + x] = sumB;
+      ring[2][slot + x] = squareA;
+      ring[3][slot + x] = squareB;
+      ring[4][slot + x] = product;
+    }
+  }
+
+  private static double[] gaussian(int radius) {
+    double[] weights = new double[2 * radius + 1];
+    double total = 0;
+    for (int t = -radius; t <= radius; t++) {
+      weights[t + radius] = Math.exp(-t * t / (2 * SIGMA * SIGMA));
+      total += weights[t + radius];
+    }
+    for (int t = 0; t < weights.length; t++) {
+      weights[t] /= total;
+    }
+    return weights;
+  }
+}
@@ -0,0 +1,98 @@
+package model;
+
+import java.nio.IntBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * The Remapper class builds lens distortion maps and applies them. Applying a
+ * map is a single gather pass over the image: every output pixel reads its
+ * fixed-point source position from the map and blends the four pixels around
+ * it. Rows run in parallel.
+ */
+class Remapper {
+
+  /**
+   * Builds the map that corrects radial lens distortion following the model
+   * r' = r (1 + k1 r^2 + k2 r^4), where r is the distance from the image centre
+   * divided by half the diagonal of the image. Positive coefficients correct
+   * pincushion distortion and negative ones barrel distortion.
+   *
+   * @param width  The width of the images taken with the camera.
+   * @param height The height of the images taken with the camera.
+   * @param k1     The second order coefficient.
+   * @param k2     The fourth order coefficient.
+   * @return The distortion map.
+   */
+  static DistortionMap radial(int width, int height, double k1, double k2) {
+    double cx = (width - 1) / 2.0;
+    double cy = (height - 1) / 2.0;
+    double scale = Math.max(1, Math.sqrt(cx * cx + cy * cy));
+    double one = 1 << DistortionMap.FRACTION_BITS;
+    int[] coordinates = new int[2 * width * height];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      double y = (i - cy) / scale;
+      for (int j = 0; j < width; j++) {
+        double x = (j - cx) / scale;
+        double r2 = x * x + y * y;
+        double factor = 1 + k1 * r2 + k2 * r2 * r2;
+        double sourceX = (cx + x * factor * scale) * one;
+        double sourceY = (cy + y * factor * scale) * one;
+        int index = 2 * (i * width + j);
+        if (Math.abs(sourceX) < Integer.MAX_VALUE && Math.abs(sourceY) < Integer.MAX_VALUE) {
+          coordinates[index] = (int) Math.round(sourceX);
+          coordinates[index + 1] = (int) Math.round(sourceY);
+        } else {
+          coordinates[index] = DistortionMap.NO_SOURCE;
+          coordinates[index + 1] = DistortionMap.NO_SOURCE;
+        }
+      }
+    });
+    return new DistortionMap(width, height, IntBuffer.wrap(coordinates));
+  }
+
+  /**
+   * Applies a distortion map to an image of the same size. Pixels whose source
+   * lies outside the image are black.
+   *
+   * @param image The image to correct.
+   * @param map   The distortion map.
+   * @return A new ImageInfo with the corrected image.
+   */
+  static ImageInfo remap(ImageInfo image, DistortionMap map) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    int bits = DistortionMap.FRACTION_BITS;
+    int one = 1 << bits;
+    int half = one / 2;
+    int maxX = (width - 1) * one + half;
+    int maxY = (height - 1) * one + half;
+    int[][] result = new int[3][width * height];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int j = 0; j < width; j++) {
+        int index = i * width + j;
+        int x = map.getSourceColumn(index);
+        int y = map.getSourceRow(index);
+        if (x == DistortionMap.NO_SOURCE || x < -half || y < -half || x > maxX || y > maxY) {
+          continue;
+        }
+        int column = x >> bits;
+        int row = y >> bits;
+        int fx = x & (one - 1);
+        int fy = y & (one - 1);
+        int left = Math.max(0, column);
+        int right = Math.min(width - 1, column + 1);
+        int top = Math.max(0, row) * width;
+        int bottom = Math.min(height - 1, row + 1) * width;
+        for (int k = 0; k < 3; k++) {
+          int[] source = planes[k];
+          int upper = (one - fx) * source[top + left] + fx * source[top + right];
+          int lower = (one - fx) * source[bottom + left] + fx * source[bottom + right];
+          result[k][index] = ((one - fy) * upper + fy * lower + (1 << (2 * bits - 1)))
+                  >> (2 * bits);
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+}
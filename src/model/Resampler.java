@@ -0,0 +1,274 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The Resampler class resizes images with separable filters. The filter weights
+ * for every output column and every output row are computed once, in 14-bit
+ * fixed point, and the image is then filtered horizontally and vertically in two
+ * passes whose rows run in parallel.
+ *
+ * <p>Downscales with area averaging take a streaming path instead, in which
+ * input pixels are added to the one or two output pixels they overlap.
+ */
+class Resampler {
+  private static final int WEIGHT_BITS = 14;
+  private static final int ONE = 1 << WEIGHT_BITS;
+  private static final int INTERMEDIATE_SHIFT = 8;
+  private static final int FINAL_SHIFT = 2 * WEIGHT_BITS - INTERMEDIATE_SHIFT;
+  private static final int AREA_BAND_HEIGHT = 16;
+
+  /**
+   * Resizes an image.
+   *
+   * @param image  The image to resize.
+   * @param width  The width of the new image.
+   * @param height The height of the new image.
+   * @param filter The resampling filter to use.
+   * @return A new ImageInfo with the resized image.
+   */
+  static ImageInfo resize(ImageInfo image, int width, int height, ResizeFilter filter) {
+    return ModelUtil.fromPlanes(resize(ModelUtil.toPlanes(image), image.getWidth(),
+            image.getHeight(), width, height, filter), width, height);
+  }
+
+  /**
+   * Resizes an image held in flat per-channel buffers.
+   *
+   * @param planes    The channel buffers of the source image.
+   * @param inWidth   The width of the source image.
+   * @param inHeight  The height of the source image.
+   * @param outWidth  The width of the new image.
+   * @param outHeight The height of the new image.
+   * @param filter    The resampling filter to use.
+   * @return The channel buffers of the resized image, clamped to 0-255.
+   */
+  static int[][] resize(int[][] planes, int inWidth, int inHeight,
+                        int outWidth, int outHeight, ResizeFilter filter) {
+    if (filter == ResizeFilter.AUTO) {
+      filter = 2 * outWidth <= inWidth && 2 * outHeight <= inHeight
+              ? ResizeFilter.AREA : ResizeFilter.LANCZOS;
+    }
+    if (filter == ResizeFilter.AREA && outWidth <= inWidth && outHeight <= inHeight) {
+      return areaDownscale(planes, inWidth, inHeight, outWidth, outHeight);
+    }
+    Weights columns = new Weights(inWidth, outWidth, filter);
+    Weights rows = new Weights(inHeight, outHeight, filter);
+
+    int[][] horizontal = new int[3][inHeight * outWidth];
+    IntStream.range(0, inHeight).parallel().forEach(i -> {
+      int inRow = i * inWidth;
+      int outRow = i * outWidth;
+      for (int j = 0; j < outWidth; j++) {
+        int tapStart = j * columns.taps;
+        for (int k = 0; k < 3; k++) {
+          int[] source = planes[k];
+          int sum = 0;
+          for (int t = tapStart; t < tapStart + columns.taps; t++) {
+            sum += columns.weight[t] * source[inRow + columns.index[t]];
+          }
+          horizontal[k][outRow + j] = (sum + (1 << (INTERMEDIATE_SHIFT - 1)))
+                  >> INTERMEDIATE_SHIFT;
+        }
+      }
+    });
+
+    int[][] result = new int[3][outHeight * outWidth];
+    IntStream.range(0, outHeight).parallel().forEach(i -> {
+      int tapStart = i * rows.taps;
+      int outRow = i * outWidth;
+      for (int k = 0; k < 3; k++) {
+        int[] source = horizontal[k];
+        int[] target = result[k];
+        for (int t = tapStart; t < tapStart + rows.taps; t++) {
+          int weight = rows.weight[t];
+          int inRow = rows.index[t] * outWidth;
+          for (int j = 0; j < outWidth; j++) {
+            target[outRow + j] += weight * source[inRow + j];
+          }
+        }
+        for (int j = outRow; j < outRow + outWidth; j++) {
+          target[j] = ModelUtil.clamp((target[j] + (1 << (FINAL_SHIFT - 1))) >> FINAL_SHIFT);
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Averages every output pixel over the input area it covers. Output rows are
+   * handled in bands; within a band every input row is reduced horizontally
+   * once, by splitting each pixel between the at most two output columns it
+   * overlaps, and the reduced row is then split between the at most two output
+   * rows it overlaps. Only the input rows on the seams between bands are read
+   * twice.
+   */
+  private static int[][] areaDownscale(int[][] planes, int inWidth, int inHeight,
+                                       int outWidth, int outHeight) {
+    int[] columnTarget = new int[inWidth];
+    int[] columnWeight = new int[inWidth];
+    int[] columnSpill = new int[inWidth];
+    overlaps(inWidth, outWidth, columnTarget, columnWeight, columnSpill);
+    int[] rowTarget = new int[inHeight];
+    int[] rowWeight = new int[inHeight];
+    int[] rowSpill = new int[inHeight];
+    overlaps(inHeight, outHeight, rowTarget, rowWeight, rowSpill);
+
+    int[][] result = new int[3][outWidth * outHeight];
+    int bands = (outHeight + AREA_BAND_HEIGHT - 1) / AREA_BAND_HEIGHT;
+    IntStream.range(0, bands).parallel().forEach(b -> {
+      int fromRow = b * AREA_BAND_HEIGHT;
+      int toRow = Math.min(outHeight, fromRow + AREA_BAND_HEIGHT);
+      int[][] sums = new int[3][(toRow - fromRow) * outWidth];
+      int[] reduced = new int[outWidth + 1];
+      for (int i = firstRow(rowTarget, rowSpill, fromRow);
+           i < inHeight && rowTarget[i] < toRow; i++) {
+        int inRow = i * inWidth;
+        int target = rowTarget[i];
+        for (int k = 0; k < 3; k++) {
+          int[] source = planes[k];
+          Arrays.fill(reduced, 0);
+          for (int j = 0; j < inWidth; j++) {
+            int value = source[inRow + j];
+            reduced[columnTarget[j]] += columnWeight[j] * value;
+            reduced[columnTarget[j] + 1] += columnSpill[j] * value;
+          }
+          for (int j = 0; j < outWidth; j++) {
+            int value = (reduced[j] + (1 << (INTERMEDIATE_SHIFT - 1))) >> INTERMEDIATE_SHIFT;
+            if (target >= fromRow) {
+              sums[k][(target - fromRow) * outWidth + j] += rowWeight[i] * value;
+            }
+            if (rowSpill[i] > 0 && target + 1 < toRow) {
+              sums[k][(target + 1 - fromRow) * outWidth + j] += rowSpill[i] * value;
+            }
+          }
+        }
+      }
+      int offset = fromRow * outWidth;
+      for (int k = 0; k < 3; k++) {
+        for (int p = 0; p < sums[k].length; p++) {
+          result[k][offset + p] = ModelUtil.clamp(
+                  (sums[k][p] + (1 << (FINAL_SHIFT - 1))) >> FINAL_SHIFT);
+        }
+      }
+    });
+    return result;
+  }
+
+  private static int firstRow(int[] rowTarget, int[] rowSpill, int outRow) {
+    int low = 0;
+    int high = rowTarget.length - 1;
+    while (low < high) {
+      int mid = (low + high) / 2;
+      if (rowTarget[mid] + (rowSpill[mid] > 0 ? 1 : 0) < outRow) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * For every input pixel, finds the output pixel it starts in, the part of it
+   * that falls in that output pixel and the part that spills into the next one,
+   * in fixed point. Positions are rounded once, so the parts that make up each
+   * output pixel add up to exactly one.
+   */
+  private static void overlaps(int inSize, int outSize, int[] target, int[] weight,
+                               int[] spill) {
+    for (int p = 0; p < inSize; p++) {
+      long start = ((long) p * outSize * ONE + inSize / 2) / inSize;
+      long end = ((long) (p + 1) * outSize * ONE + inSize / 2) / inSize;
+      int cell = (int) (start >> WEIGHT_BITS);
+      long boundary = (long) (cell + 1) << WEIGHT_BITS;
+      target[p] = Math.min(cell, outSize - 1);
+      weight[p] = (int) (Math.min(end, boundary) - start);
+      spill[p] = (int) Math.max(0, end - boundary);
+    }
+  }
+
+  /**
+   * The filter taps of every output position along one axis: the input index
+   * and fixed-point weight of each tap, with the same number of taps per position.
+   */
+  private static class Weights {
+    private final int taps;
+    private final int[] index;
+    private final int[] weight;
+
+    Weights(int inSize, int outSize, ResizeFilter filter) {
+      double scale = (double) outSize / inSize;
+      double stretch = Math.max(1.0, 1.0 / scale);
+      double support = filter == ResizeFilter.AREA ? 0.5 * stretch
+              : support(filter) * stretch;
+      this.taps = (int) Math.ceil(2 * support) + 2;
+      this.index = new int[outSize * taps];
+      this.weight = new int[outSize * taps];
+      double[] raw = new double[taps];
+      for (int o = 0; o < outSize; o++) {
+        double centre = (o + 0.5) / scale - 0.5;
+        int first = (int) Math.floor(centre - support) + 1;
+        double total = 0;
+        for (int t = 0; t < taps; t++) {
+          int p = first + t;
+          if (filter == ResizeFilter.AREA) {
+            double low = Math.max(p - 0.5, centre - support);
+            double high = Math.min(p + 0.5, centre + support);
+            raw[t] = Math.max(0, high - low);
+          } else {
+            raw[t] = kernel(filter, (p - centre) / stretch);
+          }
+          total += raw[t];
+        }
+        int sum = 0;
+        int largest = o * taps;
+        for (int t = 0; t < taps; t++) {
+          int slot = o * taps + t;
+          index[slot] = Math.min(inSize - 1, Math.max(0, first + t));
+          weight[slot] = (int) Math.round(raw[t] / total * ONE);
+          sum += weight[slot];
+          if (weight[slot] > weight[largest]) {
+            largest = slot;
+          }
+        }
+        weight[largest] += ONE - sum;
+      }
+    }
+
+    private static double support(ResizeFilter filter) {
+      switch (filter) {
+        case LANCZOS:
+          return 3;
+        case BICUBIC:
+          return 2;
+        default:
+          return 1;
+      }
+    }
+
+    private static double kernel(ResizeFilter filter, double x) {
+      x = Math.abs(x);
+      switch (filter) {
+        case LANCZOS:
+          return x < 3 ? sinc(x) * sinc(x / 3) : 0;
+        case BICUBIC:
+          if (x < 1) {
+            return 1.5 * x * x * x - 2.5 * x * x + 1;
+          }
+          return x < 2 ? -0.5 * x * x * x + 2.5 * x * x - 4 * x + 2 : 0;
+        default:
+          return x < 1 ? 1 - x : 0;
+      }
+    }
+
+    private static double sinc(double x) {
+      if (x == 0) {
+        return 1;
+      }
+      double px = Math.PI * x;
+      return Math.sin(px) / px;
+    }
+  }
+}
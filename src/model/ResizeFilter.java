@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Enumeration of the resampling filters supported when resizing an image.
+ */
+public enum ResizeFilter {
+  AUTO,
+  AREA,
+  BILINEAR,
+  BICUBIC,
+  LANCZOS;
+
+  /**
+   * Returns the corresponding enum value for the name of a filter.
+   *
+   * @param name The name of the filter, such as "lanczos".
+   * @return The corresponding enum value, or null if the name is unknown.
+   */
+  public static ResizeFilter fromName(String name) {
+    if (name != null) {
+      switch (name.toLowerCase()) {
+        case "auto":
+          return AUTO;
+        case "area":
+          return AREA;
+        case "bilinear":
+          return BILINEAR;
+        case "bicubic":
+          return BICUBIC;
+        case "lanczos":
+          return LANCZOS;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
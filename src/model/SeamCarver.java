@@ -0,0 +1,266 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The SeamCarver class shrinks images by removing seams, 8-connected paths of
+ * one pixel per row (or column) along which the image has the least energy.
+ * The energy of a pixel is the sum of the absolute differences of its
+ * horizontal and of its vertical neighbours over all channels.
+ *
+ * <p>The pixels, packed as 0xRRGGBB, and their energies are kept in flat
+ * arrays whose rows keep their original stride, so removing seams compacts
+ * every row in place and nothing is copied per seam. The energy map is
+ * computed once; after each removal only the pixels next to the removed ones,
+ * in the rows around them, are recomputed. Each dynamic-programming pass finds
+ * the cheapest path to every pixel of the bottom row, and then as many of the
+ * cheapest of those seams as do not share a pixel are removed together, up to
+ * a thirty-second of the width. Height is reduced the same way on the
+ * transposed image.
+ */
+class SeamCarver {
+  private static final int BATCH_DIVISOR = 32;
+  private static final int PARALLEL_SPAN = 2048;
+
+  /**
+   * Shrinks an image to the given size.
+   *
+   * @param image  The image to shrink.
+   * @param width  The new width, at most the width of the image.
+   * @param height The new height, at most the height of the image.
+   * @return The carved image.
+   */
+  static ImageInfo carve(ImageInfo image, int width, int height) {
+    return carve(image, width, height, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Shrinks an image to the given size, removing at most the given number of
+   * seams per dynamic-programming pass.
+   *
+   * @param image    The image to shrink.
+   * @param width    The new width, at most the width of the image.
+   * @param height   The new height, at most the height of the image.
+   * @param maxBatch The largest number of seams to remove at once.
+   * @return The carved image.
+   */
+  static ImageInfo carve(ImageInfo image, int width, int height, int maxBatch) {
+    int[][] planes = ModelUtil.toPlanes(image);
+    int[] rgb = new int[image.getWidth() * image.getHeight()];
+    for (int p = 0; p < rgb.length; p++) {
+      rgb[p] = planes[0][p] << 16 | planes[1][p] << 8 | planes[2][p];
+    }
+    Grid grid = new Grid(rgb, image.getWidth(), image.getHeight());
+    grid.carveTo(width, maxBatch);
+    if (height < grid.height) {
+      grid = grid.transpose();
+      grid.carveTo(height, maxBatch);
+      grid = grid.transpose();
+    }
+    return grid.toImage();
+  }
+
+  /**
+   * Packed pixels, energies and seam costs of an image being carved. Rows
+   * start every stride entries and hold width pixels.
+   */
+  private static class Grid {
+    private final int[] rgb;
+    private final int stride;
+    private final int height;
+    private int width;
+    private int[] energy;
+
+    Grid(int[] rgb, int width, int height) {
+      this.rgb = rgb;
+      this.stride = width;
+      this.width = width;
+      this.height = height;
+    }
+
+    void carveTo(int target, int maxBatch) {
+      if (width <= target) {
+        return;
+      }
+      energy = new int[rgb.length];
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int j = 0; j < width; j++) {
+          energy[i * stride + j] = energyAt(i, j);
+        }
+      });
+      int[] cost = new int[rgb.length];
+      boolean[] claimed = new boolean[rgb.length];
+      while (width > target) {
+        accumulate(cost);
+        int batch = Math.min(width - target,
+                Math.max(1, Math.min(maxBatch, width / BATCH_DIVISOR)));
+        int removed = claimSeams(cost, claimed, batch);
+        int[] gaps = remove(claimed, removed);
+        update(gaps, removed);
+      }
+    }
+
+    /**
+     * Computes the cost of the cheapest seam from the top row to every pixel.
+     * Every row depends on the one above it, so the columns of a row are
+     * split into spans that run in parallel when the row is wide enough.
+     */
+    private void accumulate(int[] cost) {
+      System.arraycopy(energy, 0, cost, 0, width);
+      int spans = (width + PARALLEL_SPAN - 1) / PARALLEL_SPAN;
+      for (int i = 1; i < height; i++) {
+        int row = i * stride;
+        if (spans == 1) {
+          accumulateSpan(cost, row, 0, width);
+        } else {
+          IntStream.range(0, spans).parallel().forEach(s -> accumulateSpan(cost, row,
+                  s * PARALLEL_SPAN, Math.min(width, (s + 1) * PARALLEL_SPAN)));
+        }
+      }
+    }
+
+    private void accumulateSpan(int[] cost, int row, int from, int to) {
+      int above = row - stride;
+      int last = width - 1;
+      for (int j = from; j < to; j++) {
+        int best = cost[above + j];
+        if (j > 0 && cost[above + j - 1] < best) {
+          best = cost[above + j - 1];
+        }
+        if (j < last && cost[above + j + 1] < best) {
+          best = cost[above + j + 1];
+        }
+        cost[row + j] = energy[row + j] + best;
+      }
+    }
+
+    /**
+     * Claims up to the given number of pixel-disjoint seams, cheapest first.
+     * Each seam is traced upwards from its bottom pixel through the cheapest
+     * unclaimed pixel above it, and is dropped if it runs into claimed pixels
+     * on all sides.
+     *
+     * @return The number of seams claimed, at least one.
+     */
+    private int claimSeams(int[] cost, boolean[] claimed, int batch) {
+      int bottom = (height - 1) * stride;
+      long[] ends = new long[width];
+      for (int j = 0; j < width; j++) {
+        ends[j] = (long) cost[bottom + j] << 32 | j;
+      }
+      Arrays.sort(ends);
+      int[] path = new int[height];
+      int claimedSeams = 0;
+      for (int e = 0; e < width && claimedSeams < batch && e < 4 * batch; e++) {
+        int j = (int) ends[e];
+        if (claimed[bottom + j]) {
+          continue;
+        }
+        path[height - 1] = j;
+        boolean traced = true;
+        for (int i = height - 2; i >= 0 && traced; i--) {
+          int row = i * stride;
+          int best = -1;
+          for (int c = Math.max(0, j - 1); c <= Math.min(width - 1, j + 1); c++) {
+            if (!claimed[row + c] && (best < 0 || cost[row + c] < cost[row + best])) {
+              best = c;
+            }
+          }
+          traced = best >= 0;
+          j = best;
+          path[i] = j;
+        }
+        if (traced) {
+          for (int i = 0; i < height; i++) {
+            claimed[i * stride + path[i]] = true;
+          }
+          claimedSeams++;
+        }
+      }
+      return claimedSeams;
+    }
+
+    /**
+     * Removes the claimed pixels, compacting every row, and records where
+     * they were: for each row, the new columns of the pixels that followed
+     * them.
+     */
+    private int[] remove(boolean[] claimed, int removed) {
+      int[] gaps = new int[height * removed];
+      IntStream.range(0, height).parallel().forEach(i -> {
+        int row = i * stride;
+        int next = row;
+        int gap = i * removed;
+        for (int j = row; j < row + width; j++) {
+          if (claimed[j]) {
+            claimed[j] = false;
+            gaps[gap++] = next - row;
+          } else {
+            rgb[next] = rgb[j];
+            energy[next] = energy[j];
+            next++;
+          }
+        }
+      });
+      width -= removed;
+      return gaps;
+    }
+
+    /**
+     * Recomputes the energy of the pixels whose neighbours changed: those
+     * around a gap in their own row or in the rows above and below, since a
+     * seam moves at most one column from row to row.
+     */
+    private void update(int[] gaps, int removed) {
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int r = Math.max(0, i - 1); r <= Math.min(height - 1, i + 1); r++) {
+          for (int g = r * removed; g < (r + 1) * removed; g++) {
+            int to = Math.min(width - 1, gaps[g] + 1);
+            for (int j = Math.max(0, gaps[g] - 2); j <= to; j++) {
+              energy[i * stride + j] = energyAt(i, j);
+            }
+          }
+        }
+      });
+    }
+
+    private int energyAt(int i, int j) {
+      int row = i * stride;
+      int left = rgb[row + Math.max(0, j - 1)];
+      int right = rgb[row + Math.min(width - 1, j + 1)];
+      int up = rgb[Math.max(0, i - 1) * stride + j];
+      int down = rgb[Math.min(height - 1, i + 1) * stride + j];
+      return difference(left, right) + difference(up, down);
+    }
+
+    private static int difference(int a, int b) {
+      return Math.abs((a >> 16) - (b >> 16))
+              + Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF))
+              + Math.abs((a & 0xFF) - (b & 0xFF));
+    }
+
+    Grid transpose() {
+      int[] transposed = new int[width * height];
+      IntStream.range(0, width).parallel().forEach(j -> {
+        for (int i = 0; i < height; i++) {
+          transposed[j * height + i] = rgb[i * stride + j];
+        }
+      });
+      return new Grid(transposed, height, width);
+    }
+
+    ImageInfo toImage() {
+      int[][] planes = new int[3][width * height];
+      IntStream.range(0, height).parallel().forEach(i -> {
+        for (int j = 0; j < width; j++) {
+          int color = rgb[i * stride + j];
+          planes[0][i * width + j] = color >> 16;
+          planes[1][i * width + j] = (color >> 8) & 0xFF;
+          planes[2][i * width + j] = color & 0xFF;
+        }
+      });
+      return ModelUtil.fromPlanes(planes, width, height);
+    }
+  }
+}
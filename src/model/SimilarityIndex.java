@@ -0,0 +1,181 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This class finds the colour signatures nearest to a query. Next to its 64
+ * bins, every signature is summarized by 16 sums of four neighbouring bins,
+ * and the distance between two summaries is never more than the distance
+ * between the signatures. A search scans the summaries, which are stored
+ * together, and only compares the full signatures of those whose summary is
+ * closer than the farthest of the best matches found so far, which for
+ * 100,000 signatures is typically a few percent of them.
+ *
+ * <p>Everything is stored flat in a byte buffer, so an index can be written to
+ * a file and searched straight from a memory mapping of it: first the
+ * summaries of all the signatures as 16 shorts each, then the signatures as
+ * 64 bytes each, in the order of the list they were built from.
+ */
+public class SimilarityIndex {
+  /**
+   * The number of bytes each signature takes in the buffer.
+   */
+  public static final int RECORD_BYTES = 2 * 16 + ColorSignature.SIZE;
+  private static final int SUMMARY_SIZE = 16;
+  private static final int SUMMARY_SPAN = ColorSignature.SIZE / SUMMARY_SIZE;
+
+  private final ByteBuffer records;
+  private final int size;
+
+  private SimilarityIndex(ByteBuffer records) {
+    this.records = records;
+    this.size = records.capacity() / RECORD_BYTES;
+  }
+
+  /**
+   * Builds an index of signatures.
+   *
+   * @param signatures The signatures, numbered by their position in the list.
+   * @return The index.
+   */
+  public static SimilarityIndex build(List<ColorSignature> signatures) {
+    int count = signatures.size();
+    ByteBuffer records = ByteBuffer.allocate(count * RECORD_BYTES);
+    for (ColorSignature signature : signatures) {
+      for (int sum : summarize(signature.getBins())) {
+        records.putShort((short) sum);
+      }
+    }
+    for (ColorSignature signature : signatures) {
+      records.put(signature.getBins());
+    }
+    records.clear();
+    return new SimilarityIndex(records);
+  }
+
+  /**
+   * Searches signatures stored by an index, such as a mapping of a file.
+   *
+   * @param records The stored index, from position 0 to the capacity.
+   * @return The index.
+   * @throws IllegalArgumentException If the buffer does not hold whole
+   *                                  records.
+   */
+  public static SimilarityIndex wrap(ByteBuffer records) throws IllegalArgumentException {
+    if (records.capacity() % RECORD_BYTES != 0) {
+      throw new IllegalArgumentException("The buffer does not hold whole records.");
+    }
+    return new SimilarityIndex(records);
+  }
+
+  /**
+   * Gets the stored index, for saving it.
+   *
+   * @return A read-only view of the whole buffer.
+   */
+  public ByteBuffer getRecords() {
+    ByteBuffer view = records.asReadOnlyBuffer();
+    view.clear();
+    return view;
+  }
+
+  /**
+   * Gets the number of signatures in this index.
+   *
+   * @return The number of signatures.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the signatures nearest to a query.
+   *
+   * @param query The signature to look up.
+   * @param count The largest number of signatures to return.
+   * @return The nearest signatures, nearest first and by number among equally
+   *         near ones.
+   */
+  public List<Match> nearest(ColorSignature query, int count) {
+    int[] querySummary = summarize(query.getBins());
+    int binsStart = size * 2 * SUMMARY_SIZE;
+    // The best matches so far, the worst at the head.
+    PriorityQueue<Match> best = new PriorityQueue<>(Collections.reverseOrder());
+    int worst = Integer.MAX_VALUE;
+    for (int id = 0; id < size && count > 0; id++) {
+      int bound = 0;
+      int start = id * SUMMARY_SIZE;
+      for (int s = 0; s < SUMMARY_SIZE && bound < worst; s++) {
+        bound += Math.abs(querySummary[s] - records.getShort((start + s) * 2));
+      }
+      // Signatures scanned later lose ties, so one whose bound reaches the
+      // worst of the best cannot replace it.
+      if (bound >= worst) {
+        continue;
+      }
+      Match match = new Match(id, query.distance(records, binsStart + id * ColorSignature.SIZE));
+      if (best.size() < count) {
+        best.add(match);
+      } else if (match.compareTo(best.peek()) < 0) {
+        best.poll();
+        best.add(match);
+      }
+      if (best.size() == count) {
+        worst = best.peek().distance;
+      }
+    }
+    List<Match> matches = new ArrayList<>(best);
+    Collections.sort(matches);
+    return matches;
+  }
+
+  private static int[] summarize(byte[] bins) {
+    int[] summary = new int[SUMMARY_SIZE];
+    for (int bin = 0; bin < bins.length; bin++) {
+      summary[bin / SUMMARY_SPAN] += bins[bin] & 0xFF;
+    }
+    return summary;
+  }
+
+  /**
+   * A signature found by a search.
+   */
+  public static class Match implements Comparable<Match> {
+    private final int id;
+    private final int distance;
+
+    Match(int id, int distance) {
+      this.id = id;
+      this.distance = distance;
+    }
+
+    /**
+     * Gets the number of the signature, its position in the list the index
+     * was built from.
+     *
+     * @return The number of the signature.
+     */
+    public int getId() {
+      return id;
+    }
+
+    /**
+     * Gets the distance of the signature from the query.
+     *
+     * @return The distance, from 0 to about 510.
+     */
+    public int getDistance() {
+      return distance;
+    }
+
+    @Override
+    public int compareTo(Match other) {
+      return distance != other.distance ? Integer.compare(distance, other.distance)
+              : Integer.compare(id, other.id);
+    }
+  }
+}
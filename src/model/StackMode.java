@@ -0,0 +1,33 @@
+package model;
+
+/**
+ * Enumeration of the ways a stack of same-size images can be reduced to a
+ * single image, pixel by pixel and channel by channel.
+ */
+public enum StackMode {
+  MEAN,
+  MEDIAN,
+  MAX;
+
+  /**
+   * Returns the corresponding enum value for the name of a stacking mode.
+   *
+   * @param name The name of the mode, such as "median".
+   * @return The corresponding enum value, or null if the name is unknown.
+   */
+  public static StackMode fromName(String name) {
+    if (name != null) {
+      switch (name.toLowerCase()) {
+        case "mean":
+          return MEAN;
+        case "median":
+          return MEDIAN;
+        case "max":
+          return MAX;
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+}
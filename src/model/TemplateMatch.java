@@ -0,0 +1,54 @@
+package model;
+
+/**
+ * This class holds a place where a template was found in an image: the
+ * position of the top-left corner of the template and the normalized
+ * cross-correlation of the template with the image there.
+ */
+public class TemplateMatch {
+  private final int row;
+  private final int column;
+  private final double score;
+
+  /**
+   * Creates a match.
+   *
+   * @param row    The row of the top-left corner of the template.
+   * @param column The column of the top-left corner of the template.
+   * @param score  The normalized cross-correlation, between -1 and 1.
+   */
+  public TemplateMatch(int row, int column, double score) {
+    this.row = row;
+    this.column = column;
+    this.score = score;
+  }
+
+  /**
+   * Gets the row of the top-left corner of the template.
+   *
+   * @return The row.
+   */
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Gets the column of the top-left corner of the template.
+   *
+   * @return The column.
+   */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * Gets the normalized cross-correlation of the template with the image at
+   * this place, 1 meaning the image matches the template up to brightness
+   * and contrast.
+   *
+   * @return The score, between -1 and 1.
+   */
+  public double getScore() {
+    return score;
+  }
+}
@@ -0,0 +1,359 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The TemplateMatcher class finds where a template appears in an image by the
+ * normalized cross-correlation of their lumas, which ignores differences in
+ * brightness and contrast. The correlation with the zero-mean template is
+ * computed with FFTs, and the sums and sums of squares of the image under
+ * every placement of the template come from integral images, so the cost
+ * does not grow with the size of the template.
+ *
+ * <p>The image is cut into overlapping power-of-two tiles, at least four times
+ * the template in each direction, which are correlated independently and in
+ * parallel, two tiles per complex transform. A tile of size n gives the scores of the
+ * n - t + 1 placements starting in it, t being the template size, so a
+ * circular correlation never wraps into them. The best matches are the
+ * highest positive local maxima of the scores that are at least half a
+ * template apart.
+ */
+class TemplateMatcher {
+  private static final int MIN_TILE = 256;
+
+  /**
+   * Finds the best matches of a template.
+   *
+   * @param image    The image to search.
+   * @param template The template, no larger than the image.
+   * @param count    The largest number of matches to return.
+   * @return The matches, best first.
+   */
+  static List<TemplateMatch> find(ImageInfo image, ImageInfo template, int count) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int templateWidth = template.getWidth();
+    int templateHeight = template.getHeight();
+    int[] luma = ColorSpaces.luma(ModelUtil.toPlanes(image));
+    int[] templateLuma = ColorSpaces.luma(ModelUtil.toPlanes(template));
+    int n = templateLuma.length;
+    long templateSum = 0;
+    long templateSquares = 0;
+    for (int value : templateLuma) {
+      templateSum += value;
+      templateSquares += (long) value * value;
+    }
+    double templateVariance = templateSquares - (double) templateSum * templateSum / n;
+    if (!(templateVariance > 0)) {
+      throw new IllegalArgumentException("Template should not be of a single color.");
+    }
+
+    int tileWidth = Math.min(powerOfTwo(width), Math.max(MIN_TILE, powerOfTwo(4 * templateWidth)));
+    int tileHeight = Math.min(powerOfTwo(height),
+            Math.max(MIN_TILE, powerOfTwo(4 * templateHeight)));
+    double templateMean = (double) templateSum / n;
+    double[] templateReal = new double[tileWidth * tileHeight];
+    double[] templateImaginary = new double[tileWidth * tileHeight];
+    for (int i = 0; i < templateHeight; i++) {
+      for (int j = 0; j < templateWidth; j++) {
+        templateReal[i * tileWidth + j] = templateLuma[i * templateWidth + j] - templateMean;
+      }
+    }
+    fft2(templateReal, templateImaginary, tileWidth, tileHeight, false);
+
+    Search search = new Search(luma, width, height, templateWidth, templateHeight,
+            templateVariance, tileWidth, tileHeight);
+    int tiles = search.tilesX * search.tilesY;
+    IntStream.range(0, (tiles + 1) / 2).parallel().forEach(pair ->
+            search.correlatePair(2 * pair, 2 * pair + 1 < tiles ? 2 * pair + 1 : -1,
+                    templateReal, templateImaginary));
+    return bestMatches(search.scores, search.outWidth, search.outHeight, templateWidth,
+            templateHeight, count);
+  }
+
+  /**
+   * The scores of every placement of the template, filled in tile by tile.
+   */
+  private static class Search {
+    private final int[] luma;
+    private final int width;
+    private final int height;
+    private final int templateWidth;
+    private final int templateHeight;
+    private final double templateVariance;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int outWidth;
+    private final int outHeight;
+    private final int stepX;
+    private final int stepY;
+    private final int tilesX;
+    private final int tilesY;
+    private final float[] scores;
+
+    Search(int[] luma, int width, int height, int templateWidth, int templateHeight,
+           double templateVariance, int tileWidth, int tileHeight) {
+      this.luma = luma;
+      this.width = width;
+      this.height = height;
+      this.templateWidth = templateWidth;
+      this.templateHeight = templateHeight;
+      this.templateVariance = templateVariance;
+      this.tileWidth = tileWidth;
+      this.tileHeight = tileHeight;
+      this.outWidth = width - templateWidth + 1;
+      this.outHeight = height - templateHeight + 1;
+      this.stepX = tileWidth - templateWidth + 1;
+      this.stepY = tileHeight - templateHeight + 1;
+      this.tilesX = (outWidth + stepX - 1) / stepX;
+      this.tilesY = (outHeight + stepY - 1) / stepY;
+      this.scores = new float[outWidth * outHeight];
+    }
+
+    /**
+     * Correlates two tiles with one complex transform, the first as its real
+     * part and the second as its imaginary part. The template is real, so
+     * the real and imaginary parts of the result are the correlations of the
+     * two tiles.
+     */
+    void correlatePair(int first, int second, double[] templateReal,
+                       double[] templateImaginary) {
+      double[] real = new double[tileWidth * tileHeight];
+      double[] imaginary = new double[tileWidth * tileHeight];
+      load(first, real);
+      if (second >= 0) {
+        load(second, imaginary);
+      }
+      fft2(real, imaginary, tileWidth, tileHeight, false);
+      for (int p = 0; p < real.length; p++) {
+        double re = real[p] * templateReal[p] + imaginary[p] * templateImaginary[p];
+        double im = imaginary[p] * templateReal[p] - real[p] * templateImaginary[p];
+        real[p] = re;
+        imaginary[p] = im;
+      }
+      fft2(real, imaginary, tileWidth, tileHeight, true);
+      score(first, real);
+      if (second >= 0) {
+        score(second, imaginary);
+      }
+    }
+
+    private void load(int tile, double[] target) {
+      int top = tile / tilesX * stepY;
+      int left = tile % tilesX * stepX;
+      int rows = Math.min(tileHeight, height - top);
+      int columns = Math.min(tileWidth, width - left);
+      for (int i = 0; i < rows; i++) {
+        int source = (top + i) * width + left;
+        for (int j = 0; j < columns; j++) {
+          target[i * tileWidth + j] = luma[source + j];
+        }
+      }
+    }
+
+    /**
+     * Normalizes the correlations of a tile by the spread of the image under
+     * each placement, from integral images of the tile.
+     */
+    private void score(int tile, double[] correlation) {
+      int top = tile / tilesX * stepY;
+      int left = tile % tilesX * stepX;
+      int rows = Math.min(tileHeight, height - top);
+      int columns = Math.min(tileWidth, width - left);
+      int stride = columns + 1;
+      long[] sums = new long[(rows + 1) * stride];
+      long[] squares = new long[(rows + 1) * stride];
+      for (int i = 0; i < rows; i++) {
+        long rowSum = 0;
+        long rowSquares = 0;
+        int source = (top + i) * width + left;
+        for (int j = 0; j < columns; j++) {
+          int value = luma[source + j];
+          rowSum += value;
+          rowSquares += (long) value * value;
+          int cell = (i + 1) * stride + j + 1;
+          sums[cell] = sums[cell - stride] + rowSum;
+          squares[cell] = squares[cell - stride] + rowSquares;
+        }
+      }
+      long n = (long) templateWidth * templateHeight;
+      int lastRow = Math.min(tileHeight - templateHeight, outHeight - 1 - top);
+      int lastColumn = Math.min(tileWidth - templateWidth, outWidth - 1 - left);
+      for (int u = 0; u <= lastRow; u++) {
+        for (int v = 0; v <= lastColumn; v++) {
+          int topLeft = u * stride + v;
+          int bottomLeft = (u + templateHeight) * stride + v;
+          long sum = sums[bottomLeft + templateWidth] - sums[bottomLeft]
+                  - sums[topLeft + templateWidth] + sums[topLeft];
+          long sumSquares = squares[bottomLeft + templateWidth] - squares[bottomLeft]
+                  - squares[topLeft + templateWidth] + squares[topLeft];
+          long spread = n * sumSquares - sum * sum;
+          float score = 0;
+          if (spread > 0) {
+            double variance = (double) spread / n;
+            double value = correlation[u * tileWidth + v] / Math.sqrt(variance * templateVariance);
+            score = (float) Math.max(-1, Math.min(1, value));
+          }
+          scores[(top + u) * outWidth + left + v] = score;
+        }
+      }
+    }
+  }
+
+  /**
+   * Picks the highest positive local maxima of the scores, skipping any
+   * closer than half a template to a better one.
+   */
+  private static List<TemplateMatch> bestMatches(float[] scores, int width, int height,
+                                                 int templateWidth, int templateHeight,
+                                                 int count) {
+    int peakCount = 0;
+    long[] peaks = new long[64];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        float score = scores[i * width + j];
+        if (score > 0 && isPeak(scores, width, height, i, j, score)) {
+          if (peakCount == peaks.length) {
+            peaks = Arrays.copyOf(peaks, 2 * peakCount);
+          }
+          // Positive floats order like their bits, so this sorts by score.
+          peaks[peakCount++] = (long) Float.floatToIntBits(score) << 32 | (i * width + j);
+        }
+      }
+    }
+    Arrays.sort(peaks, 0, peakCount);
+    int minRows = Math.max(1, templateHeight / 2);
+    int minColumns = Math.max(1, templateWidth / 2);
+    List<TemplateMatch> matches = new ArrayList<>();
+    for (int p = peakCount - 1; p >= 0 && matches.size() < count; p--) {
+      int index = (int) peaks[p];
+      int row = index / width;
+      int column = index % width;
+      boolean separate = true;
+      for (TemplateMatch match : matches) {
+        if (Math.abs(match.getRow() - row) < minRows
+                && Math.abs(match.getColumn() - column) < minColumns) {
+          separate = false;
+          break;
+        }
+      }
+      if (separate) {
+        matches.add(new TemplateMatch(row, column, scores[row * width + column]));
+      }
+    }
+    return matches;
+  }
+
+  private static boolean isPeak(float[] scores, int width, int height, int i, int j,
+                                float score) {
+    for (int r = Math.max(0, i - 1); r <= Math.min(height - 1, i + 1); r++) {
+      for (int c = Math.max(0, j - 1); c <= Math.min(width - 1, j + 1); c++) {
+        if (scores[r * width + c] > score) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static int powerOfTwo(int size) {
+    return Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+  }
+
+  /**
+   * Transforms a row-major grid in place: every row, then every column.
+   */
+  private static void fft2(double[] real, double[] imaginary, int width, int height,
+                           boolean inverse) {
+    double[][] rowTwiddles = twiddles(width, inverse);
+    double[] rowReal = new double[width];
+    double[] rowImaginary = new double[width];
+    for (int i = 0; i < height; i++) {
+      System.arraycopy(real, i * width, rowReal, 0, width);
+      System.arraycopy(imaginary, i * width, rowImaginary, 0, width);
+      fft(rowReal, rowImaginary, rowTwiddles);
+      System.arraycopy(rowReal, 0, real, i * width, width);
+      System.arraycopy(rowImaginary, 0, imaginary, i * width, width);
+    }
+    double[][] columnTwiddles = twiddles(height, inverse);
+    double[] columnReal = new double[height];
+    double[] columnImaginary = new double[height];
+    for (int j = 0; j < width; j++) {
+      for (int i = 0; i < height; i++) {
+        columnReal[i] = real[i * width + j];
+        columnImaginary[i] = imaginary[i * width + j];
+      }
+      fft(columnReal, columnImaginary, columnTwiddles);
+      for (int i = 0; i < height; i++) {
+        real[i * width + j] = columnReal[i];
+        imaginary[i * width + j] = columnImaginary[i];
+      }
+    }
+    if (inverse) {
+      double scale = 1.0 / ((double) width * height);
+      for (int p = 0; p < real.length; p++) {
+        real[p] *= scale;
+        imaginary[p] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Computes the cosines and sines of the angles -2 pi k / length, or of
+   * their opposites for the inverse transform, for k below length / 2.
+   */
+  private static double[][] twiddles(int length, boolean inverse) {
+    double[][] twiddles = new double[2][Math.max(1, length / 2)];
+    for (int k = 0; k < length / 2; k++) {
+      double angle = (inverse ? 2 : -2) * Math.PI * k / length;
+      twiddles[0][k] = Math.cos(angle);
+      twiddles[1][k] = Math.sin(angle);
+    }
+    return twiddles;
+  }
+
+  /**
+   * Iterative radix-2 FFT of a power-of-two length, without scaling.
+   */
+  private static void fft(double[] real, double[] imaginary, double[][] twiddles) {
+    int length = real.length;
+    for (int i = 1, j = 0; i < length; i++) {
+      int bit = length >> 1;
+      for (; (j & bit) != 0; bit >>= 1) {
+        j ^= bit;
+      }
+      j ^= bit;
+      if (i < j) {
+        double swap = real[i];
+        real[i] = real[j];
+        real[j] = swap;
+        swap = imaginary[i];
+        imaginary[i] = imaginary[j];
+        imaginary[j] = swap;
+      }
+    }
+    double[] cosines = twiddles[0];
+    double[] sines = twiddles[1];
+    for (int size = 2; size <= length; size <<= 1) {
+      int half = size / 2;
+      int stride = length / size;
+      for (int start = 0; start < length; start += size) {
+        for (int k = 0; k < half; k++) {
+          double wReal = cosines[k * stride];
+          double wImaginary = sines[k * stride];
+          int even = start + k;
+          int odd = even + half;
+          double oddReal = real[odd] * wReal - imaginary[odd] * wImaginary;
+          double oddImaginary = real[odd] * wImaginary + imaginary[odd] * wReal;
+          real[odd] = real[even] - oddReal;
+          imaginary[odd] = imaginary[even] - oddImaginary;
+          real[even] += oddReal;
+          imaginary[even] += oddImaginary;
+        }
+      }
+    }
+  }
+}
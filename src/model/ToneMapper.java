@@ -0,0 +1,182 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The ToneMapper class compresses the large-scale brightness variations of an
+ * image, such as a dark room against a bright window, while keeping and
+ * slightly boosting its local contrast. It works on the logarithm of the luma
+ * of every pixel, split into a Laplacian pyramid: the band-pass levels finer
+ * than about a sixty-fourth of the image are multiplied by 1 + strength / 2,
+ * and the coarser levels, together with the distance of the residual below
+ * its brightest value, by 1 - strength, so the brightest areas keep their
+ * level and the darker ones are lifted towards it. The colour channels are then scaled by the ratio
+ * of the new luma to the old one, which keeps the hues.
+ *
+ * <p>The pyramid holds a single float per pixel and per level, about 1.33
+ * times the pixel count in all. Each level is computed in place: the Gaussian
+ * levels are built with a separable 5-tap filter, each is then replaced by its
+ * difference from the expansion of the next, and the pyramid is collapsed
+ * from the coarsest level by adding the expansion of each level to the
+ * weighted level below it. Levels depend on one another, so the work inside
+ * each level is split into rows that run in parallel.
+ */
+class ToneMapper {
+  private static final float[] EXPAND_EVEN = {1 / 8f, 6 / 8f, 1 / 8f};
+  private static final float[] FILTER = {1 / 16f, 4 / 16f, 6 / 16f, 4 / 16f, 1 / 16f};
+  private static final int DETAIL_DIVISOR = 64;
+  private static final int SMALLEST_LEVEL = 8;
+  private static final double OFFSET = 1.0 / 256;
+
+  /**
+   * Tone-maps an image.
+   *
+   * @param image    The image to tone-map.
+   * @param strength How much to compress large-scale variations, from 0 for
+   *                 none to 1 for flattening them completely.
+   * @return The tone-mapped image.
+   */
+  static ImageInfo map(ImageInfo image, double strength) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[][] planes = ModelUtil.toPlanes(image);
+    float[] base = new float[width * height];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        double luma = ColorSpaces.luma(planes[0][p], planes[1][p], planes[2][p]);
+        base[p] = (float) Math.log(luma / 255 + OFFSET);
+      }
+    });
+
+    int levelCount = 1;
+    while (levelCount < 32 && Math.min(size(width, levelCount), size(height, levelCount))
+            >= SMALLEST_LEVEL) {
+      levelCount++;
+    }
+    float[][] levels = new float[levelCount][];
+    int[] widths = new int[levelCount];
+    int[] heights = new int[levelCount];
+    levels[0] = base;
+    widths[0] = width;
+    heights[0] = height;
+    for (int l = 1; l < levelCount; l++) {
+      widths[l] = size(width, l);
+      heights[l] = size(height, l);
+      levels[l] = reduce(levels[l - 1], widths[l - 1], heights[l - 1], widths[l], heights[l]);
+    }
+    for (int l = 0; l < levelCount - 1; l++) {
+      expand(levels[l + 1], widths[l + 1], heights[l + 1], levels[l], widths[l], heights[l],
+              -1, 1);
+    }
+
+    float[] residual = levels[levelCount - 1];
+    float brightest = residual[0];
+    for (float value : residual) {
+      brightest = Math.max(brightest, value);
+    }
+    float coarseGain = (float) (1 - strength);
+    float detailGain = (float) (1 + strength / 2);
+    for (int p = 0; p < residual.length; p++) {
+      residual[p] = brightest + coarseGain * (residual[p] - brightest);
+    }
+    int detailSize = Math.max(width, height) / DETAIL_DIVISOR;
+    for (int l = levelCount - 2; l >= 0; l--) {
+      float gain = (1 << l) < detailSize ? detailGain : coarseGain;
+      expand(levels[l + 1], widths[l + 1], heights[l + 1], levels[l], widths[l], heights[l],
+              1, gain);
+    }
+
+    int[][] result = new int[3][width * height];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      for (int p = i * width; p < (i + 1) * width; p++) {
+        double luma = ColorSpaces.luma(planes[0][p], planes[1][p], planes[2][p]) / 255 + OFFSET;
+        double ratio = Math.exp(base[p]) / luma;
+        for (int k = 0; k < 3; k++) {
+          result[k][p] = (int) Math.round(Math.min(255, (planes[k][p] + 255 * OFFSET) * ratio
+                  - 255 * OFFSET));
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  private static int size(int size, int level) {
+    for (int l = 0; l < level; l++) {
+      size = (size + 1) / 2;
+    }
+    return size;
+  }
+
+  /**
+   * Blurs a level with the 5-tap filter in both directions and keeps every
+   * other row and column. Every output row filters its five input rows
+   * horizontally at the kept columns only.
+   */
+  private static float[] reduce(float[] input, int width, int height,
+                                int outWidth, int outHeight) {
+    float[] output = new float[outWidth * outHeight];
+    IntStream.range(0, outHeight).parallel().forEach(i -> {
+      int outRow = i * outWidth;
+      for (int t = 0; t < 5; t++) {
+        int row = clampIndex(2 * i + t - 2, height) * width;
+        float rowWeight = FILTER[t];
+        for (int j = 0; j < outWidth; j++) {
+          int x = 2 * j;
+          float sum = FILTER[0] * input[row + clampIndex(x - 2, width)]
+                  + FILTER[1] * input[row + clampIndex(x - 1, width)]
+                  + FILTER[2] * input[row + x]
+                  + FILTER[3] * input[row + clampIndex(x + 1, width)]
+                  + FILTER[4] * input[row + clampIndex(x + 2, width)];
+          output[outRow + j] += rowWeight * sum;
+        }
+      }
+    });
+    return output;
+  }
+
+  /**
+   * Upsamples a level to the size of the one below it with the matching
+   * interpolation, and combines it in place with that level as
+   * fine = gain * fine + sign * expanded. Every output row interpolates the
+   * two or three coarse rows it depends on.
+   */
+  private static void expand(float[] coarse, int coarseWidth, int coarseHeight,
+                             float[] fine, int width, int height, int sign, float gain) {
+    IntStream.range(0, height).parallel().forEach(y -> {
+      float[] row = new float[coarseWidth];
+      if ((y & 1) == 0) {
+        for (int t = -1; t <= 1; t++) {
+          addRow(coarse, clampIndex(y / 2 + t, coarseHeight) * coarseWidth, coarseWidth,
+                  EXPAND_EVEN[t + 1], row);
+        }
+      } else {
+        addRow(coarse, (y / 2) * coarseWidth, coarseWidth, 0.5f, row);
+        addRow(coarse, clampIndex(y / 2 + 1, coarseHeight) * coarseWidth, coarseWidth,
+                0.5f, row);
+      }
+      int fineRow = y * width;
+      for (int x = 0; x < width; x++) {
+        int j = x / 2;
+        float value;
+        if ((x & 1) == 0) {
+          value = EXPAND_EVEN[0] * row[clampIndex(j - 1, coarseWidth)]
+                  + EXPAND_EVEN[1] * row[j]
+                  + EXPAND_EVEN[2] * row[clampIndex(j + 1, coarseWidth)];
+        } else {
+          value = 0.5f * (row[j] + row[clampIndex(j + 1, coarseWidth)]);
+        }
+        fine[fineRow + x] = gain * fine[fineRow + x] + sign * value;
+      }
+    });
+  }
+
+  private static void addRow(float[] coarse, int start, int width, float weight, float[] row) {
+    for (int j = 0; j < width; j++) {
+      row[j] += weight * coarse[start + j];
+    }
+  }
+
+  private static int clampIndex(int index, int size) {
+    return Math.max(0, Math.min(size - 1, index));
+  }
+}
@@ -0,0 +1,311 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The Warp class applies geometric transformations given as a 3x3 matrix that
+ * maps every output pixel back to a position in the source image. The source
+ * position is not computed with a matrix multiplication per pixel: along an
+ * output row it changes by a constant step, so it is found by adding that step
+ * to the position of the previous pixel. Affine maps step in 16.16 fixed point;
+ * perspective maps step their homogeneous coordinates and divide once per pixel.
+ * The output is processed in square tiles that run in parallel. Positions that
+ * fall outside the source image are filled with black.
+ */
+class Warp {
+  private static final int TILE_SIZE = 64;
+  private static final int POSITION_BITS = 16;
+  private static final int HALF = 1 << (POSITION_BITS - 1);
+  private static final int FRACTION_BITS = 8;
+  private static final int CUBIC_BITS = 12;
+  private static final int[][] CUBIC_WEIGHTS = cubicWeights();
+
+  /**
+   * Gets the inverse matrix of a rotation about the centre of an image.
+   *
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param degrees The angle of the rotation, clockwise.
+   * @return The matrix that maps output pixels to source positions.
+   */
+  static double[] rotation(int width, int height, double degrees) {
+    double radians = Math.toRadians(degrees);
+    double cos = Math.cos(radians);
+    double sin = Math.sin(radians);
+    double cx = (width - 1) / 2.0;
+    double cy = (height - 1) / 2.0;
+    return new double[]{
+      cos, sin, cx - cos * cx - sin * cy,
+      -sin, cos, cy + sin * cx - cos * cy,
+      0, 0, 1
+    };
+  }
+
+  /**
+   * Gets the inverse matrix of an affine transformation.
+   *
+   * @param matrix The transformation as {a, b, c, d, e, f}, mapping a source
+   *               pixel (x, y) to (ax + by + c, dx + ey + f).
+   * @return The matrix that maps output pixels to source positions.
+   * @throws IllegalArgumentException If the transformation cannot be inverted.
+   */
+  static double[] affine(double[] matrix) throws IllegalArgumentException {
+    double a = matrix[0];
+    double b = matrix[1];
+    double c = matrix[2];
+    double d = matrix[3];
+    double e = matrix[4];
+    double f = matrix[5];
+    double determinant = a * e - b * d;
+    if (Math.abs(determinant) < 1e-12) {
+      throw new IllegalArgumentException("Transformation cannot be inverted.");
+    }
+    return new double[]{
+      e / determinant, -b / determinant, (b * f - c * e) / determinant,
+      -d / determinant, a / determinant, (c * d - a * f) / determinant,
+      0, 0, 1
+    };
+  }
+
+  /**
+   * Gets the inverse matrix of the perspective transformation that moves the
+   * corners of an image to the given positions.
+   *
+   * @param width   The width of the image.
+   * @param height  The height of the image.
+   * @param corners The new positions of the top-left, top-right, bottom-right
+   *                and bottom-left corners as {x0, y0, x1, y1, x2, y2, x3, y3}.
+   * @return The matrix that maps output pixels to source positions.
+   * @throws IllegalArgumentException If the corners do not describe a valid
+   *                                  transformation.
+   */
+  static double[] perspective(int width, int height, double[] corners)
+          throws IllegalArgumentException {
+    double[] source = {0, 0, width - 1, 0, width - 1, height - 1, 0, height - 1};
+    double[][] system = new double[8][9];
+    for (int p = 0; p < 4; p++) {
+      double x = corners[2 * p];
+      double y = corners[2 * p + 1];
+      double u = source[2 * p];
+      double v = source[2 * p + 1];
+      system[2 * p] = new double[]{x, y, 1, 0, 0, 0, -u * x, -u * y, u};
+      system[2 * p + 1] = new double[]{0, 0, 0, x, y, 1, -v * x, -v * y, v};
+    }
+    double[] solution = solve(system);
+    return new double[]{
+      solution[0], solution[1], solution[2],
+      solution[3], solution[4], solution[5],
+      solution[6], solution[7], 1
+    };
+  }
+
+  /**
+   * Warps an image.
+   *
+   * @param image         The image to warp.
+   * @param inverse       The 3x3 matrix, row by row, that maps an output pixel
+   *                      (column, row) to a position in the source image.
+   * @param width         The width of the new image.
+   * @param height        The height of the new image.
+   * @param interpolation How the source image is sampled between pixels.
+   * @return A new ImageInfo with the warped image.
+   */
+  static ImageInfo warp(ImageInfo image, double[] inverse, int width, int height,
+                        Interpolation interpolation) {
+    int[][] planes = ModelUtil.toPlanes(image);
+    int sourceWidth = image.getWidth();
+    int sourceHeight = image.getHeight();
+    boolean affine = inverse[6] == 0 && inverse[7] == 0 && inverse[8] == 1;
+    int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+    int[][] result = new int[3][width * height];
+
+    IntStream.range(0, tilesX * tilesY).parallel().forEach(t -> {
+      int fromColumn = (t % tilesX) * TILE_SIZE;
+      int toColumn = Math.min(width, fromColumn + TILE_SIZE);
+      int fromRow = (t / tilesX) * TILE_SIZE;
+      int toRow = Math.min(height, fromRow + TILE_SIZE);
+      long[] xs = new long[toColumn - fromColumn];
+      long[] ys = new long[toColumn - fromColumn];
+      for (int i = fromRow; i < toRow; i++) {
+        if (affine) {
+          affineRow(inverse, i, fromColumn, xs, ys);
+        } else {
+          perspectiveRow(inverse, i, fromColumn, xs, ys);
+        }
+        int offset = i * width + fromColumn;
+        if (interpolation == Interpolation.BICUBIC) {
+          bicubicRow(planes, sourceWidth, sourceHeight, xs, ys, result, offset);
+        } else {
+          bilinearRow(planes, sourceWidth, sourceHeight, xs, ys, result, offset);
+        }
+      }
+    });
+    return ModelUtil.fromPlanes(result, width, height);
+  }
+
+  private static void affineRow(double[] m, int row, int fromColumn, long[] xs, long[] ys) {
+    double one = 1 << POSITION_BITS;
+    long x = Math.round((m[0] * fromColumn + m[1] * row + m[2]) * one);
+    long y = Math.round((m[3] * fromColumn + m[4] * row + m[5]) * one);
+    long stepX = Math.round(m[0] * one);
+    long stepY = Math.round(m[3] * one);
+    for (int j = 0; j < xs.length; j++) {
+      xs[j] = x;
+      ys[j] = y;
+      x += stepX;
+      y += stepY;
+    }
+  }
+
+  private static void perspectiveRow(double[] m, int row, int fromColumn,
+                                     long[] xs, long[] ys) {
+    double one = 1 << POSITION_BITS;
+    double x = m[0] * fromColumn + m[1] * row + m[2];
+    double y = m[3] * fromColumn + m[4] * row + m[5];
+    double w = m[6] * fromColumn + m[7] * row + m[8];
+    for (int j = 0; j < xs.length; j++) {
+      if (w > 0) {
+        double scale = one / w;
+        xs[j] = Math.round(x * scale);
+        ys[j] = Math.round(y * scale);
+      } else {
+        xs[j] = Long.MIN_VALUE;
+        ys[j] = Long.MIN_VALUE;
+      }
+      x += m[0];
+      y += m[3];
+      w += m[6];
+    }
+  }
+
+  private static boolean inside(long x, long y, int width, int height) {
+    return x >= -HALF && y >= -HALF
+            && x <= ((long) (width - 1) << POSITION_BITS) + HALF
+            && y <= ((long) (height - 1) << POSITION_BITS) + HALF;
+  }
+
+  private static void bilinearRow(int[][] planes, int width, int height,
+                                  long[] xs, long[] ys, int[][] result, int offset) {
+    int shift = POSITION_BITS - FRACTION_BITS;
+    int mask = (1 << FRACTION_BITS) - 1;
+    for (int j = 0; j < xs.length; j++) {
+      long x = xs[j];
+      long y = ys[j];
+      if (!inside(x, y, width, height)) {
+        continue;
+      }
+      int column = (int) (x >> POSITION_BITS);
+      int row = (int) (y >> POSITION_BITS);
+      int fx = (int) (x >> shift) & mask;
+      int fy = (int) (y >> shift) & mask;
+      int left = Math.max(0, column);
+      int right = Math.min(width - 1, column + 1);
+      int top = Math.max(0, row) * width;
+      int bottom = Math.min(height - 1, row + 1) * width;
+      int gx = (1 << FRACTION_BITS) - fx;
+      int gy = (1 << FRACTION_BITS) - fy;
+      for (int k = 0; k < 3; k++) {
+        int[] source = planes[k];
+        int upper = gx * source[top + left] + fx * source[top + right];
+        int lower = gx * source[bottom + left] + fx * source[bottom + right];
+        result[k][offset + j] = (gy * upper + fy * lower + (1 << (2 * FRACTION_BITS - 1)))
+                >> (2 * FRACTION_BITS);
+      }
+    }
+  }
+
+  private static void bicubicRow(int[][] planes, int width, int height,
+                                 long[] xs, long[] ys, int[][] result, int offset) {
+    int shift = POSITION_BITS - FRACTION_BITS;
+    int mask = (1 << FRACTION_BITS) - 1;
+    int[] columns = new int[4];
+    int[] rows = new int[4];
+    for (int j = 0; j < xs.length; j++) {
+      long x = xs[j];
+      long y = ys[j];
+      if (!inside(x, y, width, height)) {
+        continue;
+      }
+      int column = (int) (x >> POSITION_BITS);
+      int row = (int) (y >> POSITION_BITS);
+      int[] wx = CUBIC_WEIGHTS[(int) (x >> shift) & mask];
+      int[] wy = CUBIC_WEIGHTS[(int) (y >> shift) & mask];
+      for (int t = 0; t < 4; t++) {
+        columns[t] = Math.min(width - 1, Math.max(0, column - 1 + t));
+        rows[t] = Math.min(height - 1, Math.max(0, row - 1 + t)) * width;
+      }
+      for (int k = 0; k < 3; k++) {
+        int[] source = planes[k];
+        int sum = 0;
+        for (int r = 0; r < 4; r++) {
+          int base = rows[r];
+          int line = wx[0] * source[base + columns[0]] + wx[1] * source[base + columns[1]]
+                  + wx[2] * source[base + columns[2]] + wx[3] * source[base + columns[3]];
+          sum += wy[r] * ((line + (1 << (CUBIC_BITS - 1))) >> CUBIC_BITS);
+        }
+        result[k][offset + j] = ModelUtil.clamp((sum + (1 << (CUBIC_BITS - 1))) >> CUBIC_BITS);
+      }
+    }
+  }
+
+  /**
+   * Catmull-Rom weights of the four taps around a position, for every 8-bit
+   * fraction of a pixel, in fixed point adding up to exactly one.
+   */
+  private static int[][] cubicWeights() {
+    int fractions = 1 << FRACTION_BITS;
+    int[][] weights = new int[fractions][4];
+    for (int f = 0; f < fractions; f++) {
+      double t = (double) f / fractions;
+      double[] raw = {
+        ((-0.5 * t + 1) * t - 0.5) * t,
+        (1.5 * t - 2.5) * t * t + 1,
+        ((-1.5 * t + 2) * t + 0.5) * t,
+        (0.5 * t - 0.5) * t * t
+      };
+      int sum = 0;
+      for (int i = 0; i < 4; i++) {
+        weights[f][i] = (int) Math.round(raw[i] * (1 << CUBIC_BITS));
+        sum += weights[f][i];
+      }
+      weights[f][t < 0.5 ? 1 : 2] += (1 << CUBIC_BITS) - sum;
+    }
+    return weights;
+  }
+
+  /**
+   * Solves a linear system given as rows of coefficients followed by the
+   * constant, using Gaussian elimination with partial pivoting.
+   */
+  private static double[] solve(double[][] system) throws IllegalArgumentException {
+    int size = system.length;
+    for (int c = 0; c < size; c++) {
+      int pivot = c;
+      for (int r = c + 1; r < size; r++) {
+        if (Math.abs(system[r][c]) > Math.abs(system[pivot][c])) {
+          pivot = r;
+        }
+      }
+      if (Math.abs(system[pivot][c]) < 1e-12) {
+        throw new IllegalArgumentException("Corners do not describe a valid transformation.");
+      }
+      double[] swap = system[c];
+      system[c] = system[pivot];
+      system[pivot] = swap;
+      for (int r = 0; r < size; r++) {
+        if (r != c) {
+          double factor = system[r][c] / system[c][c];
+          for (int k = c; k <= size; k++) {
+            system[r][k] -= factor * system[c][k];
+          }
+        }
+      }
+    }
+    double[] solution = new double[size];
+    for (int r = 0; r < size; r++) {
+      solution[r] = system[r][size] / system[r][r];
+    }
+    return solution;
+  }
+}
@@ -2,11 +2,25 @@ package controller;
 
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.imageio.ImageIO;
+
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 
 /**
  * Test class for the EnhancedController class.
@@ -661,4 +675,992 @@ public class EnhancedControllerTest {
     String expectedOutputLines = "[Invalid script file extension. Should be .txt]";
     assertEquals(expectedOutputLines, io.getOutputLines().toString());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testClahe() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 300;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "clahe 8 2.5 png pngClahe",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: claheImage (" + uniqueCode + ")"
+            + "\nTiles: 8"
+            + "\nClip Limit: 2.5"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > clahe 8 2.5 png pngClahe, " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testClaheInvalidValues() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 301;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "clahe 0 2 png pngClahe",
+            "clahe 8 0.5 png pngClahe",
+            "clahe 8 2 png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > clahe 0 2 png pngClahe, " +
+            "Number of tiles should be a positive integer., " +
+            "Enter a command: , > clahe 8 0.5 png pngClahe, " +
+            "Clip limit should be a number not less than 1., " +
+            "Enter a command: , > clahe 8 2 png, " +
+            "Invalid 'clahe' command. Should have 5 arguments., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+  @Test
+  public void testNonLocalMeans() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 302;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "nlmeans 12 png pngDenoised",
+            "nlmeans 12 png pngSplitDenoised split 40",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: denoiseImage (" + uniqueCode + ")"
+            + "\nStrength: 12.0"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: splitDenoise (" + uniqueCode + ")"
+            + "\nPercentage: 40"
+            + "\nStrength: 12.0"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testNonLocalMeansInvalidValues() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 303;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "nlmeans -3 png pngDenoised",
+            "nlmeans 12 png pngDenoised split 120",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > nlmeans -3 png pngDenoised, " +
+            "Denoising strength should be a positive number., " +
+            "Enter a command: , > nlmeans 12 png pngDenoised split 120, " +
+            "Percentage of image width should be between 0 and 100., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+  @Test
+  public void testDither() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 304;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "dither floyd-steinberg 2 png pngDithered",
+            "dither atkinson 4 png pngAtkinson",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: floydSteinbergDither (" + uniqueCode + ")"
+            + "\nLevels: 2"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: atkinsonDither (" + uniqueCode + ")"
+            + "\nLevels: 4"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testDitherInvalidValues() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 305;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "dither ordered 2 png pngDithered",
+            "dither atkinson 1 png pngDithered",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > dither ordered 2 png pngDithered, " +
+            "Dithering method should be floyd-steinberg or atkinson., " +
+            "Enter a command: , > dither atkinson 1 png pngDithered, " +
+            "Number of levels should be an integer between 2 and 256., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+  @Test
+  public void testResizeAndScale() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 306;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "resize 100 50 png pngResized",
+            "resize 400 300 png pngResized bicubic",
+            "scale 50 png pngHalf",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: resizeImage (" + uniqueCode + ")"
+            + "\nSize: 100x50"
+            + "\nFilter: AUTO"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: resizeImage (" + uniqueCode + ")"
+            + "\nSize: 400x300"
+            + "\nFilter: BICUBIC"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: resizeImage (" + uniqueCode + ")"
+            + "\nSize: 136x85"
+            + "\nFilter: AUTO"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testResizeInvalidValues() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 307;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "resize 0 50 png pngResized",
+            "resize 100 50 png pngResized nearest",
+            "scale -5 png pngScaled",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > resize 0 50 png pngResized, " +
+            "Width and height should be positive integers., " +
+            "Enter a command: , > resize 100 50 png pngResized nearest, " +
+            "Unsupported resize filter: nearest, " +
+            "Enter a command: , > scale -5 png pngScaled, " +
+            "Scale percentage should be a positive integer., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+
+  @Test
+  public void testRotateAffineAndPerspective() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 308;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "rotate -2.5 png pngRotated",
+            "affine 1 0.2 0 0 1 0 png pngSheared bicubic",
+            "perspective 10 0 260 5 271 169 0 160 png pngWarped",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: rotateImage (" + uniqueCode + ")"
+            + "\nDegrees: -2.5"
+            + "\nInterpolation: BILINEAR"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: affineTransform (" + uniqueCode + ")"
+            + "\nMatrix: [1.0, 0.2, 0.0, 0.0, 1.0, 0.0]"
+            + "\nInterpolation: BICUBIC"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: perspectiveTransform (" + uniqueCode + ")"
+            + "\nCorners: [10.0, 0.0, 260.0, 5.0, 271.0, 169.0, 0.0, 160.0]"
+            + "\nInterpolation: BILINEAR"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testWarpInvalidValues() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 309;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "rotate left png pngRotated",
+            "rotate NaN png pngRotated",
+            "rotate 5 png pngRotated nearest",
+            "affine 1 0 0 x 1 0 png pngSheared",
+            "affine 1 0 0 -Infinity 1 0 png pngSheared",
+            "perspective 0 0 1 1 png pngWarped",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > rotate left png pngRotated, " +
+            "Rotation angle should be a number., " +
+            "Enter a command: , > rotate NaN png pngRotated, " +
+            "Rotation angle should be a number., " +
+            "Enter a command: , > rotate 5 png pngRotated nearest, " +
+            "Unsupported interpolation: nearest, " +
+            "Enter a command: , > affine 1 0 0 x 1 0 png pngSheared, " +
+            "Affine transformation values should be numbers., " +
+            "Enter a command: , > affine 1 0 0 -Infinity 1 0 png pngSheared, " +
+            "Affine transformation values should be numbers., " +
+            "Enter a command: , > perspective 0 0 1 1 png pngWarped, " +
+            "Invalid 'perspective' command. Should have 11 arguments., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+
+  @Test
+  public void testRemapBuildAndApply() throws IOException {
+    File mapFile = File.createTempFile("camera", ".rmap");
+    mapFile.deleteOnExit();
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 310;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "remap-build -0.1 0.01 272 170 " + mapFile.getPath(),
+            "remap " + mapFile.getPath() + " png pngCorrected",
+            "remap " + mapFile.getPath() + " pngCorrected pngAgain",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: buildDistortionMap (" + uniqueCode + ")"
+            + "\nSize: 272x170"
+            + "\nCoefficients: -0.1 0.01"
+            + "\nMethod: remapImage (" + uniqueCode + ")"
+            + "\nMap Size: 272x170"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    assertEquals(16 + 8 * 272 * 170, mapFile.length());
+  }
+
+  @Test
+  public void testRemapInvalidValues() throws IOException {
+    File mapFile = File.createTempFile("camera", ".rmap");
+    mapFile.deleteOnExit();
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 311;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "remap-build a 0 272 170 " + mapFile.getPath(),
+            "remap-build 0.1 0 0 170 " + mapFile.getPath(),
+            "remap " + mapFile.getPath() + " png pngCorrected",
+            "remap res/missing.rmap png pngCorrected",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > remap-build a 0 272 170 " + mapFile.getPath() + ", " +
+            "Distortion coefficients should be numbers., " +
+            "Enter a command: , > remap-build 0.1 0 0 170 " + mapFile.getPath() + ", " +
+            "Width and height should be positive integers., " +
+            "Enter a command: , > remap " + mapFile.getPath() + " png pngCorrected, " +
+            "Invalid distortion map file., " +
+            "Enter a command: , > remap res/missing.rmap png pngCorrected, " +
+            "File not found at the given path, " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+
+  @Test
+  public void testApplyLut() throws IOException {
+    File cubeFile = File.createTempFile("look", ".cube");
+    cubeFile.deleteOnExit();
+    try (FileWriter writer = new FileWriter(cubeFile)) {
+      writer.write("# identity\nTITLE \"Identity\"\nLUT_3D_SIZE 2\n"
+              + "DOMAIN_MIN 0 0 0\nDOMAIN_MAX 1 1 1\n"
+              + "0 0 0\n1 0 0\n0 1 0\n1 1 0\n0 0 1\n1 0 1\n0 1 1\n1 1 1\n");
+    }
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 312;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "apply-lut " + cubeFile.getPath() + " png pngGraded",
+            "apply-lut " + cubeFile.getPath() + " png pngGraded trilinear",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: applyColorLut (" + uniqueCode + ")"
+            + "\nLUT Size: 2"
+            + "\nInterpolation: TETRAHEDRAL"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: applyColorLut (" + uniqueCode + ")"
+            + "\nLUT Size: 2"
+            + "\nInterpolation: TRILINEAR"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testApplyLutInvalidFiles() throws IOException {
+    File cubeFile = File.createTempFile("look", ".cube");
+    cubeFile.deleteOnExit();
+    try (FileWriter writer = new FileWriter(cubeFile)) {
+      writer.write("LUT_3D_SIZE 2\n0 0 0\n1 0 0\n");
+    }
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 313;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "apply-lut " + cubeFile.getPath() + " png pngGraded",
+            "apply-lut " + cubeFile.getPath() + " png pngGraded nearest",
+            "apply-lut res/missing.cube png pngGraded",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > apply-lut " + cubeFile.getPath() + " png pngGraded, " +
+            "Invalid LUT file: expected 8 entries., " +
+            "Enter a command: , > apply-lut " + cubeFile.getPath()
+            + " png pngGraded nearest, " +
+            "Unsupported interpolation: nearest, " +
+            "Enter a command: , > apply-lut res/missing.cube png pngGraded, " +
+            "File not found at the given path, " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+
+  @Test
+  public void testColorSpaceCommands() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 314;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "to-hsv png pngHsv",
+            "from-lab png pngRgb",
+            "hue-shift 45 png pngShifted",
+            "hue-shift -30 png pngShifted split 50",
+            "saturation 1.5 png pngVivid",
+            "saturation 0.5 png pngMuted split 25",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: convertToColorSpace (" + uniqueCode + ")"
+            + "\nColour Space: HSV"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: convertFromColorSpace (" + uniqueCode + ")"
+            + "\nColour Space: LAB"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: hueShift (" + uniqueCode + ")"
+            + "\nDegrees: 45.0"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: splitHueShift (" + uniqueCode + ")"
+            + "\nDegrees: -30.0"
+            + "\nPercentage: 50"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: adjustSaturation (" + uniqueCode + ")"
+            + "\nFactor: 1.5"
+            + "\nImageData Dimensions: " + "272x170"
+            + "\nMethod: splitSaturation (" + uniqueCode + ")"
+            + "\nFactor: 0.5"
+            + "\nPercentage: 25"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+  }
+
+  @Test
+  public void testColorSpaceInvalidValues() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 315;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "to-ycbcr png",
+            "hue-shift red png pngShifted",
+            "saturation -1 png pngMuted",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > to-ycbcr png, " +
+            "Invalid 'to-ycbcr' command. Should have 3 arguments., " +
+            "Enter a command: , > hue-shift red png pngShifted, " +
+            "Hue rotation should be a number of degrees., " +
+            "Enter a command: , > saturation -1 png pngMuted, " +
+            "Saturation factor should be a number between 0 and 256., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+    assertEquals("", modelLog.toString());
+  }
+
+
+  @Test
+  public void testLabelComponents() throws IOException {
+    File csvFile = File.createTempFile("parts", ".csv");
+    csvFile.deleteOnExit();
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 316;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "label-components 128 png pngLabels " + csvFile.getPath(),
+            "label-components 300 png pngLabels " + csvFile.getPath(),
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: labelComponents (" + uniqueCode + ")"
+            + "\nThreshold: 128"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    assertEquals(Arrays.asList("label,area,left,top,right,bottom,centroid_x,centroid_y",
+            "1,1,0,0,0,0,0.00,0.00"), Files.readAllLines(csvFile.toPath()));
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > label-components 128 png pngLabels "
+            + csvFile.getPath() + ", " +
+            "Enter a command: , > label-components 300 png pngLabels "
+            + csvFile.getPath() + ", " +
+            "Threshold should be an integer between 0 and 255., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+  }
+
+
+  @Test
+  public void testDistanceTransform() throws IOException {
+    File rawFile = File.createTempFile("distances", ".raw");
+    rawFile.deleteOnExit();
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 317;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "distance-transform 128 png pngDistance",
+            "distance-transform 128 png pngDistance " + rawFile.getPath(),
+            "distance-transform x png pngDistance",
+            "distance-transform 128 png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: distanceTransform (" + uniqueCode + ")"
+            + "\nThreshold: 128"
+            + "\nImageData Dimensions: " + "272x170" + "\n"
+            + "Method: distanceTransform (" + uniqueCode + ")"
+            + "\nThreshold: 128"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    ByteBuffer raw = ByteBuffer.wrap(Files.readAllBytes(rawFile.toPath()))
+            .order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(8, raw.remaining());
+    assertEquals(0, raw.getFloat(), 0);
+    assertEquals(1.5f, raw.getFloat(), 0);
+    String expectedOutputLines = "[Enter a command: , > load res/random.png" +
+            " png, Enter a command: , > distance-transform 128 png pngDistance, " +
+            "Enter a command: , > distance-transform 128 png pngDistance "
+            + rawFile.getPath() + ", " +
+            "Enter a command: , > distance-transform x png pngDistance, " +
+            "Threshold should be an integer between 0 and 255., " +
+            "Enter a command: , > distance-transform 128 png, " +
+            "Invalid 'distance-transform' command. Should have 4 arguments., " +
+            "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+  }
+
+
+  @Test
+  public void testQuantize() throws IOException {
+    File pngFile = File.createTempFile("quantized", ".png");
+    File gifFile = File.createTempFile("quantized", ".gif");
+    File jpgFile = File.createTempFile("quantized", ".jpg");
+    pngFile.deleteOnExit();
+    gifFile.deleteOnExit();
+    jpgFile.deleteOnExit();
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 318;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "quantize 16 png pngQuantized",
+            "quantize 1 png pngQuantized",
+            "save " + pngFile.getPath() + " pngQuantized",
+            "save " + gifFile.getPath() + " pngQuantized",
+            "save " + jpgFile.getPath() + " pngQuantized",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: quantize (" + uniqueCode + ")"
+            + "\nColors: 16"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    for (File file : new File[]{pngFile, gifFile}) {
+      BufferedImage saved = ImageIO.read(file);
+      assertTrue(saved.getColorModel() instanceof IndexColorModel);
+      assertEquals(0xFF8000, saved.getRGB(1, 0) & 0xFFFFFF);
+    }
+    BufferedImage savedJpg = ImageIO.read(jpgFile);
+    assertFalse(savedJpg.getColorModel() instanceof IndexColorModel);
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> quantize 1 png pngQuantized, "
+            + "Number of colours should be an integer between 2 and 256., "));
+    assertFalse(output.contains("Unsupported file extension"));
+    assertFalse(output.contains("Error saving the image."));
+  }
+
+
+  @Test
+  public void testStack() throws IOException {
+    File directory = Files.createTempDirectory("frames").toFile();
+    directory.deleteOnExit();
+    for (String name : new String[]{"b.png", "a.png", "notes.txt"}) {
+      File file = new File(directory, name);
+      file.deleteOnExit();
+      ImageIO.write(new BufferedImage(name.equals("a.png") ? 3 : 4, 2,
+              BufferedImage.TYPE_INT_RGB), "png", file);
+    }
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 319;
+    String pattern = directory.getPath() + File.separator + "*.png";
+    List<String> list = Arrays.asList("stack median " + pattern + " stacked",
+            "stack mode " + pattern + " stacked",
+            "stack mean " + directory.getPath() + File.separator + "*.jpg stacked",
+            "stack max " + pattern,
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: stackImages (" + uniqueCode + ")"
+            + "\nMode: MEDIAN"
+            + "\nImageData Dimensions: " + "3x2"
+            + "\nImageData Dimensions: " + "4x2" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String expectedOutputLines = "[Enter a command: , > stack median " + pattern
+            + " stacked, Enter a command: , > stack mode " + pattern + " stacked, "
+            + "Stacking mode should be mean, median or max., "
+            + "Enter a command: , > stack mean " + directory.getPath() + File.separator
+            + "*.jpg stacked, No images match the given pattern., "
+            + "Enter a command: , > stack max " + pattern + ", "
+            + "Invalid 'stack' command. Should have 4 arguments., "
+            + "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+  }
+
+
+  @Test
+  public void testBlend() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 320;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "load res/random.ppm ppm",
+            "blend multiply 0.5 png ppm pngBlended",
+            "blend screen 1 png ppm pngBlended mask png offset 10 -5",
+            "blend burn 1 png ppm pngBlended",
+            "blend add 2 png ppm pngBlended",
+            "blend add 1 png ppm pngBlended offset 10",
+            "blend add 1 png ppm",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: blendImages (" + uniqueCode + ")"
+            + "\nMode: MULTIPLY\nOpacity: 0.5\nOffset: 0,0"
+            + "\nImageData Dimensions: 272x170\nImageData Dimensions: 272x170\n"
+            + "Method: blendImages (" + uniqueCode + ")"
+            + "\nMode: SCREEN\nOpacity: 1.0\nOffset: 10,-5"
+            + "\nImageData Dimensions: 272x170\nImageData Dimensions: 272x170"
+            + "\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> blend burn 1 png ppm pngBlended, Blend mode should be "
+            + "normal, multiply, screen, overlay, add or difference., "));
+    assertTrue(output.contains("> blend add 2 png ppm pngBlended, "
+            + "Opacity should be a number between 0 and 1., "));
+    assertTrue(output.contains("> blend add 1 png ppm pngBlended offset 10, Invalid 'blend' "
+            + "options. Should be mask mask-name and/or offset x y., "));
+    assertTrue(output.contains("> blend add 1 png ppm, "
+            + "Invalid 'blend' command. Should have 6 arguments., "));
+  }
+
+
+  @Test
+  public void testSeamCarve() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 321;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "seam-carve 200 150 png pngCarved",
+            "seam-carve 300 150 png pngCarved",
+            "seam-carve 0 150 png pngCarved",
+            "seam-carve 200 150 png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: seamCarve (" + uniqueCode + ")"
+            + "\nSize: 200x150"
+            + "\nImageData Dimensions: " + "272x170" + "\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String expectedOutputLines = "[Enter a command: , > load res/random.png png, "
+            + "Enter a command: , > seam-carve 200 150 png pngCarved, "
+            + "Enter a command: , > seam-carve 300 150 png pngCarved, "
+            + "Width and height should not exceed those of the image., "
+            + "Enter a command: , > seam-carve 0 150 png pngCarved, "
+            + "Width and height should be positive integers., "
+            + "Enter a command: , > seam-carve 200 150 png, "
+            + "Invalid 'seam-carve' command. Should have 5 arguments., "
+            + "Enter a command: , > exit, Exiting the program.]";
+    assertEquals(expectedOutputLines, io.getOutputLines().toString());
+  }
+
+
+  @Test
+  public void testCompare() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 322;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "load res/random.ppm ppm",
+            "compare png ppm",
+            "compare png missing",
+            "compare png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: compareImages (" + uniqueCode + ")"
+            + "\nImageData Dimensions: 272x170\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> compare png ppm, "
+            + "red: MSE 0.0000, PSNR Infinity dB, SSIM 1.0000, "
+            + "green: MSE 1.0000, PSNR 48.13 dB, SSIM 0.9500, "
+            + "blue: MSE 2.5000, PSNR 44.15 dB, SSIM 0.5000, "));
+    assertTrue(output.contains("> compare png missing, Wrong image name provided., "));
+    assertTrue(output.contains("> compare png, "
+            + "Invalid 'compare' command. Should have 3 arguments., "));
+  }
+
+
+  @Test
+  public void testPerceptualHash() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 323;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "phash png",
+            "phash missing",
+            "phash",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: perceptualHash (" + uniqueCode + ")"
+            + "\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> phash png, 0123456789abcdef, "));
+    assertTrue(output.contains("> phash missing, Wrong image name provided., "));
+    assertTrue(output.contains("> phash, Invalid 'phash' command. Should have 2 arguments., "));
+  }
+
+  @Test
+  public void testDedupe() throws IOException {
+    Path directory = Files.createTempDirectory("dedupe");
+    Files.copy(Paths.get("res/random.png"), directory.resolve("a.png"));
+    Files.copy(Paths.get("res/random.png"), directory.resolve("b.png"));
+    Files.write(directory.resolve("notes.txt"), "not an image".getBytes());
+    Files.write(directory.resolve("c.ppm"), "P3\nnot a size\n".getBytes());
+    Files.write(directory.resolve("d.png"), "not an image".getBytes());
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 324;
+    List<String> list = Arrays.asList("dedupe " + directory,
+            "dedupe " + directory + " 65",
+            "dedupe " + directory.resolve("missing"),
+            "dedupe",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String call = "Method: perceptualHash (" + uniqueCode + ")"
+            + "\nImageData Dimensions: 272x170\n";
+    assertEquals(call + call, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> dedupe " + directory + ", "
+            + "b.png is a near-duplicate of a.png (distance 0), "
+            + "Unable to hash c.ppm., "
+            + "Error loading the image d.png: unsupported format., "
+            + "1 near-duplicates among 2 images., "));
+    assertTrue(output.contains("Distance should be an integer between 0 and 64., "));
+    assertTrue(output.contains("Directory not found at the given path., "));
+    assertTrue(output.contains("> dedupe, Invalid 'dedupe' command. Should have 2 arguments., "));
+    for (String name : new String[]{"a.png", "b.png", "c.ppm", "d.png", "notes.txt"}) {
+      Files.delete(directory.resolve(name));
+    }
+    Files.delete(directory);
+  }
+
+
+  @Test
+  public void testAutoLevels() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 325;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "auto-levels 0.5 99.5 png pngLevels",
+            "auto-levels 60 40 png pngLevels",
+            "auto-levels low 99 png pngLevels",
+            "auto-levels 1 99 missing pngLevels",
+            "auto-levels 1 99 png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: autoLevels (" + uniqueCode + ")"
+            + "\nPercentiles: 0.5 99.5"
+            + "\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> auto-levels 60 40 png pngLevels, "
+            + "Percentiles should satisfy 0 <= low < high <= 100., "));
+    assertTrue(output.contains("> auto-levels low 99 png pngLevels, "
+            + "Low and high percentiles should be numbers., "));
+    assertTrue(output.contains("> auto-levels 1 99 missing pngLevels, "
+            + "Wrong image name provided., "));
+    assertTrue(output.contains("> auto-levels 1 99 png, "
+            + "Invalid 'auto-levels' command. Should have 5 arguments., "));
+  }
+
+
+  @Test
+  public void testMatchHistogram() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 326;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "load res/random.ppm ppm",
+            "match-histogram png ppm pngMatched",
+            "match-histogram png ppm pngMatched split 40",
+            "match-histogram png missing pngMatched",
+            "match-histogram png ppm",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: matchHistogram (" + uniqueCode + ")"
+            + "\nImageData Dimensions: 272x170\nImageData Dimensions: 272x170\n"
+            + "Method: splitMatchHistogram (" + uniqueCode + ")"
+            + "\nPercentage: 40"
+            + "\nImageData Dimensions: 272x170\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> match-histogram png missing pngMatched, "
+            + "Wrong image name provided., "));
+    assertTrue(output.contains("> match-histogram png ppm, "
+            + "Invalid 'match-histogram' command. Should have 4 arguments., "));
+  }
+
+
+  @Test
+  public void testGuidedFilterAndDetailEnhance() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 327;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "guided-filter 8 0.01 png pngSmooth",
+            "guided-filter 4 0.001 png pngSmooth split 30",
+            "guided-filter 0 0.01 png pngSmooth",
+            "guided-filter 8 0 png pngSmooth",
+            "detail-enhance 1.5 6 png pngDetail",
+            "detail-enhance 2 3 png pngDetail split 50",
+            "detail-enhance 11 6 png pngDetail",
+            "detail-enhance 1 6 missing pngDetail",
+            "detail-enhance 1 6 png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: guidedFilter (" + uniqueCode + ")"
+            + "\nRadius: 8 Eps: 0.01\nImageData Dimensions: 272x170\n"
+            + "Method: splitGuidedFilter (" + uniqueCode + ")"
+            + "\nRadius: 4 Eps: 0.001\nPercentage: 30\nImageData Dimensions: 272x170\n"
+            + "Method: detailEnhance (" + uniqueCode + ")"
+            + "\nAmount: 1.5 Radius: 6\nImageData Dimensions: 272x170\n"
+            + "Method: splitDetailEnhance (" + uniqueCode + ")"
+            + "\nAmount: 2.0 Radius: 3\nPercentage: 50\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> guided-filter 0 0.01 png pngSmooth, "
+            + "Radius should be a positive integer., "));
+    assertTrue(output.contains("> guided-filter 8 0 png pngSmooth, "
+            + "Eps should be a positive number., "));
+    assertTrue(output.contains("> detail-enhance 11 6 png pngDetail, "
+            + "Amount should be a number between 0 and 10., "));
+    assertTrue(output.contains("> detail-enhance 1 6 missing pngDetail, "
+            + "Wrong image name provided., "));
+    assertTrue(output.contains("> detail-enhance 1 6 png, "
+            + "Invalid 'detail-enhance' command. Should have 5 arguments., "));
+  }
+
+
+  @Test
+  public void testToneMap() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 328;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "tone-map 0.6 png pngToned",
+            "tone-map 0.4 png pngToned split 25",
+            "tone-map 1.5 png pngToned",
+            "tone-map 0.5 missing pngToned",
+            "tone-map 0.5 png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: toneMap (" + uniqueCode + ")"
+            + "\nStrength: 0.6\nImageData Dimensions: 272x170\n"
+            + "Method: splitToneMap (" + uniqueCode + ")"
+            + "\nStrength: 0.4\nPercentage: 25\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> tone-map 1.5 png pngToned, "
+            + "Strength should be a number between 0 and 1., "));
+    assertTrue(output.contains("> tone-map 0.5 missing pngToned, Wrong image name provided., "));
+    assertTrue(output.contains("> tone-map 0.5 png, "
+            + "Invalid 'tone-map' command. Should have 4 arguments., "));
+  }
+
+
+  @Test
+  public void testFindTemplate() {
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 329;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "load res/random.ppm ppm",
+            "find-template png ppm 2",
+            "find-template png ppm 0",
+            "find-template png missing",
+            "find-template png",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: findTemplate (" + uniqueCode + ")"
+            + "\nCount: 2\nImageData Dimensions: 272x170\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> find-template png ppm 2, "
+            + "Match 1: row 12, column 34, score 0.9877, "
+            + "Match 2: row 5, column 6, score 0.5000, "));
+    assertTrue(output.contains("> find-template png ppm 0, Count should be a positive integer., "));
+    assertTrue(output.contains("> find-template png missing, Wrong image name provided., "));
+    assertTrue(output.contains("> find-template png, "
+            + "Invalid 'find-template' command. Should have 3 arguments., "));
+  }
+
+
+  @Test
+  public void testImageIndex() throws IOException {
+    Path directory = Files.createTempDirectory("index");
+    Files.copy(Paths.get("res/random.png"), directory.resolve("a.png"));
+    Files.copy(Paths.get("res/random.png"), directory.resolve("b.png"));
+    Files.write(directory.resolve("notes.txt"), "not an image".getBytes());
+    Files.write(directory.resolve("c.ppm"), "P3\nnot a size\n".getBytes());
+    Path indexFile = directory.resolve("images.idx");
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 330;
+    List<String> list = Arrays.asList("load res/random.png png",
+            "index query png 2",
+            "index build " + directory,
+            "index query png 5",
+            "index query png 1 " + indexFile,
+            "index query png 0",
+            "index query missing 1",
+            "index query png 1 " + directory.resolve("notes.txt"),
+            "index build " + directory.resolve("missing"),
+            "index build",
+            "index query png",
+            "index",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String call = "Method: colorSignature (" + uniqueCode + ")"
+            + "\nImageData Dimensions: 272x170\n";
+    assertEquals(call + call + call + call, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> index query png 2, No image index given or built., "));
+    assertTrue(output.contains("> index build " + directory + ", "
+            + "Unable to index c.ppm., Indexed 2 images., "));
+    assertTrue(output.contains("> index query png 5, "
+            + "1. " + directory.resolve("a.png") + " (distance 0), "
+            + "2. " + directory.resolve("b.png") + " (distance 0), "));
+    assertTrue(output.contains("> index query png 1 " + indexFile + ", "
+            + "1. " + directory.resolve("a.png") + " (distance 0), "));
+    assertTrue(output.contains("> index query png 0, Count should be a positive integer., "));
+    assertTrue(output.contains("> index query missing 1, Wrong image name provided., "));
+    assertTrue(output.contains("Invalid image index file., "));
+    assertTrue(output.contains("Directory not found at the given path., "));
+    assertTrue(output.contains("> index build, "
+            + "Invalid 'index build' command. Should have 3 arguments., "));
+    assertTrue(output.contains("> index query png, "
+            + "Invalid 'index query' command. Should have 4 arguments., "));
+    assertTrue(output.contains("> index, "
+            + "Invalid 'index' command. Should be 'index build' or 'index query'., "));
+    for (String name : new String[]{"a.png", "b.png", "c.ppm", "notes.txt", "images.idx"}) {
+      Files.delete(directory.resolve(name));
+    }
+    Files.delete(directory);
+  }
+
+
+  @Test
+  public void testStackWithOtherFilesInDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("frames");
+    Files.copy(Paths.get("res/random.png"), directory.resolve("a.png"));
+    Files.write(directory.resolve("notes.txt"), "not an image".getBytes());
+    Files.write(directory.resolve("z.gif"), "not an image".getBytes());
+    StringBuilder modelLog = new StringBuilder();
+    int uniqueCode = 331;
+    String pattern = directory + File.separator + "*";
+    List<String> list = Arrays.asList("stack mean " + pattern + " stacked",
+            "stack mean " + directory + File.separator + "*.txt stacked",
+            "exit");
+    UserIO io = new MockUserIO(list);
+    ImageProcessingController controller = new EnhancedController(io,
+            new MockImageProcessingModel(modelLog, uniqueCode), new String[0]);
+    controller.execute();
+    String expectedModelLog = "Method: stackImages (" + uniqueCode + ")"
+            + "\nMode: MEAN"
+            + "\nImageData Dimensions: 272x170\n";
+    assertEquals(expectedModelLog, modelLog.toString());
+    String output = io.getOutputLines().toString();
+    assertTrue(output.contains("> stack mean " + pattern + " stacked, "
+            + "Error loading the image z.gif: unsupported format., "
+            + "Unable to stack the images: Unable to load z.gif., "));
+    assertTrue(output.contains("*.txt stacked, No images match the given pattern., "));
+    for (String name : new String[]{"a.png", "notes.txt", "z.gif"}) {
+      Files.delete(directory.resolve(name));
+    }
+    Files.delete(directory);
+  }
+}
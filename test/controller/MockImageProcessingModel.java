@@ -1,8 +1,26 @@
 package controller;
 
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import model.BlendMode;
+import model.ColorSignature;
+import model.ColorLut;
+import model.ColorSpace;
+import model.ComponentLabeling;
+import model.DistanceField;
+import model.DistortionMap;
 import model.EnhancedImageProcessingModel;
 import model.ImageData;
 import model.ImageInfo;
+import model.ImageMetrics;
+import model.IndexedImage;
+import model.Interpolation;
+import model.LutInterpolation;
+import model.ResizeFilter;
+import model.StackMode;
+import model.TemplateMatch;
 
 /**
  * This class represents a mock model for testing purposes.
@@ -236,6 +254,360 @@ class MockImageProcessingModel implements EnhancedImageProcessingModel {
     return null;
   }
 
+  @Override
+  public ImageInfo claheImage(ImageInfo image, int tiles, double clipLimit)
+          throws IllegalArgumentException {
+    log.append("Method: claheImage (").append(uniqueCode).append(")\n");
+    log.append("Tiles: ").append(tiles).append("\n");
+    log.append("Clip Limit: ").append(clipLimit).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo denoiseImage(ImageInfo image, double strength)
+          throws IllegalArgumentException {
+    log.append("Method: denoiseImage (").append(uniqueCode).append(")\n");
+    log.append("Strength: ").append(strength).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitDenoise(ImageInfo image, double strength, int percentage)
+          throws IllegalArgumentException {
+    log.append("Method: splitDenoise (").append(uniqueCode).append(")\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    log.append("Strength: ").append(strength).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo floydSteinbergDither(ImageInfo image, int levels)
+          throws IllegalArgumentException {
+    log.append("Method: floydSteinbergDither (").append(uniqueCode).append(")\n");
+    log.append("Levels: ").append(levels).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo atkinsonDither(ImageInfo image, int levels)
+          throws IllegalArgumentException {
+    log.append("Method: atkinsonDither (").append(uniqueCode).append(")\n");
+    log.append("Levels: ").append(levels).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo resizeImage(ImageInfo image, int width, int height,
+                               ResizeFilter filter) throws IllegalArgumentException {
+    log.append("Method: resizeImage (").append(uniqueCode).append(")\n");
+    log.append("Size: ").append(width).append("x").append(height).append("\n");
+    log.append("Filter: ").append(filter).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo rotateImage(ImageInfo image, double degrees,
+                               Interpolation interpolation) throws IllegalArgumentException {
+    log.append("Method: rotateImage (").append(uniqueCode).append(")\n");
+    log.append("Degrees: ").append(degrees).append("\n");
+    log.append("Interpolation: ").append(interpolation).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo affineTransform(ImageInfo image, double[] matrix,
+                                   Interpolation interpolation) throws IllegalArgumentException {
+    log.append("Method: affineTransform (").append(uniqueCode).append(")\n");
+    log.append("Matrix: ").append(Arrays.toString(matrix)).append("\n");
+    log.append("Interpolation: ").append(interpolation).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo perspectiveTransform(ImageInfo image, double[] corners,
+                                        Interpolation interpolation)
+          throws IllegalArgumentException {
+    log.append("Method: perspectiveTransform (").append(uniqueCode).append(")\n");
+    log.append("Corners: ").append(Arrays.toString(corners)).append("\n");
+    log.append("Interpolation: ").append(interpolation).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public DistortionMap buildDistortionMap(int width, int height, double k1, double k2)
+          throws IllegalArgumentException {
+    log.append("Method: buildDistortionMap (").append(uniqueCode).append(")\n");
+    log.append("Size: ").append(width).append("x").append(height).append("\n");
+    log.append("Coefficients: ").append(k1).append(" ").append(k2).append("\n");
+    return new DistortionMap(width, height, IntBuffer.allocate(2 * width * height));
+  }
+
+  @Override
+  public ImageInfo remapImage(ImageInfo image, DistortionMap map)
+          throws IllegalArgumentException {
+    log.append("Method: remapImage (").append(uniqueCode).append(")\n");
+    log.append("Map Size: ").append(map.getWidth()).append("x")
+            .append(map.getHeight()).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo applyColorLut(ImageInfo image, ColorLut lut,
+                                 LutInterpolation interpolation)
+          throws IllegalArgumentException {
+    log.append("Method: applyColorLut (").append(uniqueCode).append(")\n");
+    log.append("LUT Size: ").append(lut.getSize()).append("\n");
+    log.append("Interpolation: ").append(interpolation).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo convertToColorSpace(ImageInfo image, ColorSpace space)
+          throws IllegalArgumentException {
+    log.append("Method: convertToColorSpace (").append(uniqueCode).append(")\n");
+    log.append("Colour Space: ").append(space).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo convertFromColorSpace(ImageInfo image, ColorSpace space)
+          throws IllegalArgumentException {
+    log.append("Method: convertFromColorSpace (").append(uniqueCode).append(")\n");
+    log.append("Colour Space: ").append(space).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo hueShift(ImageInfo image, double degrees) throws IllegalArgumentException {
+    log.append("Method: hueShift (").append(uniqueCode).append(")\n");
+    log.append("Degrees: ").append(degrees).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitHueShift(ImageInfo image, double degrees, int percentage) throws
+          IllegalArgumentException {
+    log.append("Method: splitHueShift (").append(uniqueCode).append(")\n");
+    log.append("Degrees: ").append(degrees).append("\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo adjustSaturation(ImageInfo image, double factor)
+          throws IllegalArgumentException {
+    log.append("Method: adjustSaturation (").append(uniqueCode).append(")\n");
+    log.append("Factor: ").append(factor).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitSaturation(ImageInfo image, double factor, int percentage) throws
+          IllegalArgumentException {
+    log.append("Method: splitSaturation (").append(uniqueCode).append(")\n");
+    log.append("Factor: ").append(factor).append("\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ComponentLabeling labelComponents(ImageInfo image, int threshold)
+          throws IllegalArgumentException {
+    log.append("Method: labelComponents (").append(uniqueCode).append(")\n");
+    log.append("Threshold: ").append(threshold).append("\n");
+    logImageDataDimensions(image);
+    return new ComponentLabeling(2, 1, new int[]{1, 0});
+  }
+
+  @Override
+  public DistanceField distanceTransform(ImageInfo image, int threshold)
+          throws IllegalArgumentException {
+    log.append("Method: distanceTransform (").append(uniqueCode).append(")\n");
+    log.append("Threshold: ").append(threshold).append("\n");
+    logImageDataDimensions(image);
+    return new DistanceField(2, 1, new float[]{0, 1.5f});
+  }
+
+  @Override
+  public IndexedImage quantize(ImageInfo image, int colors) throws IllegalArgumentException {
+    log.append("Method: quantize (").append(uniqueCode).append(")\n");
+    log.append("Colors: ").append(colors).append("\n");
+    logImageDataDimensions(image);
+    return new IndexedImage(2, 1, new int[]{0x000000, 0xFF8000}, new byte[]{0, 1});
+  }
+
+  @Override
+  public ImageInfo stackImages(Iterable<ImageInfo> frames, StackMode mode)
+          throws IllegalArgumentException {
+    log.append("Method: stackImages (").append(uniqueCode).append(")\n");
+    log.append("Mode: ").append(mode).append("\n");
+    for (ImageInfo frame : frames) {
+      logImageDataDimensions(frame);
+    }
+    return null;
+  }
+
+  @Override
+  public ImageInfo blendImages(ImageInfo base, ImageInfo overlay, BlendMode mode,
+                               double opacity, ImageInfo mask, int offsetX, int offsetY)
+          throws IllegalArgumentException {
+    log.append("Method: blendImages (").append(uniqueCode).append(")\n");
+    log.append("Mode: ").append(mode).append("\n");
+    log.append("Opacity: ").append(opacity).append("\n");
+    log.append("Offset: ").append(offsetX).append(",").append(offsetY).append("\n");
+    logImageDataDimensions(base);
+    logImageDataDimensions(overlay);
+    if (mask != null) {
+      logImageDataDimensions(mask);
+    }
+    return null;
+  }
+
+  @Override
+  public ImageInfo seamCarve(ImageInfo image, int width, int height)
+          throws IllegalArgumentException {
+    log.append("Method: seamCarve (").append(uniqueCode).append(")\n");
+    log.append("Size: ").append(width).append("x").append(height).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageMetrics compareImages(ImageInfo reference, ImageInfo image)
+          throws IllegalArgumentException {
+    log.append("Method: compareImages (").append(uniqueCode).append(")\n");
+    logImageDataDimensions(reference);
+    logImageDataDimensions(image);
+    return new ImageMetrics(new double[]{0, 1, 2.5}, new double[]{1, 0.95, 0.5});
+  }
+
+  @Override
+  public synchronized long perceptualHash(ImageInfo image) throws IllegalArgumentException {
+    log.append("Method: perceptualHash (").append(uniqueCode).append(")\n");
+    logImageDataDimensions(image);
+    return 0x0123456789ABCDEFL;
+  }
+
+  @Override
+  public ImageInfo autoLevels(ImageInfo image, double lowPercentile, double highPercentile)
+          throws IllegalArgumentException {
+    log.append("Method: autoLevels (").append(uniqueCode).append(")\n");
+    log.append("Percentiles: ").append(lowPercentile).append(" ").append(highPercentile)
+            .append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo matchHistogram(ImageInfo image, ImageInfo reference)
+          throws IllegalArgumentException {
+    log.append("Method: matchHistogram (").append(uniqueCode).append(")\n");
+    logImageDataDimensions(image);
+    logImageDataDimensions(reference);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitMatchHistogram(ImageInfo image, ImageInfo reference, int percentage)
+          throws IllegalArgumentException {
+    log.append("Method: splitMatchHistogram (").append(uniqueCode).append(")\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    logImageDataDimensions(image);
+    logImageDataDimensions(reference);
+    return null;
+  }
+
+  @Override
+  public ImageInfo guidedFilter(ImageInfo image, int radius, double eps)
+          throws IllegalArgumentException {
+    log.append("Method: guidedFilter (").append(uniqueCode).append(")\n");
+    log.append("Radius: ").append(radius).append(" Eps: ").append(eps).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitGuidedFilter(ImageInfo image, int radius, double eps, int percentage)
+          throws IllegalArgumentException {
+    log.append("Method: splitGuidedFilter (").append(uniqueCode).append(")\n");
+    log.append("Radius: ").append(radius).append(" Eps: ").append(eps).append("\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo detailEnhance(ImageInfo image, double amount, int radius)
+          throws IllegalArgumentException {
+    log.append("Method: detailEnhance (").append(uniqueCode).append(")\n");
+    log.append("Amount: ").append(amount).append(" Radius: ").append(radius).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitDetailEnhance(ImageInfo image, double amount, int radius,
+                                      int percentage) throws IllegalArgumentException {
+    log.append("Method: splitDetailEnhance (").append(uniqueCode).append(")\n");
+    log.append("Amount: ").append(amount).append(" Radius: ").append(radius).append("\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo toneMap(ImageInfo image, double strength) throws IllegalArgumentException {
+    log.append("Method: toneMap (").append(uniqueCode).append(")\n");
+    log.append("Strength: ").append(strength).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public ImageInfo splitToneMap(ImageInfo image, double strength, int percentage)
+          throws IllegalArgumentException {
+    log.append("Method: splitToneMap (").append(uniqueCode).append(")\n");
+    log.append("Strength: ").append(strength).append("\n");
+    log.append("Percentage: ").append(percentage).append("\n");
+    logImageDataDimensions(image);
+    return null;
+  }
+
+  @Override
+  public List<TemplateMatch> findTemplate(ImageInfo image, ImageInfo template, int count)
+          throws IllegalArgumentException {
+    log.append("Method: findTemplate (").append(uniqueCode).append(")\n");
+    log.append("Count: ").append(count).append("\n");
+    logImageDataDimensions(image);
+    logImageDataDimensions(template);
+    return Arrays.asList(new TemplateMatch(12, 34, 0.98765), new TemplateMatch(5, 6, 0.5));
+  }
+
+  @Override
+  public synchronized ColorSignature colorSignature(ImageInfo image)
+          throws IllegalArgumentException {
+    log.append("Method: colorSignature (").append(uniqueCode).append(")\n");
+    logImageDataDimensions(image);
+    return new ColorSignature(new byte[ColorSignature.SIZE]);
+  }
+
   protected void logImageDataDimensions(ImageInfo imageData) {
     log.append("ImageData Dimensions: ").append(imageData.getWidth()).append(
             "x").append(imageData.getHeight()).append("\n");
@@ -4,11 +4,19 @@ package controller;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import javax.imageio.ImageIO;
+
 import model.EnhancedImageProcessingModel;
 import model.EnhancedImageProcessor;
+import model.ImageInfo;
 import view.ImageView;
 
 import static junit.framework.TestCase.assertEquals;
@@ -433,4 +441,87 @@ public class ViewControllerImplTest {
     assertEquals(expectedLog, viewLog.toString());
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testLargeImagePreviewedAtPyramidLevel() throws IOException {
+    Path directory = Files.createTempDirectory("pyramid");
+    Path file = directory.resolve("large.png");
+    ImageIO.write(new BufferedImage(2048, 2048, BufferedImage.TYPE_INT_RGB), "png",
+            file.toFile());
+    StringBuilder viewLog = new StringBuilder();
+    int uniqueCode = 117;
+    ImageView view = new MockImageViewImpl(viewLog, uniqueCode) {
+      @Override
+      public String fileChooser() {
+        super.fileChooser();
+        return file.toString();
+      }
+
+      @Override
+      public int showSplitImageOperationMenu(BufferedImage bufferedImage,
+                                             BufferedImage bufferedImageHistogram) {
+        super.showSplitImageOperationMenu(bufferedImage, bufferedImageHistogram);
+        return -1;
+      }
+    };
+    ViewControllerImpl controller = new ViewControllerImpl(
+            new MockUserIO(new ArrayList<>()), model, args, view);
+    controller.load();
+    controller.blur();
+    String expectedLog = "Method: setFeatures (" + uniqueCode + ")\n"
+            + "Method: FileChooser (" + uniqueCode + ")\n"
+            + "Method: setImage (" + uniqueCode + ")\n"
+            + "Image Dimensions: 2048x2048\n"
+            + "Image Histogram Dimensions: 256x256\n"
+            + "Method: enableButtons (" + uniqueCode + ")\n"
+            + "Method: showSplitImageOperationMenu (" + uniqueCode + ")\n"
+            + "Image Dimensions: 1024x1024\n"
+            + "Image Histogram Dimensions: 256x256\n"
+            + "Method: setImage (" + uniqueCode + ")\n"
+            + "Image Dimensions: 2048x2048\n"
+            + "Image Histogram Dimensions: 256x256\n";
+    assertEquals(expectedLog, viewLog.toString());
+    // The level and the cancelled preview are not left in the image list.
+    assertEquals(Collections.singleton("large"), controller.imageList.keySet());
+    Files.delete(file);
+    Files.delete(directory);
+  }
+
+
+  @Test
+  public void testHistogramRedrawnOnlyWhenImageChanges() {
+    int[] histogramCalls = new int[1];
+    EnhancedImageProcessingModel countingModel = new EnhancedImageProcessor() {
+      @Override
+      public ImageInfo produceHistogram(ImageInfo image) {
+        histogramCalls[0]++;
+        return super.produceHistogram(image);
+      }
+    };
+    StringBuilder viewLog = new StringBuilder();
+    int uniqueCode = 118;
+    ImageView view = new MockImageViewImpl(viewLog, uniqueCode) {
+      @Override
+      public int showSplitImageOperationMenu(BufferedImage bufferedImage,
+                                             BufferedImage bufferedImageHistogram) {
+        super.showSplitImageOperationMenu(bufferedImage, bufferedImageHistogram);
+        return -1;
+      }
+
+      @Override
+      public boolean showLoadWarningPopup() {
+        super.showLoadWarningPopup();
+        return true;
+      }
+    };
+    ControllerForGUI controller = new ViewControllerImpl(
+            new MockUserIO(new ArrayList<>()), countingModel, args, view);
+    controller.load();
+    assertEquals(1, histogramCalls[0]);
+    // The preview is a new image, but cancelling shows the unchanged original.
+    controller.blur();
+    assertEquals(2, histogramCalls[0]);
+    // Loading again replaces the image under the same name.
+    controller.load();
+    assertEquals(3, histogramCalls[0]);
+  }
+}
@@ -3,10 +3,25 @@ package model;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test class for the EnhancedImageProcessor class.
@@ -694,4 +709,1712 @@ public class EnhancedImageProcessorTest {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testClaheSingleTileEqualizesHistogram() {
+    ImageInfo img = new ImageData(new int[][][]{
+      {
+        {0, 0, 0},
+        {85, 85, 85}
+      },
+      {
+        {170, 170, 170},
+        {255, 255, 255}
+      }
+    });
+    ImageInfo res = model.claheImage(img, 1, 100);
+    int[][] expected = new int[][]{{63, 127}, {191, 255}};
+    for (int i = 0; i < res.getHeight(); i++) {
+      for (int j = 0; j < res.getWidth(); j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(expected[i][j], res.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testClaheStretchesLowContrastImage() {
+    int[][][] data = new int[16][16][3];
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        for (int k = 0; k < 3; k++) {
+          data[i][j][k] = 100 + (i + j) / 2;
+        }
+      }
+    }
+    ImageInfo res = model.claheImage(new ImageData(data), 2, 4);
+    assertEquals(16, res.getHeight());
+    assertEquals(16, res.getWidth());
+    int min = 255;
+    int max = 0;
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        min = Math.min(min, res.getPixelValue(i, j, 0));
+        max = Math.max(max, res.getPixelValue(i, j, 0));
+      }
+    }
+    assertTrue(max - min > 15);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testClaheInvalidTiles() {
+    model.claheImage(new ImageData(threeDimensionalArray3), 0, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testClaheNaNClipLimit() {
+    model.claheImage(new ImageData(threeDimensionalArray3), 2, Double.NaN);
+  }
+
+  @Test
+  public void testDenoiseKeepsFlatImage() {
+    int[][][] data = new int[12][10][3];
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 10; j++) {
+        data[i][j] = new int[]{40, 120, 200};
+      }
+    }
+    ImageInfo res = model.denoiseImage(new ImageData(data), 10);
+    assertEquals(12, res.getHeight());
+    assertEquals(10, res.getWidth());
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 10; j++) {
+        assertEquals(40, res.getPixelValue(i, j, 0));
+        assertEquals(120, res.getPixelValue(i, j, 1));
+        assertEquals(200, res.getPixelValue(i, j, 2));
+      }
+    }
+  }
+
+  @Test
+  public void testDenoiseRemovesIsolatedSpeck() {
+    int[][][] data = new int[15][15][3];
+    for (int i = 0; i < 15; i++) {
+      for (int j = 0; j < 15; j++) {
+        data[i][j] = new int[]{100, 100, 100};
+      }
+    }
+    data[7][7] = new int[]{160, 160, 160};
+    ImageInfo res = model.denoiseImage(new ImageData(data), 40);
+    assertTrue(res.getPixelValue(7, 7, 0) < 130);
+    assertEquals(100, res.getPixelValue(0, 0, 0));
+  }
+
+  @Test
+  public void testSplitDenoiseZeroPercent() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo res = model.splitDenoise(img, 20, 0);
+    for (int i = 0; i < img.getHeight(); i++) {
+      for (int j = 0; j < img.getWidth(); j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(threeDimensionalArray1[i][j][k], res.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDenoiseInvalidStrength() {
+    model.denoiseImage(new ImageData(threeDimensionalArray3), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDenoiseNaNStrength() {
+    model.denoiseImage(new ImageData(threeDimensionalArray3), Double.NaN);
+  }
+
+  @Test
+  public void testFloydSteinbergDitherTwoLevels() {
+    int[][][] data = new int[8][8][3];
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < 8; j++) {
+        data[i][j] = new int[]{128, 0, 255};
+      }
+    }
+    ImageInfo res = model.floydSteinbergDither(new ImageData(data), 2);
+    int whiteCount = 0;
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < 8; j++) {
+        int red = res.getPixelValue(i, j, 0);
+        assertTrue(red == 0 || red == 255);
+        if (red == 255) {
+          whiteCount++;
+        }
+        assertEquals(0, res.getPixelValue(i, j, 1));
+        assertEquals(255, res.getPixelValue(i, j, 2));
+      }
+    }
+    assertTrue(whiteCount >= 28 && whiteCount <= 36);
+  }
+
+  @Test
+  public void testDitherFullLevelsKeepsImage() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo res = model.atkinsonDither(img, 256);
+    for (int i = 0; i < img.getHeight(); i++) {
+      for (int j = 0; j < img.getWidth(); j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(threeDimensionalArray1[i][j][k], res.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDitherWavefrontMatchesSerial() {
+    int[][][] data = new int[40][150][3];
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 150; j++) {
+        data[i][j] = new int[]{(i * 7 + j * 3) % 256, (i * j) % 256, (j * 5) % 256};
+      }
+    }
+    ImageInfo img = new ImageData(data);
+    for (int[][] kernel : new int[][][]{ErrorDiffusion.FLOYD_STEINBERG,
+        ErrorDiffusion.ATKINSON}) {
+      ImageInfo serial = ErrorDiffusion.dither(img, kernel, 3, 1);
+      ImageInfo parallel = ErrorDiffusion.dither(img, kernel, 3, 4);
+      for (int i = 0; i < 40; i++) {
+        for (int j = 0; j < 150; j++) {
+          for (int k = 0; k < 3; k++) {
+            assertEquals(serial.getPixelValue(i, j, k), parallel.getPixelValue(i, j, k));
+          }
+        }
+      }
+    }
+  }
+
+  @Test(timeout = 10000, expected = ArrayIndexOutOfBoundsException.class)
+  public void testDitherWavefrontStopsWhenARowFails() {
+    // Error sent three columns ahead in the same row overruns the carry of
+    // every row, so the rows waiting on a failed one must give up.
+    int[][] faulty = {{3, 0, 7}, {0, 1, 9}};
+    ErrorDiffusion.dither(new ImageData(new int[40][40][3]), faulty, 2, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDitherInvalidLevels() {
+    model.floydSteinbergDither(new ImageData(threeDimensionalArray3), 1);
+  }
+
+  @Test
+  public void testResizeUniformImageAllFilters() {
+    int[][][] data = new int[9][12][3];
+    for (int i = 0; i < 9; i++) {
+      for (int j = 0; j < 12; j++) {
+        data[i][j] = new int[]{10, 128, 250};
+      }
+    }
+    ImageInfo img = new ImageData(data);
+    for (ResizeFilter filter : ResizeFilter.values()) {
+      for (int[] size : new int[][]{{5, 4}, {25, 17}, {12, 3}}) {
+        ImageInfo res = model.resizeImage(img, size[0], size[1], filter);
+        assertEquals(size[0], res.getWidth());
+        assertEquals(size[1], res.getHeight());
+        for (int i = 0; i < res.getHeight(); i++) {
+          for (int j = 0; j < res.getWidth(); j++) {
+            assertEquals(10, res.getPixelValue(i, j, 0));
+            assertEquals(128, res.getPixelValue(i, j, 1));
+            assertEquals(250, res.getPixelValue(i, j, 2));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testResizeAreaAveragesBlocks() {
+    ImageInfo img = new ImageData(new int[][][]{
+      {
+        {0, 0, 0}, {100, 100, 100}, {40, 40, 40}, {40, 40, 40}
+      },
+      {
+        {100, 100, 100}, {0, 0, 0}, {40, 40, 40}, {40, 40, 40}
+      }
+    });
+    ImageInfo res = model.resizeImage(img, 2, 1, ResizeFilter.AREA);
+    assertEquals(50, res.getPixelValue(0, 0, 0));
+    assertEquals(40, res.getPixelValue(0, 1, 0));
+  }
+
+  @Test
+  public void testResizeSameSizeKeepsImage() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo res = model.resizeImage(img, 3, 3, ResizeFilter.LANCZOS);
+    for (int i = 0; i < img.getHeight(); i++) {
+      for (int j = 0; j < img.getWidth(); j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(threeDimensionalArray1[i][j][k], res.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testResizeInvalidSize() {
+    model.resizeImage(new ImageData(threeDimensionalArray3), 0, 3, ResizeFilter.AUTO);
+  }
+
+
+  @Test
+  public void testRotateHalfTurnMatchesFlips() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    for (Interpolation interpolation : Interpolation.values()) {
+      ImageInfo res = model.rotateImage(img, 180, interpolation);
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          for (int k = 0; k < 3; k++) {
+            assertEquals(threeDimensionalArray1[2 - i][2 - j][k], res.getPixelValue(i, j, k));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRotateQuarterTurnClockwise() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo res = model.rotateImage(img, 90, Interpolation.BILINEAR);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(threeDimensionalArray1[2 - j][i][0], res.getPixelValue(i, j, 0));
+      }
+    }
+  }
+
+  @Test
+  public void testRotateFillsOutsideWithBlack() {
+    int[][][] data = new int[10][20][3];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 20; j++) {
+        data[i][j] = new int[]{200, 200, 200};
+      }
+    }
+    ImageInfo res = model.rotateImage(new ImageData(data), 45, Interpolation.BICUBIC);
+    assertEquals(0, res.getPixelValue(0, 19, 0));
+    assertEquals(0, res.getPixelValue(9, 0, 0));
+    assertEquals(200, res.getPixelValue(5, 10, 0));
+  }
+
+  @Test
+  public void testAffineTranslationAndScale() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo res = model.affineTransform(img, new double[]{1, 0, 1, 0, 1, 0},
+            Interpolation.BILINEAR);
+    assertEquals(0, res.getPixelValue(1, 0, 0));
+    assertEquals(threeDimensionalArray1[1][0][1], res.getPixelValue(1, 1, 1));
+    assertEquals(threeDimensionalArray1[2][1][2], res.getPixelValue(2, 2, 2));
+
+    res = model.affineTransform(img, new double[]{2, 0, 0, 0, 2, 0},
+            Interpolation.BILINEAR);
+    assertEquals((threeDimensionalArray1[0][0][0] + threeDimensionalArray1[0][1][0] + 1) / 2,
+            res.getPixelValue(0, 1, 0));
+  }
+
+  @Test
+  public void testPerspectiveWithOwnCornersKeepsImage() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo res = model.perspectiveTransform(img, new double[]{0, 0, 2, 0, 2, 2, 0, 2},
+            Interpolation.BICUBIC);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(threeDimensionalArray1[i][j][k], res.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAffineSingularMatrix() {
+    model.affineTransform(new ImageData(threeDimensionalArray1),
+            new double[]{1, 2, 0, 2, 4, 0}, Interpolation.BILINEAR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPerspectiveCollinearCorners() {
+    model.perspectiveTransform(new ImageData(threeDimensionalArray1),
+            new double[]{0, 0, 1, 0, 2, 0, 3, 0}, Interpolation.BILINEAR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateNaNAngle() {
+    model.rotateImage(new ImageData(threeDimensionalArray1), Double.NaN, Interpolation.BILINEAR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAffineInfiniteValue() {
+    model.affineTransform(new ImageData(threeDimensionalArray1),
+            new double[]{1, 0, Double.POSITIVE_INFINITY, 0, 1, 0}, Interpolation.BILINEAR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPerspectiveNaNCorner() {
+    model.perspectiveTransform(new ImageData(threeDimensionalArray1),
+            new double[]{0, 0, 2, 0, 2, Double.NaN, 0, 2}, Interpolation.BILINEAR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDistortionMapNaNCoefficient() {
+    model.buildDistortionMap(3, 3, Double.NaN, 0);
+  }
+
+  @Test
+  public void testRemapWithoutDistortionKeepsImage() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    DistortionMap map = model.buildDistortionMap(3, 3, 0, 0);
+    ImageInfo res = model.remapImage(img, map);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(threeDimensionalArray1[i][j][k], res.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRemapFollowsMap() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    int one = 1 << DistortionMap.FRACTION_BITS;
+    int[] coordinates = new int[18];
+    for (int p = 0; p < 9; p++) {
+      coordinates[2 * p] = (2 - p % 3) * one;
+      coordinates[2 * p + 1] = (p / 3) * one;
+    }
+    coordinates[0] = DistortionMap.NO_SOURCE;
+    coordinates[1] = DistortionMap.NO_SOURCE;
+    coordinates[2] = one / 2;
+    coordinates[3] = 0;
+    ImageInfo res = model.remapImage(img,
+            new DistortionMap(3, 3, IntBuffer.wrap(coordinates)));
+    assertEquals(0, res.getPixelValue(0, 0, 0));
+    assertEquals((1 + 10 + 1) / 2, res.getPixelValue(0, 1, 0));
+    assertEquals(threeDimensionalArray1[2][0][2], res.getPixelValue(2, 2, 2));
+  }
+
+  @Test
+  public void testBarrelCorrectionPullsCornersInward() {
+    DistortionMap map = model.buildDistortionMap(101, 51, -0.2, 0);
+    ImageInfo img = new ImageData(new int[51][101][3]);
+    assertEquals(101, model.remapImage(img, map).getWidth());
+    int one = 1 << DistortionMap.FRACTION_BITS;
+    assertTrue(map.getCoordinates().get(0) > 0);
+    assertEquals(50 * one, map.getCoordinates().get(2 * (25 * 101 + 50)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRemapSizeMismatch() {
+    model.remapImage(new ImageData(threeDimensionalArray1),
+            model.buildDistortionMap(4, 3, 0.1, 0));
+  }
+
+
+  @Test
+  public void testIdentityLutKeepsImage() {
+    ColorLut identity = ColorLut.fromMatrix(new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}}, 17);
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    for (LutInterpolation interpolation : LutInterpolation.values()) {
+      ImageInfo res = model.applyColorLut(img, identity, interpolation);
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          for (int k = 0; k < 3; k++) {
+            assertEquals(threeDimensionalArray1[i][j][k], res.getPixelValue(i, j, k), 1);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMatrixLutMatchesLinearTransformation() {
+    int[][][] data = new int[16][16][3];
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        data[i][j] = new int[]{i * 17, j * 16, (i * j) % 256};
+      }
+    }
+    ImageInfo img = new ImageData(data);
+    ImageInfo expected = model.greyscaleImage(img);
+    ColorLut lut = ColorLut.fromMatrix(ModelUtil.getGreyScaleFilter(), 33);
+    for (LutInterpolation interpolation : LutInterpolation.values()) {
+      ImageInfo res = model.applyColorLut(img, lut, interpolation);
+      for (int i = 0; i < 16; i++) {
+        for (int j = 0; j < 16; j++) {
+          for (int k = 0; k < 3; k++) {
+            assertEquals(expected.getPixelValue(i, j, k), res.getPixelValue(i, j, k), 3);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testLutInterpolatesBetweenGridPoints() {
+    double[] entries = new double[24];
+    for (int p = 0; p < 8; p++) {
+      entries[3 * p] = (p & 1) == 0 ? 0 : 1;
+      entries[3 * p + 1] = 0.5;
+      entries[3 * p + 2] = p == 7 ? 1 : 0;
+    }
+    ColorLut lut = new ColorLut(2, entries, new double[]{0, 0, 0}, new double[]{1, 1, 1});
+    ImageInfo img = new ImageData(new int[][][]{{{51, 255, 255}, {255, 102, 204}}});
+    ImageInfo tetra = model.applyColorLut(img, lut, LutInterpolation.TETRAHEDRAL);
+    ImageInfo tri = model.applyColorLut(img, lut, LutInterpolation.TRILINEAR);
+    assertEquals(51, tetra.getPixelValue(0, 0, 0));
+    assertEquals(51, tri.getPixelValue(0, 0, 0));
+    assertEquals(128, tetra.getPixelValue(0, 1, 1));
+    assertEquals(51, tetra.getPixelValue(0, 0, 2));
+    assertEquals(51, tri.getPixelValue(0, 0, 2));
+    assertEquals(102, tetra.getPixelValue(0, 1, 2));
+    assertEquals(81, tri.getPixelValue(0, 1, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLutWrongEntryCount() {
+    new ColorLut(2, new double[23], new double[]{0, 0, 0}, new double[]{1, 1, 1});
+  }
+
+
+  @Test
+  public void testColorSpaceRoundTrips() {
+    int[][][] data = new int[8][8][3];
+    for (int i = 0; i < 8; i++) {
+      for (int j = 0; j < 8; j++) {
+        data[i][j] = new int[]{i * 36, j * 36, (i * 7 + j * 13) * 4 % 256};
+      }
+    }
+    ImageInfo img = new ImageData(data);
+    for (ColorSpace space : ColorSpace.values()) {
+      // 8-bit Lab cannot hold the darkest channel of saturated colours exactly
+      int tolerance = space == ColorSpace.LAB ? 8 : 3;
+      ImageInfo res = model.convertFromColorSpace(model.convertToColorSpace(img, space), space);
+      for (int i = 0; i < 8; i++) {
+        for (int j = 0; j < 8; j++) {
+          for (int k = 0; k < 3; k++) {
+            assertEquals(space.toString(), data[i][j][k], res.getPixelValue(i, j, k),
+                    tolerance);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testColorSpaceKnownValues() {
+    ImageInfo img = new ImageData(new int[][][]{{{255, 0, 0}, {255, 255, 255}, {0, 0, 0}}});
+    ImageInfo hsv = model.convertToColorSpace(img, ColorSpace.HSV);
+    assertEquals(0, hsv.getPixelValue(0, 0, 0));
+    assertEquals(255, hsv.getPixelValue(0, 0, 1));
+    assertEquals(255, hsv.getPixelValue(0, 0, 2));
+    ImageInfo hsl = model.convertToColorSpace(img, ColorSpace.HSL);
+    assertEquals(128, hsl.getPixelValue(0, 0, 2));
+    assertEquals(255, hsl.getPixelValue(0, 0, 1));
+    ImageInfo ycbcr = model.convertToColorSpace(img, ColorSpace.YCBCR);
+    assertEquals(76, ycbcr.getPixelValue(0, 0, 0));
+    assertEquals(255, ycbcr.getPixelValue(0, 0, 2));
+    assertEquals(255, ycbcr.getPixelValue(0, 1, 0));
+    assertEquals(128, ycbcr.getPixelValue(0, 1, 1));
+    ImageInfo lab = model.convertToColorSpace(img, ColorSpace.LAB);
+    assertEquals(255, lab.getPixelValue(0, 1, 0));
+    assertEquals(128, lab.getPixelValue(0, 1, 1));
+    assertEquals(128, lab.getPixelValue(0, 1, 2));
+    assertEquals(0, lab.getPixelValue(0, 2, 0));
+  }
+
+  @Test
+  public void testHueShift() {
+    ImageInfo img = new ImageData(new int[][][]{{{255, 0, 0}, {200, 100, 50}}});
+    ImageInfo res = model.hueShift(img, 120);
+    assertEquals(0, res.getPixelValue(0, 0, 0));
+    assertEquals(255, res.getPixelValue(0, 0, 1));
+    assertEquals(0, res.getPixelValue(0, 0, 2));
+    assertEquals(50, res.getPixelValue(0, 1, 0));
+    assertEquals(200, res.getPixelValue(0, 1, 1));
+    assertEquals(100, res.getPixelValue(0, 1, 2));
+    res = model.hueShift(img, -360);
+    assertEquals(200, res.getPixelValue(0, 1, 0));
+    assertEquals(100, res.getPixelValue(0, 1, 1));
+    assertEquals(50, res.getPixelValue(0, 1, 2));
+  }
+
+  @Test
+  public void testSaturation() {
+    ImageInfo img = new ImageData(threeDimensionalArray1);
+    ImageInfo same = model.adjustSaturation(img, 1);
+    ImageInfo grey = model.adjustSaturation(img, 0);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        int max = Math.max(threeDimensionalArray1[i][j][0],
+                Math.max(threeDimensionalArray1[i][j][1], threeDimensionalArray1[i][j][2]));
+        for (int k = 0; k < 3; k++) {
+          assertEquals(threeDimensionalArray1[i][j][k], same.getPixelValue(i, j, k));
+          assertEquals(max, grey.getPixelValue(i, j, k));
+        }
+      }
+    }
+    ImageInfo vivid = model.adjustSaturation(new ImageData(new int[][][]{{{200, 150, 100}}}), 2);
+    assertEquals(200, vivid.getPixelValue(0, 0, 0));
+    assertEquals(100, vivid.getPixelValue(0, 0, 1));
+    assertEquals(0, vivid.getPixelValue(0, 0, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSaturation() {
+    model.adjustSaturation(new ImageData(threeDimensionalArray1), -1);
+  }
+
+
+  @Test
+  public void testLabelComponentsAcrossBands() {
+    int[][][] data = new int[150][5][3];
+    for (int i = 0; i < 150; i++) {
+      data[i][0] = new int[]{255, 255, 255};
+      data[i][4] = new int[]{255, 255, 255};
+    }
+    data[149][1] = new int[]{255, 255, 255};
+    data[148][2] = new int[]{255, 255, 255};
+    data[149][3] = new int[]{255, 255, 255};
+    data[10][2] = new int[]{200, 200, 200};
+    ComponentLabeling labeling = model.labelComponents(new ImageData(data), 128);
+    assertEquals(2, labeling.getCount());
+    assertEquals(1, labeling.getLabel(0, 0));
+    assertEquals(1, labeling.getLabel(0, 4));
+    assertEquals(2, labeling.getLabel(10, 2));
+    assertEquals(0, labeling.getLabel(10, 1));
+    assertEquals(303, labeling.getArea(1));
+    assertArrayEquals(new int[]{0, 0, 4, 149}, labeling.getBoundingBox(1));
+    assertArrayEquals(new double[]{2, 10}, labeling.getCentroid(2), 1e-9);
+    assertEquals(0, model.labelComponents(new ImageData(data), 250).getLabel(10, 2));
+  }
+
+  @Test
+  public void testLabelComponentsMatchesFloodFill() {
+    int width = 90;
+    int height = 200;
+    int[][][] data = new int[height][width][3];
+    Random random = new Random(7);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int v = random.nextInt(100) < 45 ? 255 : 0;
+        data[i][j] = new int[]{v, v, v};
+      }
+    }
+    ComponentLabeling labeling = model.labelComponents(new ImageData(data), 128);
+    int[][] expected = new int[height][width];
+    int count = 0;
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        if (data[i][j][0] == 0 || expected[i][j] != 0) {
+          continue;
+        }
+        count++;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        expected[i][j] = count;
+        queue.add(new int[]{i, j});
+        while (!queue.isEmpty()) {
+          int[] pixel = queue.poll();
+          for (int di = -1; di <= 1; di++) {
+            for (int dj = -1; dj <= 1; dj++) {
+              int y = pixel[0] + di;
+              int x = pixel[1] + dj;
+              if (y >= 0 && y < height && x >= 0 && x < width && data[y][x][0] != 0
+                      && expected[y][x] == 0) {
+                expected[y][x] = count;
+                queue.add(new int[]{y, x});
+              }
+            }
+          }
+        }
+      }
+    }
+    assertEquals(count, labeling.getCount());
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertEquals(expected[i][j], labeling.getLabel(i, j));
+      }
+    }
+  }
+
+
+  @Test
+  public void testDistanceTransformMatchesBruteForce() {
+    int width = 300;
+    int height = 150;
+    int[][][] data = new int[height][width][3];
+    List<int[]> foreground = new ArrayList<>();
+    Random random = new Random(11);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int v = random.nextInt(1000) < 2 ? 255 : 0;
+        data[i][j] = new int[]{v, v, v};
+        if (v != 0) {
+          foreground.add(new int[]{i, j});
+        }
+      }
+    }
+    DistanceField field = model.distanceTransform(new ImageData(data), 128);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        long best = Long.MAX_VALUE;
+        for (int[] pixel : foreground) {
+          long dy = pixel[0] - i;
+          long dx = pixel[1] - j;
+          best = Math.min(best, dx * dx + dy * dy);
+        }
+        assertEquals((float) Math.sqrt(best), field.getDistance(i, j), 0);
+      }
+    }
+  }
+
+  @Test
+  public void testDistanceTransformImage() {
+    int[][][] data = new int[3][400][3];
+    data[1][0] = new int[]{255, 255, 255};
+    DistanceField field = model.distanceTransform(new ImageData(data), 128);
+    assertEquals(0, field.getDistance(1, 0), 0);
+    assertEquals(Math.sqrt(2), field.getDistance(0, 1), 1e-6);
+    assertEquals(399, field.getDistance(1, 399), 0);
+    ImageInfo image = field.getDistanceImage();
+    assertEquals(0, image.getPixelValue(1, 0, 0));
+    assertEquals(3, image.getPixelValue(1, 3, 1));
+    assertEquals(255, image.getPixelValue(1, 399, 2));
+  }
+
+  @Test
+  public void testDistanceTransformWithoutForeground() {
+    DistanceField field = model.distanceTransform(new ImageData(new int[2][2][3]), 1);
+    assertEquals(Float.POSITIVE_INFINITY, field.getDistance(1, 1), 0);
+    assertEquals(255, field.getDistanceImage().getPixelValue(0, 0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDistanceTransformInvalidThreshold() {
+    model.distanceTransform(new ImageData(new int[2][2][3]), 256);
+  }
+
+
+  @Test
+  public void testQuantizeKeepsFewColoursExactly() {
+    int[][][] data = new int[4][5][3];
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 5; j++) {
+        data[i][j] = (i + j) % 3 == 0 ? new int[]{10, 200, 30}
+                : (i + j) % 3 == 1 ? new int[]{11, 200, 30} : new int[]{250, 0, 7};
+      }
+    }
+    IndexedImage image = model.quantize(new ImageData(data), 4);
+    assertEquals(3, image.getPaletteSize());
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 5; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(data[i][j][k], image.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testQuantizeMedianCut() {
+    int[][][] data = new int[64][64][3];
+    Random random = new Random(5);
+    for (int i = 0; i < 64; i++) {
+      for (int j = 0; j < 64; j++) {
+        data[i][j] = new int[]{i * 4, j * 4, random.nextInt(256)};
+      }
+    }
+    double previousError = Double.MAX_VALUE;
+    for (int colors : new int[]{2, 16, 256}) {
+      IndexedImage image = model.quantize(new ImageData(data), colors);
+      assertEquals(colors, image.getPaletteSize());
+      double error = 0;
+      for (int i = 0; i < 64; i++) {
+        for (int j = 0; j < 64; j++) {
+          int color = image.getPaletteColor(image.getIndex(i, j));
+          assertEquals(color >> 16, image.getPixelValue(i, j, 0));
+          for (int k = 0; k < 3; k++) {
+            error += Math.abs(image.getPixelValue(i, j, k) - data[i][j][k]);
+          }
+        }
+      }
+      error /= 64 * 64 * 3;
+      assertTrue(error < previousError);
+      previousError = error;
+    }
+    assertTrue(previousError < 12);
+  }
+
+  @Test
+  public void testQuantizedImageIsIndexed() {
+    int[][][] data = new int[3][3][3];
+    data[1][1] = new int[]{255, 128, 0};
+    data[2][0] = new int[]{0, 0, 255};
+    IndexedImage image = model.quantize(new ImageData(data), 16);
+    BufferedImage buffered = image.convertPixelDataToBufferedImage();
+    assertTrue(buffered.getColorModel() instanceof IndexColorModel);
+    assertEquals(2, buffered.getColorModel().getPixelSize());
+    assertEquals(0xFF8000, buffered.getRGB(1, 1) & 0xFFFFFF);
+    assertEquals(0x0000FF, buffered.getRGB(0, 2) & 0xFFFFFF);
+    assertEquals(0, buffered.getRGB(2, 2) & 0xFFFFFF);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testQuantizeInvalidColours() {
+    model.quantize(new ImageData(new int[2][2][3]), 1);
+  }
+
+
+  @Test
+  public void testStackImagesMatchesSortedSamples() {
+    Random random = new Random(3);
+    for (int frameCount : new int[]{1, 4, 7}) {
+      List<ImageInfo> frames = new ArrayList<>();
+      for (int f = 0; f < frameCount; f++) {
+        int[][][] data = new int[5][6][3];
+        for (int i = 0; i < 5; i++) {
+          for (int j = 0; j < 6; j++) {
+            data[i][j] = new int[]{random.nextInt(256), random.nextInt(256), 17 * f};
+          }
+        }
+        frames.add(new ImageData(data));
+      }
+      ImageInfo mean = model.stackImages(frames, StackMode.MEAN);
+      ImageInfo median = model.stackImages(frames, StackMode.MEDIAN);
+      ImageInfo max = model.stackImages(frames, StackMode.MAX);
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 6; j++) {
+          for (int k = 0; k < 3; k++) {
+            int[] samples = new int[frameCount];
+            int sum = 0;
+            for (int f = 0; f < frameCount; f++) {
+              samples[f] = frames.get(f).getPixelValue(i, j, k);
+              sum += samples[f];
+            }
+            Arrays.sort(samples);
+            assertEquals((sum + frameCount / 2) / frameCount, mean.getPixelValue(i, j, k));
+            assertEquals(samples[(frameCount - 1) / 2], median.getPixelValue(i, j, k));
+            assertEquals(samples[frameCount - 1], max.getPixelValue(i, j, k));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testStackImagesStreamsFrames() {
+    int[] created = new int[1];
+    Iterable<ImageInfo> frames = () -> IntStream.range(0, 50).mapToObj(f -> {
+      created[0]++;
+      int[][][] data = new int[2][2][3];
+      data[0][1] = new int[]{f, 2 * f, 255 - f};
+      return (ImageInfo) new ImageData(data);
+    }).iterator();
+    ImageInfo median = model.stackImages(frames, StackMode.MEDIAN);
+    assertEquals(100, created[0]);
+    assertEquals(24, median.getPixelValue(0, 1, 0));
+    assertEquals(48, median.getPixelValue(0, 1, 1));
+    assertEquals(230, median.getPixelValue(0, 1, 2));
+    assertEquals(0, median.getPixelValue(1, 1, 0));
+    ImageInfo mean = model.stackImages(frames, StackMode.MEAN);
+    assertEquals(150, created[0]);
+    assertEquals(25, mean.getPixelValue(0, 1, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStackImagesDifferentSizes() {
+    model.stackImages(Arrays.asList(new ImageData(new int[2][2][3]),
+            new ImageData(new int[2][3][3])), StackMode.MAX);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStackImagesEmpty() {
+    model.stackImages(new ArrayList<>(), StackMode.MEDIAN);
+  }
+
+
+  @Test
+  public void testBlendModesMatchReference() {
+    int[][][] baseData = new int[16][16][3];
+    int[][][] overlayData = new int[16][16][3];
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        baseData[i][j] = new int[]{i * 17, j * 17, 255 - i * 17};
+        overlayData[i][j] = new int[]{j * 17, 255 - j * 17, i * 16};
+      }
+    }
+    ImageInfo base = new ImageData(baseData);
+    ImageInfo overlay = new ImageData(overlayData);
+    for (BlendMode mode : BlendMode.values()) {
+      ImageInfo result = model.blendImages(base, overlay, mode, 0.6, null, 0, 0);
+      for (int i = 0; i < 16; i++) {
+        for (int j = 0; j < 16; j++) {
+          for (int k = 0; k < 3; k++) {
+            double a = baseData[i][j][k] / 255.0;
+            double b = overlayData[i][j][k] / 255.0;
+            double blended;
+            switch (mode) {
+              case MULTIPLY:
+                blended = a * b;
+                break;
+              case SCREEN:
+                blended = 1 - (1 - a) * (1 - b);
+                break;
+              case OVERLAY:
+                blended = a < 0.5 ? 2 * a * b : 1 - 2 * (1 - a) * (1 - b);
+                break;
+              case ADD:
+                blended = Math.min(1, a + b);
+                break;
+              case DIFFERENCE:
+                blended = Math.abs(a - b);
+                break;
+              default:
+                blended = b;
+            }
+            double expected = 255 * (a + (blended - a) * 153 / 255.0);
+            assertEquals(mode + " at " + i + "," + j, expected,
+                    result.getPixelValue(i, j, k), 1.0);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBlendWithOffsetAndMask() {
+    int[][][] baseData = new int[4][5][3];
+    for (int[][] row : baseData) {
+      for (int[] pixel : row) {
+        pixel[0] = 100;
+        pixel[1] = 100;
+        pixel[2] = 100;
+      }
+    }
+    int[][][] overlayData = new int[3][3][3];
+    int[][][] maskData = new int[3][3][3];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        overlayData[i][j] = new int[]{200, 0, 250};
+        int m = j == 0 ? 255 : j == 1 ? 0 : 128;
+        maskData[i][j] = new int[]{m, m, m};
+      }
+    }
+    ImageInfo result = model.blendImages(new ImageData(baseData), new ImageData(overlayData),
+            BlendMode.NORMAL, 1, new ImageData(maskData), 3, -1);
+    assertEquals(4, result.getHeight());
+    assertEquals(5, result.getWidth());
+    assertEquals(200, result.getPixelValue(0, 3, 0));
+    assertEquals(0, result.getPixelValue(1, 3, 1));
+    assertEquals(100, result.getPixelValue(1, 4, 2));
+    assertEquals(100, result.getPixelValue(2, 3, 0));
+    assertEquals(100, result.getPixelValue(0, 2, 0));
+    ImageInfo outside = model.blendImages(new ImageData(baseData), new ImageData(overlayData),
+            BlendMode.NORMAL, 1, null, 5, 0);
+    assertEquals(100, outside.getPixelValue(0, 4, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBlendMaskOfWrongSize() {
+    model.blendImages(new ImageData(new int[2][2][3]), new ImageData(new int[2][2][3]),
+            BlendMode.ADD, 1, new ImageData(new int[3][2][3]), 0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBlendInvalidOpacity() {
+    model.blendImages(new ImageData(new int[2][2][3]), new ImageData(new int[2][2][3]),
+            BlendMode.ADD, 1.5, null, 0, 0);
+  }
+
+  @Test
+  public void testSeamCarveMatchesSeamBySeamReference() {
+    int width = 40;
+    int height = 30;
+    int[][][] data = new int[height][width][3];
+    Random random = new Random(9);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        data[i][j] = new int[]{random.nextInt(256), (i * j) % 256, random.nextInt(64)};
+      }
+    }
+    ImageInfo carved = SeamCarver.carve(new ImageData(data), 25, height, 1);
+    int[][][] expected = data;
+    for (int seam = 0; seam < 15; seam++) {
+      expected = removeCheapestSeam(expected);
+    }
+    assertEquals(25, carved.getWidth());
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < 25; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(expected[i][j][k], carved.getPixelValue(i, j, k));
+        }
+      }
+    }
+
+    ImageInfo shorter = SeamCarver.carve(new ImageData(data), width, 22, 1);
+    ImageInfo narrower = SeamCarver.carve(new ImageData(transpose(data)), 22, width, 1);
+    for (int i = 0; i < 22; i++) {
+      for (int j = 0; j < width; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(narrower.getPixelValue(j, i, k), shorter.getPixelValue(i, j, k));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBatchedSeamCarveKeepsRowOrder() {
+    int width = 256;
+    int height = 40;
+    int[][][] data = new int[height][width][3];
+    Random random = new Random(4);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int detail = j >= 100 && j < 104 ? 150 + random.nextInt(100) : 100;
+        data[i][j] = new int[]{j, detail, detail};
+      }
+    }
+    ImageInfo carved = SeamCarver.carve(new ImageData(data), 150, height, 8);
+    assertEquals(150, carved.getWidth());
+    assertEquals(height, carved.getHeight());
+    for (int i = 0; i < height; i++) {
+      int previous = -1;
+      int detail = 0;
+      for (int j = 0; j < 150; j++) {
+        int column = carved.getPixelValue(i, j, 0);
+        assertTrue(column > previous);
+        for (int k = 0; k < 3; k++) {
+          assertEquals(data[i][column][k], carved.getPixelValue(i, j, k));
+        }
+        if (column >= 100 && column < 104) {
+          detail++;
+        }
+        previous = column;
+      }
+      assertEquals(4, detail);
+    }
+  }
+
+  @Test
+  public void testSeamCarveKeepsDetail() {
+    int[][][] data = new int[50][60][3];
+    Random random = new Random(2);
+    for (int i = 0; i < 50; i++) {
+      for (int j = 0; j < 60; j++) {
+        int v = j >= 20 && j < 24 ? 150 + random.nextInt(100) : 100;
+        data[i][j] = new int[]{v, v, v};
+      }
+    }
+    ImageInfo carved = model.seamCarve(new ImageData(data), 30, 50);
+    assertEquals(30, carved.getWidth());
+    assertEquals(50, carved.getHeight());
+    for (int i = 0; i < 50; i++) {
+      int detail = 0;
+      for (int j = 0; j < 30; j++) {
+        if (carved.getPixelValue(i, j, 0) >= 150) {
+          detail++;
+        }
+      }
+      assertEquals(4, detail);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeamCarveCannotEnlarge() {
+    model.seamCarve(new ImageData(new int[2][2][3]), 3, 2);
+  }
+
+  private static int[][][] removeCheapestSeam(int[][][] data) {
+    int height = data.length;
+    int width = data[0].length;
+    int[][] cost = new int[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int energy = 0;
+        for (int k = 0; k < 3; k++) {
+          energy += Math.abs(data[i][Math.max(0, j - 1)][k]
+                  - data[i][Math.min(width - 1, j + 1)][k])
+                  + Math.abs(data[Math.max(0, i - 1)][j][k]
+                  - data[Math.min(height - 1, i + 1)][j][k]);
+        }
+        int best = 0;
+        if (i > 0) {
+          best = cost[i - 1][j];
+          if (j > 0) {
+            best = Math.min(best, cost[i - 1][j - 1]);
+          }
+          if (j < width - 1) {
+            best = Math.min(best, cost[i - 1][j + 1]);
+          }
+        }
+        cost[i][j] = energy + best;
+      }
+    }
+    int j = 0;
+    for (int c = 1; c < width; c++) {
+      if (cost[height - 1][c] < cost[height - 1][j]) {
+        j = c;
+      }
+    }
+    int[][][] result = new int[height][width - 1][];
+    for (int i = height - 1; i >= 0; i--) {
+      if (i < height - 1) {
+        int best = Math.max(0, j - 1);
+        for (int c = best + 1; c <= Math.min(width - 1, j + 1); c++) {
+          if (cost[i][c] < cost[i][best]) {
+            best = c;
+          }
+        }
+        j = best;
+      }
+      for (int c = 0, n = 0; c < width; c++) {
+        if (c != j) {
+          result[i][n++] = data[i][c];
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int[][][] transpose(int[][][] data) {
+    int[][][] result = new int[data[0].length][data.length][];
+    for (int i = 0; i < data.length; i++) {
+      for (int j = 0; j < data[0].length; j++) {
+        result[j][i] = data[i][j];
+      }
+    }
+    return result;
+  }
+
+
+  @Test
+  public void testCompareIdenticalImages() {
+    ImageInfo image = new ImageData(threeDimensionalArray1);
+    ImageMetrics metrics = model.compareImages(image, new ImageData(threeDimensionalArray1));
+    for (int k = 0; k < 3; k++) {
+      assertEquals(0, metrics.getMse(k), 0);
+      assertEquals(Double.POSITIVE_INFINITY, metrics.getPsnr(k), 0);
+      assertEquals(1, metrics.getSsim(k), 1e-12);
+    }
+  }
+
+  @Test
+  public void testCompareMatchesDirectWindow() {
+    int width = 37;
+    int height = 80;
+    int[][][] reference = new int[height][width][3];
+    int[][][] noisy = new int[height][width][3];
+    Random random = new Random(4);
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        for (int k = 0; k < 3; k++) {
+          reference[i][j][k] = (i * 3 + j * 5 + k * 40) % 256;
+          noisy[i][j][k] = Math.max(0, Math.min(255, reference[i][j][k]
+                  + random.nextInt(21) - 10 * k));
+        }
+      }
+    }
+    ImageMetrics metrics = model.compareImages(new ImageData(reference), new ImageData(noisy));
+    double[] weights = new double[11];
+    double total = 0;
+    for (int t = -5; t <= 5; t++) {
+      weights[t + 5] = Math.exp(-t * t / 4.5);
+      total += weights[t + 5];
+    }
+    double c1 = 6.5025;
+    double c2 = 58.5225;
+    for (int k = 0; k < 3; k++) {
+      double squaredError = 0;
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          double difference = reference[i][j][k] - noisy[i][j][k];
+          squaredError += difference * difference;
+        }
+      }
+      double sum = 0;
+      for (int i = 5; i < height - 5; i++) {
+        for (int j = 5; j < width - 5; j++) {
+          double meanA = 0;
+          double meanB = 0;
+          double squareA = 0;
+          double squareB = 0;
+          double product = 0;
+          for (int u = -5; u <= 5; u++) {
+            for (int v = -5; v <= 5; v++) {
+              double weight = weights[u + 5] * weights[v + 5] / (total * total);
+              double a = reference[i + u][j + v][k];
+              double b = noisy[i + u][j + v][k];
+              meanA += weight * a;
+              meanB += weight * b;
+              squareA += weight * a * a;
+              squareB += weight * b * b;
+              product += weight * a * b;
+            }
+          }
+          sum += (2 * meanA * meanB + c1) * (2 * (product - meanA * meanB) + c2)
+                  / ((meanA * meanA + meanB * meanB + c1)
+                  * (squareA - meanA * meanA + squareB - meanB * meanB + c2));
+        }
+      }
+      double mse = squaredError / (width * height);
+      assertEquals(mse, metrics.getMse(k), 1e-9);
+      assertEquals(10 * Math.log10(65025 / mse), metrics.getPsnr(k), 1e-9);
+      assertEquals(sum / ((width - 10) * (height - 10)), metrics.getSsim(k), 1e-9);
+      assertTrue(metrics.getSsim(k) < 1);
+    }
+  }
+
+  @Test
+  public void testCompareSmallImages() {
+    ImageMetrics metrics = model.compareImages(new ImageData(threeDimensionalArray1),
+            new ImageData(threeDimensionalArray3));
+    assertTrue(metrics.getMse(1) > 0);
+    assertTrue(metrics.getSsim(1) < 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompareDifferentSizes() {
+    model.compareImages(new ImageData(new int[2][2][3]), new ImageData(new int[2][3][3]));
+  }
+
+
+  private static ImageInfo pattern(int width, int height, double fx, double fy) {
+    int[][][] pixels = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        double u = (double) j / width;
+        double v = (double) i / height;
+        int value = (int) (120 + 60 * Math.sin(fx * u + 1.3 * v) + 50 * Math.cos(fy * v * u));
+        pixels[i][j] = new int[]{value, 255 - value, value / 2};
+      }
+    }
+    return new ImageData(pixels);
+  }
+
+  @Test
+  public void testPerceptualHashOfSimilarImages() {
+    ImageInfo image = pattern(240, 160, 7, 11);
+    long hash = model.perceptualHash(image);
+    long resized = model.perceptualHash(model.resizeImage(image, 97, 61, ResizeFilter.BILINEAR));
+    int[][][] brighter = new int[160][240][3];
+    for (int i = 0; i < 160; i++) {
+      for (int j = 0; j < 240; j++) {
+        for (int k = 0; k < 3; k++) {
+          brighter[i][j][k] = Math.min(255, image.getPixelValue(i, j, k) + 12);
+        }
+      }
+    }
+    long brightened = model.perceptualHash(new ImageData(brighter));
+    long different = model.perceptualHash(pattern(240, 160, 13, 3));
+    assertTrue(HashIndex.distance(hash, resized) <= 4);
+    assertTrue(HashIndex.distance(hash, brightened) <= 4);
+    assertTrue(HashIndex.distance(hash, different) >= 16);
+    assertEquals(hash, model.perceptualHash(image));
+  }
+
+  @Test
+  public void testHashIndexMatchesLinearScan() {
+    Random random = new Random(42);
+    long[] hashes = new long[3000];
+    HashIndex<Integer> index = new HashIndex<>();
+    for (int n = 0; n < hashes.length; n++) {
+      hashes[n] = n % 3 == 0 ? random.nextLong()
+              : hashes[n - 1] ^ 1L << random.nextInt(64) ^ 1L << random.nextInt(64);
+      index.add(hashes[n], n);
+    }
+    assertEquals(hashes.length, index.size());
+    for (int q = 0; q < 50; q++) {
+      long query = hashes[random.nextInt(hashes.length)] ^ 1L << random.nextInt(64);
+      for (int maxDistance : new int[]{0, 3, 12}) {
+        List<Integer> expected = new ArrayList<>();
+        for (int d = 0; d <= maxDistance; d++) {
+          for (int n = 0; n < hashes.length; n++) {
+            if (Long.bitCount(hashes[n] ^ query) == d) {
+              expected.add(n);
+            }
+          }
+        }
+        List<Integer> found = new ArrayList<>();
+        for (HashIndex.Match<Integer> match : index.search(query, maxDistance)) {
+          assertEquals(Long.bitCount(match.getHash() ^ query), match.getDistance());
+          found.add(match.getValue());
+        }
+        assertEquals(expected, found);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPerceptualHashNullImage() {
+    model.perceptualHash(null);
+  }
+
+
+  @Test
+  public void testAutoLevels() {
+    int[][][] pixels = new int[40][50][3];
+    Random random = new Random(3);
+    int[] counts = new int[256];
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 50; j++) {
+        for (int k = 0; k < 3; k++) {
+          pixels[i][j][k] = 40 + random.nextInt(61) + random.nextInt(61) * (k + 1) / 3;
+          counts[pixels[i][j][k]]++;
+        }
+      }
+    }
+    int[] sorted = Arrays.stream(pixels).flatMap(Arrays::stream).flatMapToInt(Arrays::stream)
+            .sorted().toArray();
+    int shadow = sorted[(int) Math.ceil(sorted.length * 0.02) - 1];
+    int highlight = sorted[(int) Math.ceil(sorted.length * 0.98) - 1];
+    int median = sorted[sorted.length / 2 - 1];
+    int mid = Math.max(shadow + (int) Math.ceil(0.3 * (highlight - shadow)),
+            Math.min(shadow + (int) (0.7 * (highlight - shadow)), median));
+    ImageInfo image = new ImageData(pixels);
+    ImageInfo expected = model.levelAdjustment(image, shadow, mid, highlight);
+    ImageInfo result = model.autoLevels(image, 2, 98);
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 50; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(expected.getPixelValue(i, j, k), result.getPixelValue(i, j, k));
+        }
+      }
+    }
+    int[][] cached = ((ImageData) image).getCachedHistograms();
+    assertArrayEquals(counts, IntStream.range(0, 256)
+            .map(v -> cached[0][v] + cached[1][v] + cached[2][v]).toArray());
+    ImageInfo again = model.autoLevels(image, 2, 98);
+    assertSame(cached, ((ImageData) image).getCachedHistograms());
+    assertEquals(result.getPixelValue(7, 9, 1), again.getPixelValue(7, 9, 1));
+  }
+
+  @Test
+  public void testAutoLevelsFlatImage() {
+    ImageInfo image = new ImageData(new int[][][]{{{90, 90, 91}, {90, 91, 90}},
+        {{91, 90, 90}, {90, 90, 90}}});
+    assertSame(image, model.autoLevels(image, 1, 99));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAutoLevelsInvalidPercentiles() {
+    model.autoLevels(new ImageData(threeDimensionalArray1), 60, 40);
+  }
+
+
+  @Test
+  public void testMatchHistogramInvertsMonotonicMapping() {
+    Random random = new Random(11);
+    int[][][] source = new int[30][40][3];
+    int[][][] target = new int[30][40][3];
+    for (int i = 0; i < 30; i++) {
+      for (int j = 0; j < 40; j++) {
+        for (int k = 0; k < 3; k++) {
+          source[i][j][k] = random.nextInt(100);
+          target[i][j][k] = k == 0 ? 2 * source[i][j][k] + 50 : 99 - source[i][j][k] / 2;
+        }
+      }
+    }
+    int[][][] shuffled = new int[20][60][3];
+    for (int p = 0; p < 1200; p++) {
+      shuffled[p % 20][p / 20] = target[(p * 7) % 1200 / 40][(p * 7) % 1200 % 40];
+    }
+    ImageInfo matched = model.matchHistogram(new ImageData(source), new ImageData(shuffled));
+    for (int i = 0; i < 30; i++) {
+      for (int j = 0; j < 40; j++) {
+        assertEquals(target[i][j][0], matched.getPixelValue(i, j, 0));
+        assertTrue(matched.getPixelValue(i, j, 1) <= 99);
+        assertTrue(matched.getPixelValue(i, j, 1) >= 49);
+      }
+    }
+  }
+
+  @Test
+  public void testMatchHistogramToItselfAndSplit() {
+    Random random = new Random(12);
+    int[][][] pixels = new int[10][20][3];
+    int[][][] reference = new int[12][12][3];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 20; j++) {
+        for (int k = 0; k < 3; k++) {
+          pixels[i][j][k] = random.nextInt(256);
+        }
+      }
+    }
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 12; j++) {
+        reference[i][j] = new int[]{200 + i, 10 + j, 128};
+      }
+    }
+    ImageInfo image = new ImageData(pixels);
+    ImageInfo same = model.matchHistogram(image, image);
+    ImageInfo matched = model.matchHistogram(image, new ImageData(reference));
+    ImageInfo split = model.splitMatchHistogram(image, new ImageData(reference), 50);
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 20; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(pixels[i][j][k], same.getPixelValue(i, j, k));
+          assertEquals(j < 10 ? matched.getPixelValue(i, j, k) : pixels[i][j][k],
+                  split.getPixelValue(i, j, k));
+        }
+        assertEquals(128, matched.getPixelValue(i, j, 2));
+        assertTrue(matched.getPixelValue(i, j, 0) >= 200);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMatchHistogramNullReference() {
+    model.matchHistogram(new ImageData(threeDimensionalArray1), null);
+  }
+
+
+  @Test
+  public void testGuidedFilterMatchesDirectWindows() {
+    Random random = new Random(5);
+    // The second size spans several bands of rows of the box means.
+    for (int[] size : new int[][]{{23, 17, 3}, {20, 80, 2}}) {
+      int width = size[0];
+      int height = size[1];
+      int radius = size[2];
+      int[][][] pixels = new int[height][width][3];
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          for (int k = 0; k < 3; k++) {
+            pixels[i][j][k] = random.nextInt(256);
+          }
+        }
+      }
+      ImageInfo filtered = model.guidedFilter(new ImageData(pixels), radius, 0.02);
+      double eps = 0.02 * 255 * 255;
+      for (int k = 0; k < 3; k++) {
+        double[][] slope = new double[height][width];
+        double[][] offset = new double[height][width];
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            double sum = 0;
+            double squares = 0;
+            int count = 0;
+            for (int u = Math.max(0, i - radius); u <= Math.min(height - 1, i + radius); u++) {
+              for (int v = Math.max(0, j - radius); v <= Math.min(width - 1, j + radius); v++) {
+                sum += pixels[u][v][k];
+                squares += pixels[u][v][k] * pixels[u][v][k];
+                count++;
+              }
+            }
+            double mean = sum / count;
+            double variance = squares / count - mean * mean;
+            slope[i][j] = variance / (variance + eps);
+            offset[i][j] = (1 - slope[i][j]) * mean;
+          }
+        }
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            double a = 0;
+            double b = 0;
+            int count = 0;
+            for (int u = Math.max(0, i - radius); u <= Math.min(height - 1, i + radius); u++) {
+              for (int v = Math.max(0, j - radius); v <= Math.min(width - 1, j + radius); v++) {
+                a += slope[u][v];
+                b += offset[u][v];
+                count++;
+              }
+            }
+            double expected = (a * pixels[i][j][k] + b) / count;
+            assertEquals(expected, filtered.getPixelValue(i, j, k), 0.5 + 1e-3);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGuidedFilterKeepsEdgesAndDetailEnhance() {
+    Random random = new Random(6);
+    int[][][] pixels = new int[30][40][3];
+    for (int i = 0; i < 30; i++) {
+      for (int j = 0; j < 40; j++) {
+        int value = (j < 20 ? 40 : 210) + random.nextInt(7) - 3;
+        pixels[i][j] = new int[]{value, value, value};
+      }
+    }
+    ImageInfo image = new ImageData(pixels);
+    ImageInfo smooth = model.guidedFilter(image, 5, 0.01);
+    ImageInfo enhanced = model.detailEnhance(image, 3, 5);
+    ImageInfo unchanged = model.detailEnhance(image, 0, 5);
+    double noise = 0;
+    double enhancedNoise = 0;
+    for (int i = 0; i < 30; i++) {
+      for (int j = 0; j < 40; j++) {
+        int level = j < 20 ? 40 : 210;
+        assertEquals(level, smooth.getPixelValue(i, j, 0), j >= 14 && j < 26 ? 12 : 4);
+        noise += Math.abs(pixels[i][j][0] - level);
+        enhancedNoise += Math.abs(enhanced.getPixelValue(i, j, 0) - level);
+        assertEquals(pixels[i][j][1], unchanged.getPixelValue(i, j, 1));
+      }
+    }
+    assertTrue(enhancedNoise > 2 * noise);
+    ImageInfo sharpened = model.detailEnhance(image, 1, 5);
+    assertEquals(40, sharpened.getPixelValue(15, 19, 0), 15);
+    assertEquals(210, sharpened.getPixelValue(15, 20, 0), 15);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGuidedFilterInvalidRadius() {
+    model.guidedFilter(new ImageData(threeDimensionalArray1), 0, 0.01);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDetailEnhanceInvalidAmount() {
+    model.detailEnhance(new ImageData(threeDimensionalArray1), -1, 2);
+  }
+
+
+  @Test
+  public void testToneMapLiftsShadowsAndKeepsHighlights() {
+    Random random = new Random(8);
+    int width = 200;
+    int height = 150;
+    int[][][] pixels = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int level = j >= 120 && i < 70 ? 230 : 20;
+        int noise = random.nextInt(11) - 5;
+        pixels[i][j] = new int[]{level + noise + 4, level + noise, level + noise - 4};
+      }
+    }
+    ImageInfo image = new ImageData(pixels);
+    ImageInfo same = model.toneMap(image, 0);
+    ImageInfo toned = model.toneMap(image, 0.6);
+    double dark = 0;
+    double darkTexture = 0;
+    double bright = 0;
+    for (int i = 100; i < 140; i++) {
+      for (int j = 10; j < 90; j++) {
+        dark += toned.getPixelValue(i, j, 1);
+        darkTexture += Math.abs(toned.getPixelValue(i, j, 1) - toned.getPixelValue(i, j + 1, 1));
+        assertTrue(toned.getPixelValue(i, j, 0) > toned.getPixelValue(i, j, 1));
+        assertTrue(toned.getPixelValue(i, j, 1) > toned.getPixelValue(i, j, 2));
+      }
+    }
+    for (int i = 10; i < 60; i++) {
+      for (int j = 130; j < 190; j++) {
+        bright += toned.getPixelValue(i, j, 1);
+      }
+    }
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertEquals(pixels[i][j][k], same.getPixelValue(i, j, k), 1);
+        }
+      }
+    }
+    assertTrue(dark / 3200 > 50);
+    assertEquals(230, bright / 3000, 5);
+    assertTrue(darkTexture / 3200 > 6);
+  }
+
+  @Test
+  public void testSplitToneMap() {
+    ImageInfo image = new ImageData(threeDimensionalArray1);
+    ImageInfo split = model.splitToneMap(image, 0.5, 0);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(image.getPixelValue(i, j, 0), split.getPixelValue(i, j, 0));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testToneMapInvalidStrength() {
+    model.toneMap(new ImageData(threeDimensionalArray1), 1.5);
+  }
+
+
+  @Test
+  public void testFindTemplateLocatesCopies() {
+    Random random = new Random(9);
+    int width = 300;
+    int height = 180;
+    int[][][] pixels = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int value = random.nextInt(256);
+        pixels[i][j] = new int[]{value, (value * 3) & 255, 255 - value};
+      }
+    }
+    int[][][] template = new int[15][21][3];
+    for (int i = 0; i < 15; i++) {
+      for (int j = 0; j < 21; j++) {
+        template[i][j] = pixels[40 + i][200 + j].clone();
+        for (int k = 0; k < 3; k++) {
+          pixels[120 + i][30 + j][k] = pixels[40 + i][200 + j][k] / 2 + 60;
+        }
+      }
+    }
+    List<TemplateMatch> matches = model.findTemplate(new ImageData(pixels),
+            new ImageData(template), 3);
+    assertEquals(3, matches.size());
+    assertEquals(40, matches.get(0).getRow());
+    assertEquals(200, matches.get(0).getColumn());
+    assertEquals(1, matches.get(0).getScore(), 1e-6);
+    assertEquals(120, matches.get(1).getRow());
+    assertEquals(30, matches.get(1).getColumn());
+    assertTrue(matches.get(1).getScore() > 0.99);
+    assertTrue(matches.get(2).getScore() < 0.5);
+  }
+
+  @Test
+  public void testFindTemplateScoresMatchDirectSums() {
+    Random random = new Random(10);
+    int[][][] pixels = new int[40][50][3];
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 50; j++) {
+        int value = random.nextInt(256);
+        pixels[i][j] = new int[]{value, value, value};
+      }
+    }
+    int[][][] template = new int[7][9][3];
+    for (int i = 0; i < 7; i++) {
+      for (int j = 0; j < 9; j++) {
+        int value = random.nextInt(256);
+        template[i][j] = new int[]{value, value, value};
+      }
+    }
+    List<TemplateMatch> matches = model.findTemplate(new ImageData(pixels),
+            new ImageData(template), 1000);
+    assertTrue(matches.size() > 5);
+    // Matching uses the truncated luma, which is not always the grey value.
+    IntUnaryOperator luma = v -> (int) (0.2126 * v + 0.7152 * v + 0.0722 * v);
+    double templateMean = Arrays.stream(template).flatMap(Arrays::stream)
+            .mapToInt(pixel -> luma.applyAsInt(pixel[0])).average().getAsDouble();
+    double previous = 1;
+    for (TemplateMatch match : matches) {
+      double sum = 0;
+      double squares = 0;
+      double correlation = 0;
+      double templateSquares = 0;
+      for (int i = 0; i < 7; i++) {
+        for (int j = 0; j < 9; j++) {
+          int value = luma.applyAsInt(pixels[match.getRow() + i][match.getColumn() + j][0]);
+          double centered = luma.applyAsInt(template[i][j][0]) - templateMean;
+          sum += value;
+          squares += value * value;
+          correlation += value * centered;
+          templateSquares += centered * centered;
+        }
+      }
+      double expected = correlation / Math.sqrt((squares - sum * sum / 63) * templateSquares);
+      assertEquals(expected, match.getScore(), 1e-5);
+      assertTrue(match.getScore() > 0 && match.getScore() <= previous);
+      previous = match.getScore();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindTemplateLargerThanImage() {
+    model.findTemplate(new ImageData(new int[2][2][3]), new ImageData(new int[3][2][3]), 1);
+  }
+
+
+  @Test
+  public void testColorSignature() {
+    int[][][] pixels = new int[10][10][3];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        pixels[i][j] = j < 3 ? new int[]{250, 10, 10} : new int[]{70, 130, 200};
+      }
+    }
+    byte[] bins = model.colorSignature(new ImageData(pixels)).getBins();
+    byte[] expected = new byte[ColorSignature.SIZE];
+    expected[3 << 4] = (byte) 77;
+    expected[1 << 4 | 2 << 2 | 3] = (byte) 179;
+    assertArrayEquals(expected, bins);
+    ColorSignature red = model.colorSignature(new ImageData(new int[][][]{{{255, 0, 0}}}));
+    ColorSignature blue = model.colorSignature(new ImageData(new int[][][]{{{0, 0, 255}}}));
+    assertEquals(510, red.distance(blue));
+    assertEquals(0, red.distance(red));
+  }
+
+  @Test
+  public void testSimilarityIndexMatchesLinearScan() {
+    Random random = new Random(7);
+    List<ColorSignature> signatures = new ArrayList<>();
+    for (int n = 0; n < 2000; n++) {
+      int[] counts = new int[ColorSignature.SIZE];
+      for (int pixel = 0; pixel < 255; pixel++) {
+        counts[random.nextInt(n % 2 == 0 ? 8 : ColorSignature.SIZE)]++;
+      }
+      byte[] bins = new byte[ColorSignature.SIZE];
+      for (int bin = 0; bin < bins.length; bin++) {
+        bins[bin] = (byte) counts[bin];
+      }
+      signatures.add(new ColorSignature(bins));
+    }
+    SimilarityIndex built = SimilarityIndex.build(signatures);
+    SimilarityIndex wrapped = SimilarityIndex.wrap(built.getRecords());
+    assertEquals(signatures.size(), wrapped.size());
+    for (int q = 0; q < 30; q++) {
+      ColorSignature query = signatures.get(random.nextInt(signatures.size()));
+      List<int[]> expected = new ArrayList<>();
+      for (int n = 0; n < signatures.size(); n++) {
+        expected.add(new int[]{query.distance(signatures.get(n)), n});
+      }
+      expected.sort((a, b) -> a[0] != b[0] ? a[0] - b[0] : a[1] - b[1]);
+      for (SimilarityIndex index : new SimilarityIndex[]{built, wrapped}) {
+        List<SimilarityIndex.Match> matches = index.nearest(query, 10);
+        assertEquals(10, matches.size());
+        for (int m = 0; m < matches.size(); m++) {
+          assertEquals(expected.get(m)[1], matches.get(m).getId());
+          assertEquals(expected.get(m)[0], matches.get(m).getDistance());
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSimilarityIndexPartialRecord() {
+    SimilarityIndex.wrap(ByteBuffer.allocate(SimilarityIndex.RECORD_BYTES + 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testColorSignatureNullImage() {
+    model.colorSignature(null);
+  }
+
+
+  @Test
+  public void testHistogramsInSinglePass() {
+    Random random = new Random(3);
+    int[][][] pixels = new int[130][70][3];
+    int[][] expected = new int[3][256];
+    for (int i = 0; i < 130; i++) {
+      for (int j = 0; j < 70; j++) {
+        for (int k = 0; k < 3; k++) {
+          pixels[i][j][k] = random.nextInt(300) - 20;
+          expected[k][Math.min(255, Math.max(0, pixels[i][j][k]))]++;
+        }
+      }
+    }
+    assertArrayEquals(expected, Histograms.compute(new ImageData(pixels)));
+  }
+
+  @Test
+  public void testSplitResultHistogramsFromOriginal() {
+    Random random = new Random(5);
+    int[][][] pixels = new int[90][120][3];
+    for (int[][] row : pixels) {
+      for (int[] pixel : row) {
+        for (int k = 0; k < 3; k++) {
+          pixel[k] = random.nextInt(256);
+        }
+      }
+    }
+    ImageData image = new ImageData(pixels);
+    ImageData uncached = (ImageData) model.splitBlur(image, 30);
+    assertNull(uncached.getCachedHistograms());
+    image.cacheHistograms(Histograms.compute(image));
+    for (int percentage : new int[]{0, 10, 30, 50}) {
+      ImageData split = (ImageData) model.splitBlur(image, percentage);
+      assertArrayEquals(Histograms.compute(split), split.getCachedHistograms());
+    }
+    assertNull(((ImageData) model.splitBlur(image, 80)).getCachedHistograms());
+  }
+}
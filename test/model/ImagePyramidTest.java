@@ -0,0 +1,66 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for the ImagePyramid class.
+ */
+public class ImagePyramidTest {
+
+  private ImageInfo gradient(int width, int height) {
+    int[][][] data = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        data[i][j][0] = 10 * i + j;
+        data[i][j][1] = 4 * j;
+        data[i][j][2] = 200;
+      }
+    }
+    return new ImageData(data);
+  }
+
+  @Test
+  public void testLevelSizes() {
+    ImageInfo base = gradient(5, 3);
+    ImagePyramid pyramid = new ImagePyramid(base);
+    assertEquals(4, pyramid.getLevelCount());
+    assertSame(base, pyramid.getLevel(0));
+    assertSame(base, pyramid.getBase());
+    assertEquals(3, pyramid.getLevel(1).getWidth());
+    assertEquals(2, pyramid.getLevel(1).getHeight());
+    assertEquals(2, pyramid.getLevel(2).getWidth());
+    assertEquals(1, pyramid.getLevel(2).getHeight());
+    assertEquals(1, pyramid.getLevel(3).getWidth());
+    assertEquals(1, pyramid.getLevel(10).getHeight());
+  }
+
+  @Test
+  public void testLevelAveragesBlocks() {
+    ImagePyramid pyramid = new ImagePyramid(gradient(4, 4));
+    ImageInfo level = pyramid.getLevel(1);
+    assertEquals((0 + 1 + 10 + 11 + 2) / 4, level.getPixelValue(0, 0, 0));
+    assertEquals((22 + 23 + 32 + 33 + 2) / 4, level.getPixelValue(1, 1, 0));
+    assertEquals((8 + 12 + 8 + 12 + 2) / 4, level.getPixelValue(0, 1, 1));
+    assertEquals(200, level.getPixelValue(1, 0, 2));
+    assertSame(level, pyramid.getLevel(1));
+  }
+
+  @Test
+  public void testBestLevelFor() {
+    ImagePyramid pyramid = new ImagePyramid(gradient(16, 8));
+    assertSame(pyramid.getBase(), pyramid.bestLevelFor(1000));
+    assertSame(pyramid.getBase(), pyramid.bestLevelFor(128));
+    assertSame(pyramid.getLevel(1), pyramid.bestLevelFor(32));
+    assertSame(pyramid.getLevel(1), pyramid.bestLevelFor(9));
+    assertSame(pyramid.getLevel(2), pyramid.bestLevelFor(8));
+    assertSame(pyramid.getLevel(4), pyramid.bestLevelFor(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImage() {
+    new ImagePyramid(null);
+  }
+}